@@ -18,6 +18,8 @@ package org.springframework.samples.petclinic;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.web.servlet.i18n.SessionLocaleResolver;
@@ -30,7 +32,9 @@ import java.util.Locale;
  * @author Dave Syer
  *
  */
-@SpringBootApplication
+// the reactive API opens its own R2DBC pool on the JPA database, see
+// ReactiveDatabaseConfiguration
+@SpringBootApplication(exclude = { R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class })
 @ImportRuntimeHints(PetClinicRuntimeHints.class)
 public class PetClinicApplication {
 
@@ -16,11 +16,16 @@
 
 package org.springframework.samples.petclinic;
 
+import java.sql.Connection;
+
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
 import org.springframework.samples.petclinic.model.BaseEntity;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetRepository;
 
 public class PetClinicRuntimeHints implements RuntimeHintsRegistrar {
 
@@ -33,6 +38,12 @@ public class PetClinicRuntimeHints implements RuntimeHintsRegistrar {
 		hints.serialization().registerType(BaseEntity.class);
 		hints.serialization().registerType(Person.class);
 		hints.serialization().registerType(Vet.class);
+		// repositories memoized per request by RequestScopedReads, coalesced by
+		// CoalescedReads and hedged by HedgedReads
+		hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(OwnerRepository.class));
+		hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(VetRepository.class));
+		// connections whose statements HedgedReads cancels
+		hints.proxies().registerJdkProxy(Connection.class);
 	}
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Coalesces identical concurrent repository reads, so that many requests opening the
+ * same page at the same moment run its queries once, see {@link SingleFlight}.
+ * <p>
+ * Reads are the methods annotated with {@code @Transactional(readOnly = true)}, keyed by
+ * method and arguments, and their callers share the same result. Methods returning a
+ * single entity are not coalesced, since controllers bind forms into it; their
+ * repositories hand out copies instead, see {@code OwnerCacheRepository}. Within a
+ * transaction every call goes straight to the repository, so that it sees the changes of
+ * that transaction, and so does every call that must read from the primary database, see
+ * {@link ReadYourWrites}, since a read in flight may come from a replica or predate the
+ * write of the caller. Calling any other method, such as a save, makes later reads start
+ * their own load rather than wait for one that may not see the change.
+ */
+public final class CoalescedReads {
+
+	private CoalescedReads() {
+	}
+
+	/**
+	 * Wrap the given repository so that its identical concurrent reads are coalesced.
+	 * @param repository the repository to wrap
+	 * @param type the repository interface
+	 * @return a proxy implementing the given repository interface
+	 */
+	public static <T> T coalesce(T repository, Class<T> type) {
+		ProxyFactory factory = new ProxyFactory();
+		factory.setTarget(repository);
+		factory.addInterface(type);
+		factory.addAdvice(new CoalescingInterceptor());
+		return type.cast(factory.getProxy(type.getClassLoader()));
+	}
+
+	private static final class CoalescingInterceptor implements MethodInterceptor {
+
+		private final SingleFlight<Key, Object> flights = new SingleFlight<>();
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			Method method = invocation.getMethod();
+			if (!isSharedRead(method)) {
+				try {
+					return invocation.proceed();
+				}
+				finally {
+					if (!isRead(method)) {
+						// reads started before this write may not see it
+						this.flights.forgetAll();
+					}
+				}
+			}
+			if (TransactionSynchronizationManager.isActualTransactionActive() || ReadYourWrites.isPrimaryRequired()) {
+				return invocation.proceed();
+			}
+			return this.flights.load(new Key(method, Arrays.asList(invocation.getArguments())), () -> {
+				try {
+					return invocation.proceed();
+				}
+				catch (RuntimeException | Error ex) {
+					throw ex;
+				}
+				catch (Throwable ex) {
+					throw new UndeclaredThrowableException(ex);
+				}
+			});
+		}
+
+		private static boolean isSharedRead(Method method) {
+			return isRead(method) && !BaseEntity.class.isAssignableFrom(method.getReturnType());
+		}
+
+		private static boolean isRead(Method method) {
+			Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+			return transactional != null && transactional.readOnly();
+		}
+
+	}
+
+	private record Key(Method method, List<Object> arguments) {
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Caches the total number of results of paginated queries, so that rendering a page does
+ * not have to run a full count every time.
+ * <p>
+ * Counts are exact as long as nothing changed since they were computed. After
+ * {@link #invalidate()}, counts below the exact threshold are recomputed on the next
+ * request (they are cheap), while larger counts keep being served, flagged as
+ * approximate, until they expire.
+ *
+ * @param <K> the type of the query arguments the counts are cached by
+ */
+public class CountCache<K> {
+
+	private final Cache<K, Entry> entries;
+
+	private final long exactThreshold;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Create a new {@link CountCache}.
+	 * @param exactThreshold counts below this value are always exact
+	 * @param maximumSize maximum number of cached counts
+	 * @param timeToLive how long a count may be served before it is recomputed
+	 */
+	public CountCache(long exactThreshold, long maximumSize, Duration timeToLive) {
+		this.exactThreshold = exactThreshold;
+		this.entries = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).build();
+	}
+
+	/**
+	 * Return the count for the given key, computing it if necessary.
+	 * @param key the query arguments
+	 * @param counter computes the exact count for the given key
+	 * @return the count, exact or approximate
+	 */
+	public Count count(K key, ToLongFunction<K> counter) {
+		long current = this.generation.get();
+		Entry entry = this.entries.getIfPresent(key);
+		if (entry != null) {
+			if (entry.generation() == current) {
+				return new Count(entry.count(), true);
+			}
+			if (entry.count() >= this.exactThreshold) {
+				return new Count(entry.count(), false);
+			}
+		}
+		long count = counter.applyAsLong(key);
+		this.entries.put(key, new Entry(count, current));
+		return new Count(count, true);
+	}
+
+	/**
+	 * Signal that the underlying data changed and cached counts may be stale.
+	 */
+	public void invalidate() {
+		this.generation.incrementAndGet();
+	}
+
+	/**
+	 * A total count.
+	 *
+	 * @param value the number of results
+	 * @param exact whether the value reflects all changes made so far
+	 */
+	public record Count(long value, boolean exact) {
+
+	}
+
+	private record Entry(long count, long generation) {
+
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * {@link PageImpl} whose total may come from a {@link CountCache} and therefore be
+ * approximate.
+ *
+ * @param <T> the type of the content
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+	private final boolean totalExact;
+
+	public CountedPage(List<T> content, Pageable pageable, CountCache.Count total) {
+		super(content, pageable, total.value());
+		this.totalExact = total.exact();
+	}
+
+	/**
+	 * Create a page for the given content, only asking the counter for the total if it
+	 * cannot be derived from the content and the pageable.
+	 * @param content the content of the page
+	 * @param pageable the requested page, may be {@literal null} for all results
+	 * @param counter supplies the total number of results
+	 * @return the page
+	 */
+	public static <T> CountedPage<T> of(List<T> content, Pageable pageable, Supplier<CountCache.Count> counter) {
+		if (pageable == null || pageable.isUnpaged()) {
+			return new CountedPage<>(content, Pageable.unpaged(), new CountCache.Count(content.size(), true));
+		}
+		boolean lastPage = content.isEmpty() ? pageable.getOffset() == 0 : pageable.getPageSize() > content.size();
+		if (lastPage) {
+			// nothing follows this page, no need to count
+			return new CountedPage<>(content, pageable,
+					new CountCache.Count(pageable.getOffset() + content.size(), true));
+		}
+		return new CountedPage<>(content, pageable, counter.get());
+	}
+
+	/**
+	 * Return whether {@link #getTotalElements()} reflects all changes made so far.
+	 * @return {@literal false} if the total is an estimate
+	 */
+	public boolean isTotalExact() {
+		return this.totalExact;
+	}
+
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Hedges slow repository reads: a read that has not answered within the 95th percentile
+ * of the recent latencies of its method is run a second time, the first answer wins and
+ * the statements of the other run are cancelled. An occasionally slow database or
+ * connection then costs about one read in twenty a second run, rather than its whole
+ * latency.
+ * <p>
+ * Reads are the repository methods annotated with {@link Hedged}. The first run happens
+ * on the calling thread, the hedge on a thread of its own with the web request of the
+ * caller, and each run in its own transaction, so reads within a transaction are never
+ * hedged. The data source decides where each run goes, using {@link #currentAttempt()}
+ * to send the hedge to another database, and hands out its connections through
+ * {@link #cancellable(Connection)}.
+ * <p>
+ * Hedges are held to a share of the reads, so that reads getting slower across the board
+ * do not double the load on the databases. Reads, hedges and which run answered first
+ * are published as {@code petclinic.hedged.reads.*} metrics, tagged with the method.
+ */
+public final class HedgedReads implements MeterBinder, AutoCloseable {
+
+	private static final double PERCENTILE = 0.95;
+
+	// the percentile is taken over this many recent latencies of a method
+	private static final int WINDOW = 1000;
+
+	// and taken again every this many latencies
+	private static final int REFRESH = 50;
+
+	// reads are not hedged before their method has this many latencies
+	private static final int WARMUP_SAMPLES = 20;
+
+	// how many hedges can be saved up while reads are fast
+	private static final double MAX_BUDGET = 10;
+
+	private static final ThreadLocal<Attempt> currentAttempt = new ThreadLocal<>();
+
+	private final long minDelay;
+
+	private final double budgetPerRead;
+
+	private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final ExecutorService hedges;
+
+	private volatile MeterRegistry registry;
+
+	// guarded by this
+	private double budget;
+
+	/**
+	 * Create a new {@link HedgedReads}.
+	 * @param minDelay how long reads run at least before they are hedged, however fast
+	 * their method usually is
+	 * @param budget the share of reads that may be hedged, 0.1 for one in ten
+	 */
+	public HedgedReads(Duration minDelay, double budget) {
+		this.minDelay = minDelay.toNanos();
+		this.budgetPerRead = budget;
+		this.timer = new ScheduledThreadPoolExecutor(1, threads("hedged-read-timer"));
+		// most hedges are called off before they start
+		this.timer.setRemoveOnCancelPolicy(true);
+		this.hedges = Executors.newCachedThreadPool(threads("hedged-read-"));
+	}
+
+	private static ThreadFactory threads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name.endsWith("-") ? name + count.incrementAndGet() : name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Return the run of a hedged read the current thread is doing.
+	 * @return the run, or {@literal null} outside of hedged reads
+	 */
+	public static Attempt currentAttempt() {
+		return currentAttempt.get();
+	}
+
+	/**
+	 * Return whether the current thread runs the hedge of a slow read.
+	 */
+	public static boolean isHedge() {
+		Attempt attempt = currentAttempt.get();
+		return attempt != null && attempt.isHedge();
+	}
+
+	/**
+	 * Make the statements of the given connection cancelled once another run of the
+	 * current hedged read answered.
+	 * @param connection the connection handed out to the current thread
+	 * @return the connection, wrapped within hedged reads
+	 */
+	public static Connection cancellable(Connection connection) {
+		Attempt attempt = currentAttempt.get();
+		if (attempt == null) {
+			return connection;
+		}
+		return (Connection) Proxy.newProxyInstance(HedgedReads.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if (method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					if (method.getName().equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					}
+					Object result;
+					try {
+						result = method.invoke(connection, args);
+					}
+					catch (InvocationTargetException ex) {
+						throw ex.getTargetException();
+					}
+					return (result instanceof Statement statement) ? attempt.register(statement) : result;
+				});
+	}
+
+	/**
+	 * Wrap the given repository so that its {@link Hedged} reads are hedged.
+	 * @param repository the repository to wrap
+	 * @param type the repository interface
+	 * @return a proxy implementing the given repository interface
+	 */
+	public <T> T hedge(T repository, Class<T> type) {
+		for (Method method : type.getMethods()) {
+			if (AnnotatedElementUtils.hasAnnotation(method, Hedged.class)) {
+				stats(name(type, method));
+			}
+		}
+		ProxyFactory factory = new ProxyFactory();
+		factory.setTarget(repository);
+		factory.addInterface(type);
+		factory.addAdvice((MethodInterceptor) invocation -> {
+			Method method = invocation.getMethod();
+			if (!AnnotatedElementUtils.hasAnnotation(method, Hedged.class)) {
+				return invocation.proceed();
+			}
+			Object[] arguments = invocation.getArguments();
+			// both runs call the repository themselves, an invocation can only proceed once
+			return read(name(type, method), () -> {
+				try {
+					return AopUtils.invokeJoinpointUsingReflection(repository, method, arguments);
+				}
+				catch (RuntimeException | Error ex) {
+					throw ex;
+				}
+				catch (Throwable ex) {
+					throw new UndeclaredThrowableException(ex);
+				}
+			});
+		});
+		return type.cast(factory.getProxy(type.getClassLoader()));
+	}
+
+	private static String name(Class<?> type, Method method) {
+		return type.getSimpleName() + "." + method.getName();
+	}
+
+	/**
+	 * Run the given read, and a second time if it is slow.
+	 * @param name the name of the read, whose latencies tell when it is slow
+	 * @param read the read
+	 * @return the result of the run answering first
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T read(String name, Supplier<T> read) {
+		if (currentAttempt.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return read.get();
+		}
+		Stats stats = stats(name);
+		stats.reads.increment();
+		deposit();
+		Read runs = new Read(stats);
+		Attempt first = runs.start(false);
+		long delay = stats.delay;
+		ScheduledFuture<?> hedge = null;
+		if (delay >= 0) {
+			RequestAttributes request = RequestContextHolder.getRequestAttributes();
+			hedge = this.timer.schedule(() -> hedge(runs, read, request), delay, TimeUnit.NANOSECONDS);
+		}
+		run(first, read);
+		if (hedge != null) {
+			hedge.cancel(false);
+		}
+		try {
+			// only waits when the first run failed while the hedge is running
+			return (T) runs.result.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (ex.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw ex;
+		}
+	}
+
+	private void hedge(Read runs, Supplier<?> read, RequestAttributes request) {
+		if (runs.result.isDone() || !withdraw()) {
+			return;
+		}
+		Attempt hedge = runs.start(true);
+		if (hedge == null) {
+			return;
+		}
+		runs.stats.hedges.increment();
+		try {
+			this.hedges.execute(() -> {
+				RequestContextHolder.setRequestAttributes(request);
+				try {
+					run(hedge, read);
+				}
+				finally {
+					RequestContextHolder.resetRequestAttributes();
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			hedge.failed(ex);
+		}
+	}
+
+	private static void run(Attempt attempt, Supplier<?> read) {
+		currentAttempt.set(attempt);
+		long start = System.nanoTime();
+		try {
+			Object result = read.get();
+			attempt.read.stats.record(System.nanoTime() - start);
+			attempt.succeeded(result);
+		}
+		catch (RuntimeException | Error ex) {
+			attempt.failed(ex);
+		}
+		finally {
+			currentAttempt.remove();
+		}
+	}
+
+	private synchronized void deposit() {
+		this.budget = Math.min(MAX_BUDGET, this.budget + this.budgetPerRead);
+	}
+
+	private synchronized boolean withdraw() {
+		if (this.budget < 1) {
+			return false;
+		}
+		this.budget--;
+		return true;
+	}
+
+	private Stats stats(String name) {
+		return this.stats.computeIfAbsent(name, key -> {
+			Stats stats = new Stats(key);
+			MeterRegistry registry = this.registry;
+			if (registry != null) {
+				stats.bindTo(registry);
+			}
+			return stats;
+		});
+	}
+
+	/**
+	 * Return the latency after which reads of the given name are hedged.
+	 * @param name the name of the read
+	 * @return the latency, or {@literal null} while the read has too few latencies
+	 */
+	Duration getDelay(String name) {
+		long delay = stats(name).delay;
+		return (delay >= 0) ? Duration.ofNanos(delay) : null;
+	}
+
+	long getHedges(String name) {
+		return stats(name).hedges.sum();
+	}
+
+	long getWins(String name, boolean hedge) {
+		Stats stats = stats(name);
+		return (hedge ? stats.hedgeWins : stats.firstWins).sum();
+	}
+
+	/**
+	 * Register the reads, hedges, wins by run and hedging delay of every read, tagged
+	 * with its method.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		this.stats.values().forEach(stats -> stats.bindTo(registry));
+	}
+
+	@Override
+	public void close() {
+		this.timer.shutdownNow();
+		this.hedges.shutdownNow();
+	}
+
+	/**
+	 * One run of a hedged read.
+	 */
+	public static final class Attempt {
+
+		private final Read read;
+
+		private final boolean hedge;
+
+		private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+		private volatile boolean cancelled;
+
+		private Attempt(Read read, boolean hedge) {
+			this.read = read;
+			this.hedge = hedge;
+		}
+
+		/**
+		 * Return whether this run is the hedge of a slow first run.
+		 */
+		public boolean isHedge() {
+			return this.hedge;
+		}
+
+		/**
+		 * Claim the given database for this run.
+		 * @param target the data source of the database
+		 * @return {@literal false} if another run of the same read already uses it
+		 */
+		public boolean claim(Object target) {
+			Attempt owner = this.read.targets.putIfAbsent(target, this);
+			return owner == null || owner == this;
+		}
+
+		private Statement register(Statement statement) throws SQLException {
+			this.statements.add(statement);
+			if (this.cancelled) {
+				statement.close();
+				throw new SQLException("Read was answered by another run", "57014");
+			}
+			return statement;
+		}
+
+		private void cancel() {
+			this.cancelled = true;
+			for (Statement statement : this.statements) {
+				try {
+					statement.cancel();
+				}
+				catch (SQLException ex) {
+					// closed or done already
+				}
+			}
+		}
+
+		private void succeeded(Object result) {
+			this.read.succeeded(this, result);
+		}
+
+		private void failed(Throwable ex) {
+			this.read.failed(ex);
+		}
+
+	}
+
+	/**
+	 * The runs of one read and the result of the first one to answer.
+	 */
+	private static final class Read {
+
+		private final Stats stats;
+
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		private final Map<Object, Attempt> targets = new ConcurrentHashMap<>();
+
+		// guarded by this
+		private final List<Attempt> attempts = new ArrayList<>(2);
+
+		// guarded by this
+		private int running;
+
+		// guarded by this
+		private Throwable failure;
+
+		Read(Stats stats) {
+			this.stats = stats;
+		}
+
+		synchronized Attempt start(boolean hedge) {
+			if (this.result.isDone()) {
+				return null;
+			}
+			Attempt attempt = new Attempt(this, hedge);
+			this.attempts.add(attempt);
+			this.running++;
+			return attempt;
+		}
+
+		void succeeded(Attempt attempt, Object result) {
+			List<Attempt> losers;
+			synchronized (this) {
+				this.running--;
+				if (!this.result.complete(result)) {
+					return;
+				}
+				if (this.attempts.size() > 1) {
+					(attempt.isHedge() ? this.stats.hedgeWins : this.stats.firstWins).increment();
+				}
+				losers = this.attempts.stream().filter(other -> other != attempt).toList();
+			}
+			losers.forEach(Attempt::cancel);
+		}
+
+		synchronized void failed(Throwable ex) {
+			this.running--;
+			if (this.failure == null) {
+				this.failure = ex;
+			}
+			if (this.running == 0) {
+				this.result.completeExceptionally(this.failure);
+			}
+		}
+
+	}
+
+	/**
+	 * Latencies and counts of the reads of one method.
+	 */
+	private final class Stats {
+
+		private final String name;
+
+		private final LongAdder reads = new LongAdder();
+
+		private final LongAdder hedges = new LongAdder();
+
+		private final LongAdder firstWins = new LongAdder();
+
+		private final LongAdder hedgeWins = new LongAdder();
+
+		// guarded by this
+		private final long[] latencies = new long[WINDOW];
+
+		// guarded by this
+		private long samples;
+
+		private volatile long delay = -1;
+
+		Stats(String name) {
+			this.name = name;
+		}
+
+		synchronized void record(long latency) {
+			this.latencies[(int) (this.samples % WINDOW)] = latency;
+			this.samples++;
+			if (this.samples == WARMUP_SAMPLES || (this.samples > WARMUP_SAMPLES && this.samples % REFRESH == 0)) {
+				long[] sorted = Arrays.copyOf(this.latencies, (int) Math.min(this.samples, WINDOW));
+				Arrays.sort(sorted);
+				long percentile = sorted[(int) Math.ceil(PERCENTILE * sorted.length) - 1];
+				this.delay = Math.max(HedgedReads.this.minDelay, percentile);
+			}
+		}
+
+		void bindTo(MeterRegistry registry) {
+			FunctionCounter.builder("petclinic.hedged.reads", this.reads, LongAdder::sum)
+				.tag("method", this.name)
+				.description("Number of reads that may be hedged")
+				.register(registry);
+			FunctionCounter.builder("petclinic.hedged.reads.hedges", this.hedges, LongAdder::sum)
+				.tag("method", this.name)
+				.description("Number of reads run a second time because they were slow")
+				.register(registry);
+			FunctionCounter.builder("petclinic.hedged.reads.wins", this.firstWins, LongAdder::sum)
+				.tag("method", this.name)
+				.tag("run", "first")
+				.description("Number of hedged reads answered by their first run")
+				.register(registry);
+			FunctionCounter.builder("petclinic.hedged.reads.wins", this.hedgeWins, LongAdder::sum)
+				.tag("method", this.name)
+				.tag("run", "hedge")
+				.description("Number of hedged reads answered by their hedge")
+				.register(registry);
+			TimeGauge
+				.builder("petclinic.hedged.reads.delay", this, TimeUnit.NANOSECONDS, stats -> Math.max(stats.delay, 0))
+				.tag("method", this.name)
+				.description("Latency after which reads are hedged")
+				.register(registry);
+		}
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a stream of objects as JSON, one object at a time, so that responses of any size
+ * are written in constant memory. Writes block while the client is not reading, which in
+ * turn stops reading from the source stream.
+ */
+public enum JsonStreamFormat {
+
+	/**
+	 * A JSON array, optionally wrapped in an object.
+	 */
+	ARRAY(MediaType.APPLICATION_JSON),
+
+	/**
+	 * Newline delimited JSON, one object per line.
+	 */
+	LINES(MediaType.APPLICATION_NDJSON);
+
+	private final MediaType mediaType;
+
+	JsonStreamFormat(MediaType mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	public MediaType getMediaType() {
+		return this.mediaType;
+	}
+
+	/**
+	 * Return the format accepted by the client of the given request.
+	 * @throws HttpMediaTypeNotAcceptableException if the client accepts neither format
+	 */
+	public static JsonStreamFormat negotiate(ContentNegotiationManager contentNegotiationManager,
+			NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+		for (MediaType acceptable : contentNegotiationManager.resolveMediaTypes(request)) {
+			for (JsonStreamFormat format : values()) {
+				if (acceptable.isCompatibleWith(format.mediaType)) {
+					return format;
+				}
+			}
+		}
+		throw new HttpMediaTypeNotAcceptableException(List.of(ARRAY.mediaType, LINES.mediaType));
+	}
+
+	/**
+	 * Write the given objects to the given output stream.
+	 * @param objects the objects to write
+	 * @param objectMapper the mapper to serialize each object with
+	 * @param out the output stream, left open
+	 * @param field the name of the field holding the array in a wrapping object, or
+	 * {@literal null} for a bare array. Ignored for {@link #LINES}.
+	 * @return the number of objects written
+	 * @throws UncheckedIOException if writing fails
+	 */
+	public long write(Stream<?> objects, ObjectMapper objectMapper, OutputStream out, String field) {
+		// flushing after every object would turn each one into a network write
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		long count = 0;
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			if (this == ARRAY) {
+				if (field != null) {
+					generator.writeStartObject();
+					generator.writeFieldName(field);
+				}
+				generator.writeStartArray();
+			}
+			for (Iterator<?> iterator = objects.iterator(); iterator.hasNext();) {
+				writer.writeValue(generator, iterator.next());
+				if (this == LINES) {
+					generator.writeRaw('\n');
+				}
+				count++;
+			}
+			if (this == ARRAY) {
+				generator.writeEndArray();
+				if (field != null) {
+					generator.writeEndObject();
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return count;
+	}
+
+}
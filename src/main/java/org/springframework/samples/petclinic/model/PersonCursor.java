@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.util.Assert;
+
+/**
+ * Position in a listing of {@link Person}s ordered by last name and id. Used for keyset
+ * (seek) pagination: the next page starts right after the person the cursor points to, so
+ * deep pages cost the same as the first one.
+ * <p>
+ * Cursors travel through the web tier as opaque, URL-safe tokens.
+ *
+ * @param lastName the last name of the last person on the previous page
+ * @param id the id of the last person on the previous page
+ */
+public record PersonCursor(String lastName, int id) {
+
+	/**
+	 * Cursor positioned before the first person.
+	 */
+	public static final PersonCursor FIRST = new PersonCursor("", 0);
+
+	private static final char SEPARATOR = ':';
+
+	public PersonCursor {
+		Assert.notNull(lastName, "Last name must not be null!");
+	}
+
+	/**
+	 * Create a cursor positioned right after the given person.
+	 * @param person the last person of the current page, must not be {@literal null}.
+	 * @return the cursor for the next page
+	 */
+	public static PersonCursor after(Person person) {
+		return new PersonCursor(person.getLastName(), person.getId());
+	}
+
+	/**
+	 * Decode a token previously created by {@link #encode()}.
+	 * @param token the token, may be {@literal null} or empty for the first page.
+	 * @return the decoded cursor
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	public static PersonCursor decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return FIRST;
+		}
+		String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		int separator = value.indexOf(SEPARATOR);
+		if (separator < 0) {
+			throw new IllegalArgumentException("Invalid cursor: " + token);
+		}
+		try {
+			return new PersonCursor(value.substring(separator + 1), Integer.parseInt(value.substring(0, separator)));
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+		}
+	}
+
+	/**
+	 * Encode this cursor as an opaque, URL-safe token.
+	 * @return the token
+	 */
+	public String encode() {
+		String value = this.id + String.valueOf(SEPARATOR) + this.lastName;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
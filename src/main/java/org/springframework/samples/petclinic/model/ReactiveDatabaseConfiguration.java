@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+
+/**
+ * Configuration of an R2DBC {@link DatabaseClient} on the same database as JPA, for the
+ * repositories of the reactive read API.
+ * <p>
+ * Its connection pool holds up to {@code petclinic.reactive-api.pool-size} connections
+ * and is not a bean of its own on purpose: Spring Boot would otherwise run the schema and
+ * data scripts through R2DBC rather than JDBC, and offer JPA a second transaction
+ * manager.
+ */
+@Configuration(proxyBeanMethods = false)
+class ReactiveDatabaseConfiguration implements DisposableBean {
+
+	private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+	private ConnectionPool connectionPool;
+
+	@Bean
+	DatabaseClient reactiveDatabaseClient(DataSourceProperties properties,
+			@Value("${petclinic.reactive-api.pool-size:10}") int poolSize) {
+		this.connectionPool = new ConnectionPool(
+				ConnectionPoolConfiguration.builder(connectionFactory(properties)).maxSize(poolSize).build());
+		return DatabaseClient.create(this.connectionPool);
+	}
+
+	/**
+	 * Create an R2DBC connection factory for the database of the given JDBC properties.
+	 * H2 is opened with the JDBC url as is, so that both drivers share in-memory
+	 * databases; other databases use the same url with the {@code r2dbc} scheme.
+	 */
+	static ConnectionFactory connectionFactory(DataSourceProperties properties) {
+		String url = properties.determineUrl();
+		ConnectionFactoryOptions.Builder options;
+		if (url.startsWith(H2_URL_PREFIX)) {
+			options = ConnectionFactoryOptions.builder()
+				.option(ConnectionFactoryOptions.DRIVER, "h2")
+				.option(Option.valueOf("url"), url.substring(H2_URL_PREFIX.length()));
+		}
+		else {
+			options = ConnectionFactoryOptions.parse("r2dbc:" + url.substring("jdbc:".length())).mutate();
+		}
+		String username = properties.determineUsername();
+		if (username != null) {
+			options.option(ConnectionFactoryOptions.USER, username);
+		}
+		String password = properties.determinePassword();
+		if (password != null) {
+			options.option(ConnectionFactoryOptions.PASSWORD, password);
+		}
+		return ConnectionFactories.get(options.build());
+	}
+
+	@Override
+	public void destroy() {
+		if (this.connectionPool != null) {
+			this.connectionPool.dispose();
+		}
+	}
+
+}
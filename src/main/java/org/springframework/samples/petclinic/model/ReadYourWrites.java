@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Tells read-only transactions when they must read from the primary database rather than
+ * from a replica that may lag behind it.
+ * <p>
+ * A user who saved something keeps reading from the primary for a while, so that the
+ * page they are redirected to shows their change: writes are recorded in the HTTP
+ * session, and reads of that session go to the primary until the replicas had the time
+ * to catch up. Code filling a cache that is evicted on writes reads from the primary
+ * through {@link #onPrimary(Supplier)}, so that a lagging replica cannot bring back the
+ * state before the write.
+ */
+public final class ReadYourWrites {
+
+	private static final String ATTRIBUTE = ReadYourWrites.class.getName() + ".PRIMARY_UNTIL";
+
+	private static final ThreadLocal<Boolean> onPrimary = new ThreadLocal<>();
+
+	private ReadYourWrites() {
+	}
+
+	/**
+	 * Record that the user of the current web request wrote to the database. Does
+	 * nothing outside of a web request.
+	 * @param window how long after the write the user keeps reading from the primary
+	 */
+	public static void recordWrite(Duration window) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(ATTRIBUTE, System.currentTimeMillis() + window.toMillis(),
+					RequestAttributes.SCOPE_SESSION);
+		}
+	}
+
+	/**
+	 * Return whether reads of the current thread must go to the primary database.
+	 * @return {@literal true} within {@link #onPrimary(Supplier)}, or if the user of the
+	 * current web request wrote recently, see {@link #recordWrite(Duration)}
+	 */
+	public static boolean isPrimaryRequired() {
+		if (onPrimary.get() != null) {
+			return true;
+		}
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return attributes != null
+				&& attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_SESSION) instanceof Long primaryUntil
+				&& System.currentTimeMillis() < primaryUntil;
+	}
+
+	/**
+	 * Run the given action reading from the primary database.
+	 * @param action the action to run
+	 * @return the result of the action
+	 */
+	public static <T> T onPrimary(Supplier<T> action) {
+		if (onPrimary.get() != null) {
+			return action.get();
+		}
+		onPrimary.set(Boolean.TRUE);
+		try {
+			return action.get();
+		}
+		finally {
+			onPrimary.remove();
+		}
+	}
+
+}
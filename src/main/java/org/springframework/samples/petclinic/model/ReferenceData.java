@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Holds reference data, such as pet types or specialties, in memory so that forms and
+ * formatters can look entries up by id or name without a query.
+ * <p>
+ * Entries are kept in an immutable snapshot, hash-indexed by id and name. The snapshot is
+ * loaded when the application is ready, or on first use if that happens earlier, and
+ * replaced as a whole by {@link #refresh()}, so readers see either the old or the new
+ * entries but never a mix. Entries are detached entities shared by all readers and must
+ * not be modified.
+ *
+ * @param <T> the type of the entries
+ */
+public class ReferenceData<T extends NamedEntity> {
+
+	private static final Log logger = LogFactory.getLog(ReferenceData.class);
+
+	private final String name;
+
+	private final Supplier<List<T>> loader;
+
+	// not a monitor: the first load queries the database, and a virtual thread blocking
+	// inside synchronized would pin its carrier thread
+	private final Lock loadLock = new ReentrantLock();
+
+	private volatile Snapshot<T> snapshot;
+
+	/**
+	 * Create a new {@link ReferenceData}.
+	 * @param name the name of the reference data, for logging and monitoring
+	 * @param loader loads all entries, in the order {@link #findAll()} should return them
+	 */
+	public ReferenceData(String name, Supplier<List<T>> loader) {
+		this.name = name;
+		this.loader = loader;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return all entries, in the order they were loaded.
+	 * @return an immutable list of entries
+	 */
+	public List<T> findAll() {
+		return snapshot().all();
+	}
+
+	/**
+	 * Return the entry with the given id.
+	 * @return the entry or {@literal null} if none found
+	 */
+	public T findById(Integer id) {
+		return snapshot().byId().get(id);
+	}
+
+	/**
+	 * Return the entry with the given name.
+	 * @return the entry or {@literal null} if none found
+	 */
+	public T findByName(String name) {
+		return snapshot().byName().get(name);
+	}
+
+	/**
+	 * Load all entries and replace the current snapshot with them.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		Snapshot<T> snapshot = Snapshot.of(this.loader.get());
+		this.snapshot = snapshot;
+		logger.info("Loaded " + snapshot.all().size() + " " + this.name);
+	}
+
+	private Snapshot<T> snapshot() {
+		Snapshot<T> snapshot = this.snapshot;
+		if (snapshot == null) {
+			this.loadLock.lock();
+			try {
+				if (this.snapshot == null) {
+					refresh();
+				}
+				snapshot = this.snapshot;
+			}
+			finally {
+				this.loadLock.unlock();
+			}
+		}
+		return snapshot;
+	}
+
+	private record Snapshot<T extends NamedEntity>(List<T> all, Map<Integer, T> byId, Map<String, T> byName) {
+
+		static <T extends NamedEntity> Snapshot<T> of(List<T> entries) {
+			Map<Integer, T> byId = new HashMap<>();
+			Map<String, T> byName = new HashMap<>();
+			for (T entry : entries) {
+				byId.put(entry.getId(), entry);
+				byName.put(entry.getName(), entry);
+			}
+			return new Snapshot<>(List.copyOf(entries), Map.copyOf(byId), Map.copyOf(byName));
+		}
+
+	}
+
+}
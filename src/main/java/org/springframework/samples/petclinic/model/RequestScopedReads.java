@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Memoizes repository reads for the duration of a web request, so that an aggregate
+ * looked up by several {@code @ModelAttribute} methods, controllers or formatters of the
+ * same request is only loaded once.
+ * <p>
+ * Reads are the methods annotated with {@code @Transactional(readOnly = true)}; their
+ * results are kept in a request attribute, keyed by method and arguments, and discarded
+ * with the request. Calling any other method, such as a save, discards the results
+ * memoized so far. Outside of a web request every call goes straight to the repository.
+ */
+public final class RequestScopedReads {
+
+	private static final String ATTRIBUTE = RequestScopedReads.class.getName() + ".MEMO";
+
+	private RequestScopedReads() {
+	}
+
+	/**
+	 * Wrap the given repository so that its reads are memoized per request.
+	 * @param repository the repository to wrap
+	 * @param type the repository interface
+	 * @return a proxy implementing the given repository interface
+	 */
+	public static <T> T memoize(T repository, Class<T> type) {
+		ProxyFactory factory = new ProxyFactory();
+		factory.setTarget(repository);
+		factory.addInterface(type);
+		factory.addAdvice(new MemoizingInterceptor());
+		return type.cast(factory.getProxy(type.getClassLoader()));
+	}
+
+	private static final class MemoizingInterceptor implements MethodInterceptor {
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+			if (attributes == null) {
+				return invocation.proceed();
+			}
+			Method method = invocation.getMethod();
+			Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+			if (transactional == null || !transactional.readOnly()) {
+				attributes.removeAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+				return invocation.proceed();
+			}
+			Map<Key, Object> memo = memo(attributes);
+			Key key = new Key(method, Arrays.asList(invocation.getArguments()));
+			if (memo.containsKey(key)) {
+				return memo.get(key);
+			}
+			Object result = invocation.proceed();
+			memo.put(key, result);
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Map<Key, Object> memo(RequestAttributes attributes) {
+			Map<Key, Object> memo = (Map<Key, Object>) attributes.getAttribute(ATTRIBUTE,
+					RequestAttributes.SCOPE_REQUEST);
+			if (memo == null) {
+				memo = Collections.synchronizedMap(new HashMap<>());
+				attributes.setAttribute(ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+			}
+			return memo;
+		}
+
+	}
+
+	private record Key(Method method, List<Object> arguments) {
+
+	}
+
+}
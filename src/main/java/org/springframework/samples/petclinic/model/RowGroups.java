@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns a stream of rows ordered by an aggregate key, such as the rows of a query joining
+ * owners with their pets and visits, into a lazy stream of aggregates. Only the aggregate
+ * being built and the next row are held in memory, so the rows can come straight from a
+ * database cursor.
+ */
+public final class RowGroups {
+
+	private RowGroups() {
+	}
+
+	/**
+	 * Group consecutive rows with the same key.
+	 * @param rows the rows, ordered by key, closed when the returned stream is closed
+	 * @param key extracts the aggregate key of a row
+	 * @param create creates the aggregate from its first row
+	 * @param add adds any row, including the first one, to its aggregate
+	 * @return the aggregates, in row order
+	 */
+	public static <R, A> Stream<A> group(Stream<R> rows, Function<R, ?> key, Function<R, A> create,
+			BiConsumer<A, R> add) {
+		Iterator<R> iterator = rows.iterator();
+		Iterator<A> groups = new Iterator<>() {
+
+			private R next = iterator.hasNext() ? iterator.next() : null;
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public A next() {
+				if (this.next == null) {
+					throw new NoSuchElementException();
+				}
+				R first = this.next;
+				Object groupKey = key.apply(first);
+				A aggregate = create.apply(first);
+				R row = first;
+				do {
+					add.accept(aggregate, row);
+					row = iterator.hasNext() ? iterator.next() : null;
+				}
+				while (row != null && Objects.equals(groupKey, key.apply(row)));
+				this.next = row;
+				return aggregate;
+			}
+
+		};
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(groups, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(rows::close);
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: while a load is in flight, callers asking
+ * for the same key wait for it and get its result, or its exception, instead of loading
+ * again. Nothing is kept once the load completed, the next caller loads again.
+ * <p>
+ * A caller that finds no load in flight registers its own with a single
+ * {@link ConcurrentMap#putIfAbsent} and removes it when done, so uncontended loads only
+ * touch their own slot of the map. The loader runs on the thread of the first caller.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+	private final LongAdder loads = new LongAdder();
+
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Return the value for the given key, loading it unless a load of the same key is
+	 * already in flight.
+	 * @param key the key to load
+	 * @param loader loads the value, on the thread of the caller
+	 * @return the loaded value, which callers of the same load share
+	 */
+	public V load(K key, Supplier<V> loader) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = this.flights.putIfAbsent(key, flight);
+		if (inFlight != null) {
+			this.coalesced.increment();
+			return join(inFlight);
+		}
+		this.loads.increment();
+		try {
+			V value = loader.get();
+			flight.complete(value);
+			return value;
+		}
+		catch (RuntimeException | Error ex) {
+			flight.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.flights.remove(key, flight);
+		}
+	}
+
+	/**
+	 * Let callers asking for the given key from now on start a new load rather than
+	 * waiting for the one in flight, for example because the value changed while it was
+	 * loading. Callers already waiting still get its result.
+	 * @param key the key whose load is outdated
+	 */
+	public void forget(K key) {
+		this.flights.remove(key);
+	}
+
+	/**
+	 * Let all callers from now on start new loads, see {@link #forget(Object)}.
+	 */
+	public void forgetAll() {
+		this.flights.clear();
+	}
+
+	/**
+	 * Return the number of loads that ran.
+	 */
+	public long getLoads() {
+		return this.loads.sum();
+	}
+
+	/**
+	 * Return the number of callers that got the result of a load already in flight.
+	 */
+	public long getCoalesced() {
+		return this.coalesced.sum();
+	}
+
+	private static <V> V join(CompletableFuture<V> flight) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return flight.get();
+				}
+				catch (InterruptedException ex) {
+					// the load runs on another thread and completes anyway
+					interrupted = true;
+				}
+				catch (ExecutionException ex) {
+					if (ex.getCause() instanceof RuntimeException runtimeException) {
+						throw runtimeException;
+					}
+					throw (Error) ex.getCause();
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
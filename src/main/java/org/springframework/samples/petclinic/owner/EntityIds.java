@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Hands out entity ids for rows inserted with SQL rather than through JPA.
+ * <p>
+ * The ids come from the block of ids Hibernate allocated from the sequence of the entity,
+ * usually without a round-trip, so that rows inserted either way never get the same id.
+ */
+final class EntityIds {
+
+	private EntityIds() {
+	}
+
+	/**
+	 * Return the next id for the given entity type. Must be called within a transaction.
+	 * @param entityManager the entity manager of the current transaction
+	 * @param entityType the entity type
+	 * @return the id
+	 */
+	static int next(EntityManager entityManager, Class<?> entityType) {
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(entityType);
+		BeforeExecutionGenerator generator = (BeforeExecutionGenerator) persister.getGenerator();
+		return (Integer) generator.generate(session, null, null, EventType.INSERT);
+	}
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+/**
+ * The formats {@link OwnerExporter} writes rows in. Each row is written as soon as it is
+ * read, without building an object for it.
+ */
+enum ExportFormat {
+
+	/**
+	 * Comma separated values with a header row, in the format {@link OwnerImporter}
+	 * reads. Dates and times are ISO-8601, {@literal null} values are empty.
+	 */
+	CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)) {
+
+		@Override
+		RowWriter writer(OutputStream out, List<OwnerExporter.Column> columns) throws IOException {
+			CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+			columns.forEach(column -> schema.addColumn(column.name()));
+			JsonGenerator generator = CSV_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+			generator.setSchema(schema.build());
+			return new JsonRowWriter(generator, columns, false);
+		}
+
+	},
+
+	/**
+	 * Newline delimited JSON, one object per row. Dates and times are ISO-8601 strings,
+	 * {@literal null} values are left out.
+	 */
+	NDJSON("ndjson", MediaType.APPLICATION_NDJSON) {
+
+		@Override
+		RowWriter writer(OutputStream out, List<OwnerExporter.Column> columns) throws IOException {
+			JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+			generator.setRootValueSeparator(null);
+			return new JsonRowWriter(generator, columns, true);
+		}
+
+	},
+
+	/**
+	 * A compact binary encoding, about two thirds the size of CSV before compression:
+	 * <ul>
+	 * <li>the bytes {@code PCX1}</li>
+	 * <li>the number of columns, then for each column its name and its type, one of
+	 * {@code 'I'} (integer), {@code 'S'} (string), {@code 'D'} (date) or {@code 'T'}
+	 * (time)</li>
+	 * <li>each row as a {@code 1} byte, a bit mask of the columns that are
+	 * {@literal null} (lowest bit first), then the values of the other columns</li>
+	 * <li>a {@code 0} byte</li>
+	 * </ul>
+	 * Counts, lengths and masks are unsigned variable length integers, 7 bits per byte
+	 * with the high bit set on all bytes but the last. Integers are zig-zag encoded the
+	 * same way, dates as days since 1970-01-01 and times as seconds of the day. Names and
+	 * strings are their length in bytes followed by their UTF-8 bytes.
+	 */
+	BINARY("bin", MediaType.APPLICATION_OCTET_STREAM) {
+
+		@Override
+		RowWriter writer(OutputStream out, List<OwnerExporter.Column> columns) throws IOException {
+			return new BinaryRowWriter(out, columns);
+		}
+
+	};
+
+	private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final String extension;
+
+	private final MediaType mediaType;
+
+	ExportFormat(String extension, MediaType mediaType) {
+		this.extension = extension;
+		this.mediaType = mediaType;
+	}
+
+	/**
+	 * Return the file name extension of this format, without dot.
+	 */
+	String getExtension() {
+		return this.extension;
+	}
+
+	MediaType getMediaType() {
+		return this.mediaType;
+	}
+
+	/**
+	 * Return the format with the given name or file name extension, ignoring case.
+	 * @return the format or {@literal null} if there is none
+	 */
+	static ExportFormat of(String name) {
+		for (ExportFormat format : values()) {
+			if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Start writing rows with the given columns to the given output stream.
+	 * @param out the output stream, left open
+	 * @param columns the columns of each row
+	 */
+	abstract RowWriter writer(OutputStream out, List<OwnerExporter.Column> columns) throws IOException;
+
+	@Override
+	public String toString() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Writes rows, buffering them until {@link #finish()}.
+	 */
+	interface RowWriter {
+
+		/**
+		 * Write one row.
+		 * @param values the values of the columns, of their types or {@literal null}
+		 */
+		void write(Object[] values) throws IOException;
+
+		/**
+		 * Write the end of the rows, if the format has one, and flush the written rows.
+		 */
+		void finish() throws IOException;
+
+	}
+
+	private static final class JsonRowWriter implements RowWriter {
+
+		private final JsonGenerator generator;
+
+		private final String[] names;
+
+		private final boolean objects;
+
+		JsonRowWriter(JsonGenerator generator, List<OwnerExporter.Column> columns, boolean objects) {
+			this.generator = generator;
+			this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			this.names = columns.stream().map(OwnerExporter.Column::name).toArray(String[]::new);
+			this.objects = objects;
+		}
+
+		@Override
+		public void write(Object[] values) throws IOException {
+			if (this.objects) {
+				this.generator.writeStartObject();
+			}
+			else {
+				this.generator.writeStartArray();
+			}
+			for (int i = 0; i < values.length; i++) {
+				Object value = values[i];
+				if (this.objects) {
+					if (value == null) {
+						continue;
+					}
+					this.generator.writeFieldName(this.names[i]);
+				}
+				if (value == null) {
+					// the CSV generator drops nulls in rows, shifting the following
+					// values
+					this.generator.writeString("");
+				}
+				else if (value instanceof Integer number) {
+					this.generator.writeNumber(number);
+				}
+				else {
+					this.generator.writeString(value.toString());
+				}
+			}
+			if (this.objects) {
+				this.generator.writeEndObject();
+				this.generator.writeRaw('\n');
+			}
+			else {
+				this.generator.writeEndArray();
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			this.generator.close();
+		}
+
+	}
+
+	private static final class BinaryRowWriter implements RowWriter {
+
+		private final OutputStream out;
+
+		BinaryRowWriter(OutputStream out, List<OwnerExporter.Column> columns) throws IOException {
+			this.out = out;
+			out.write(new byte[] { 'P', 'C', 'X', '1' });
+			writeVarint(columns.size());
+			for (OwnerExporter.Column column : columns) {
+				writeString(column.name());
+				out.write(typeCode(column.type()));
+			}
+		}
+
+		@Override
+		public void write(Object[] values) throws IOException {
+			long nulls = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null) {
+					nulls |= 1L << i;
+				}
+			}
+			this.out.write(1);
+			writeVarint(nulls);
+			for (Object value : values) {
+				if (value instanceof Integer number) {
+					writeVarint(((number << 1) ^ (number >> 31)) & 0xFFFFFFFFL);
+				}
+				else if (value instanceof String string) {
+					writeString(string);
+				}
+				else if (value instanceof LocalDate date) {
+					long day = date.toEpochDay();
+					writeVarint((day << 1) ^ (day >> 63));
+				}
+				else if (value instanceof LocalTime time) {
+					writeVarint(time.toSecondOfDay());
+				}
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			this.out.write(0);
+			this.out.flush();
+		}
+
+		private void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			this.out.write(bytes);
+		}
+
+		private void writeVarint(long value) throws IOException {
+			while ((value & ~0x7FL) != 0) {
+				this.out.write((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.out.write((int) value);
+		}
+
+		private static int typeCode(Class<?> type) {
+			if (type == Integer.class) {
+				return 'I';
+			}
+			if (type == String.class) {
+				return 'S';
+			}
+			if (type == LocalDate.class) {
+				return 'D';
+			}
+			if (type == LocalTime.class) {
+				return 'T';
+			}
+			throw new IllegalArgumentException("Unsupported column type " + type.getName());
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.util.Assert;
+
+/**
+ * Maps the ids of imported rows, as found in the imported files, to the ids the rows were
+ * inserted with.
+ * <p>
+ * Keys and ids are kept in two primitive arrays with open addressing, at most 16 bytes
+ * per entry, so that the ids of millions of owners and pets fit in little memory. Ids
+ * must not be {@literal 0}, which marks empty slots. Not safe for concurrent use.
+ *
+ * @see OwnerImporter
+ */
+final class IdMap {
+
+	private int[] keys = new int[16];
+
+	private int[] ids = new int[16];
+
+	private int size;
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the id mapped to the given key.
+	 * @return the id, or {@literal 0} if the key is not mapped
+	 */
+	int get(int key) {
+		int mask = this.keys.length - 1;
+		for (int slot = slot(key, mask); this.ids[slot] != 0; slot = (slot + 1) & mask) {
+			if (this.keys[slot] == key) {
+				return this.ids[slot];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Map the given key to the given id, replacing the previous id.
+	 * @return the previous id, or {@literal 0} if the key was not mapped
+	 */
+	int put(int key, int id) {
+		return put(key, id, true);
+	}
+
+	/**
+	 * Map the given key to the given id, unless it is mapped already.
+	 * @return the current id, or {@literal 0} if the key was not mapped
+	 */
+	int putIfAbsent(int key, int id) {
+		return put(key, id, false);
+	}
+
+	private int put(int key, int id, boolean replace) {
+		Assert.isTrue(id != 0, "Id must not be 0");
+		int mask = this.keys.length - 1;
+		int slot = slot(key, mask);
+		while (this.ids[slot] != 0) {
+			if (this.keys[slot] == key) {
+				int previous = this.ids[slot];
+				if (replace) {
+					this.ids[slot] = id;
+				}
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.keys[slot] = key;
+		this.ids[slot] = id;
+		// keep at least half of the slots empty so that probe sequences stay short
+		if (++this.size > this.keys.length / 2) {
+			resize();
+		}
+		return 0;
+	}
+
+	private void resize() {
+		int[] keys = this.keys;
+		int[] ids = this.ids;
+		this.keys = new int[keys.length * 2];
+		this.ids = new int[ids.length * 2];
+		int mask = this.keys.length - 1;
+		for (int i = 0; i < keys.length; i++) {
+			if (ids[i] != 0) {
+				int slot = slot(keys[i], mask);
+				while (this.ids[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				this.keys[slot] = keys[i];
+				this.ids[slot] = ids[i];
+			}
+		}
+	}
+
+	private static int slot(int key, int mask) {
+		// ids are often consecutive, spread them over the table
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+}
@@ -16,12 +16,17 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.core.style.ToStringCreator;
+import org.springframework.data.domain.DomainEvents;
 import org.springframework.samples.petclinic.model.Person;
 import org.springframework.util.Assert;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -44,6 +49,8 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "owners")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owners")
 public class Owner extends Person {
 
 	@Column(name = "address")
@@ -62,6 +69,7 @@ public class Owner extends Person {
 	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
 	@JoinColumn(name = "owner_id")
 	@OrderBy("name")
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owner-pets")
 	private List<Pet> pets = new ArrayList<>();
 
 	public String getAddress() {
@@ -142,6 +150,16 @@ public class Owner extends Person {
 		return null;
 	}
 
+	/**
+	 * Domain events published when this owner is saved through the
+	 * {@link OwnerRepository}.
+	 * @return the events to publish
+	 */
+	@DomainEvents
+	Collection<Object> domainEvents() {
+		return List.of(new OwnerSavedEvent(this));
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringCreator(this).append("id", this.getId())
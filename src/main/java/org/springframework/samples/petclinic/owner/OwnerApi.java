@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes of the reactive owner API, served next to the owner pages by the reactive API
+ * server.
+ */
+@Configuration(proxyBeanMethods = false)
+class OwnerApi {
+
+	@Bean
+	RouterFunction<ServerResponse> ownerApiRoutes(ReactiveOwnerRepository owners) {
+		return route(GET("/api/owners/{ownerId:\\d+}"),
+				request -> owners.findById(Integer.parseInt(request.pathVariable("ownerId")))
+					.flatMap(owner -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(owner))
+					.switchIfEmpty(ServerResponse.notFound().build()));
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.samples.petclinic.model.Hedged;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository fragment serving <code>Owner</code>s by id from a bounded cache of immutable
+ * snapshots of the owner with its pets and visits.
+ * <p>
+ * Entries are evicted when the owner is saved through {@link OwnerRepository#save(Owner)}
+ * or one of its pets gets a visit through {@link VisitService}, and again once that
+ * transaction completes. Hit, miss and eviction counts are published as the
+ * {@code cache.*} metrics of the {@code owners} cache.
+ */
+public interface OwnerCacheRepository {
+
+	/**
+	 * Retrieve an {@link Owner} from the data store by id.
+	 * <p>
+	 * Outside of a read-write transaction the owner is a new, detached copy built from
+	 * the cache, so the database is only queried on a miss. Within a read-write
+	 * transaction the managed owner is returned, preserving entity identity for changes
+	 * made in that transaction. A slow miss may be hedged, see {@link Hedged}.
+	 * @param id the id to search for
+	 * @return the {@link Owner} if found
+	 */
+	@Hedged
+	@Transactional(readOnly = true)
+	Owner findById(Integer id);
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.HedgedReads;
+import org.springframework.samples.petclinic.model.ReadYourWrites;
+import org.springframework.samples.petclinic.model.SingleFlight;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link OwnerCacheRepository} backed by a Caffeine cache of {@link OwnerSnapshot}s.
+ * <p>
+ * A load that overlaps with an eviction is not cached, so that a snapshot read before a
+ * save committed cannot outlive that save. Concurrent misses on the same owner share one
+ * load, and each caller gets its own copy of the snapshot. The hedge of a slow miss, see
+ * {@link HedgedReads}, loads the owner on its own and does not cache it.
+ */
+@Component
+class OwnerCacheRepositoryImpl implements OwnerCacheRepository {
+
+	private static final long MAXIMUM_SIZE = 10_000;
+
+	private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+	private final EntityManager entityManager;
+
+	private final Cache<Integer, OwnerSnapshot> snapshots;
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final SingleFlight<Integer, OwnerSnapshot> loads = new SingleFlight<>();
+
+	OwnerCacheRepositoryImpl(EntityManager entityManager, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.entityManager = entityManager;
+		this.snapshots = Caffeine.newBuilder()
+			.maximumSize(MAXIMUM_SIZE)
+			.expireAfterWrite(TIME_TO_LIVE)
+			.recordStats()
+			.build();
+		meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, this.snapshots, "owners"));
+	}
+
+	@Override
+	public Owner findById(Integer id) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return load(id);
+		}
+		OwnerSnapshot snapshot = this.snapshots.getIfPresent(id);
+		if (snapshot == null) {
+			snapshot = HedgedReads.isHedge() ? loadUncached(id) : this.loads.load(id, () -> loadSnapshot(id));
+		}
+		return (snapshot != null) ? snapshot.toOwner() : null;
+	}
+
+	private OwnerSnapshot loadSnapshot(Integer id) {
+		long evictions = this.evictions.get();
+		Owner owner = load(id);
+		if (owner == null) {
+			return null;
+		}
+		OwnerSnapshot snapshot = OwnerSnapshot.of(owner);
+		this.snapshots.put(id, snapshot);
+		if (this.evictions.get() != evictions) {
+			// an owner was saved while loading, the snapshot may be stale
+			this.snapshots.invalidate(id);
+		}
+		return snapshot;
+	}
+
+	private OwnerSnapshot loadUncached(Integer id) {
+		// a hedge must not wait for the slow load it races, and may read from a replica
+		// that does not have the latest save yet, so its snapshot is not cached
+		Owner owner = this.entityManager.find(Owner.class, id);
+		return (owner != null) ? OwnerSnapshot.of(owner) : null;
+	}
+
+	private Owner load(Integer id) {
+		// served from the second-level cache, together with pets, pet types and visits,
+		// when they were loaded before, and otherwise from the primary database, since a
+		// replica may not have the change that evicted the owner yet
+		return ReadYourWrites.onPrimary(() -> this.entityManager.find(Owner.class, id));
+	}
+
+	@EventListener
+	public void onOwnerSaved(OwnerSavedEvent event) {
+		Integer id = event.owner().getId();
+		if (id != null) {
+			evictNowAndOnCompletion(id);
+		}
+	}
+
+	@EventListener
+	public void onVisitAdded(VisitAddedEvent event) {
+		evictNowAndOnCompletion(event.ownerId());
+		// the visit was inserted with native SQL, which only clears the second-level
+		// cache once the transaction completes
+		this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getCache()
+			.evictCollectionData(Pet.class.getName() + ".visits", event.petId());
+	}
+
+	private void evictNowAndOnCompletion(Integer id) {
+		evict(id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					// readers may have cached the old state before the change committed
+					evict(id);
+				}
+
+			});
+		}
+	}
+
+	private void evict(Integer id) {
+		this.evictions.incrementAndGet();
+		this.snapshots.invalidate(id);
+		// later readers must not wait for a load that may have missed the change
+		this.loads.forget(id);
+	}
+
+}
@@ -15,15 +15,26 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.model.CountedPage;
+import org.springframework.samples.petclinic.model.JsonStreamFormat;
+import org.springframework.samples.petclinic.model.PersonCursor;
+import org.springframework.samples.petclinic.model.RequestScopedReads;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
@@ -31,7 +42,13 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.validation.Valid;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
@@ -47,10 +64,23 @@ class OwnerController {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
+	private static final int PAGE_SIZE = 5;
+
+	private static final int MAX_LAST_NAME_SUGGESTIONS = 10;
+
+	private static final int MAX_SEARCH_RESULTS = 20;
+
 	private final OwnerRepository owners;
 
-	public OwnerController(OwnerRepository clinicService) {
-		this.owners = clinicService;
+	private final ContentNegotiationManager contentNegotiationManager;
+
+	private final ObjectMapper objectMapper;
+
+	public OwnerController(OwnerRepository clinicService, ContentNegotiationManager contentNegotiationManager,
+			ObjectMapper objectMapper) {
+		this.owners = RequestScopedReads.memoize(clinicService, OwnerRepository.class);
+		this.contentNegotiationManager = contentNegotiationManager;
+		this.objectMapper = objectMapper;
 	}
 
 	@InitBinder
@@ -88,13 +118,24 @@ class OwnerController {
 	}
 
 	@GetMapping("/owners")
-	public String processFindForm(@RequestParam(defaultValue = "1") int page, Owner owner, BindingResult result,
-			Model model) {
+	public String processFindForm(@RequestParam(defaultValue = "1") int page,
+			@RequestParam(required = false) String cursor, Owner owner, BindingResult result, Model model) {
 		// allow parameterless GET request for /owners to return all records
 		if (owner.getLastName() == null) {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
 
+		if (cursor != null) {
+			// continue after the cursor instead of counting and skipping rows
+			Slice<Owner> ownersResults = this.owners.findByLastNameAfter(owner.getLastName(),
+					decodeCursor(cursor), PAGE_SIZE);
+			if (ownersResults.isEmpty()) {
+				result.rejectValue("lastName", "notFound", "not found");
+				return "owners/findOwners";
+			}
+			return addKeysetPaginationModel(model, ownersResults);
+		}
+
 		// find owners by last name
 		Page<Owner> ownersResults = findPaginatedForOwnersLastName(page, owner.getLastName());
 		if (ownersResults.isEmpty()) {
@@ -118,16 +159,88 @@ class OwnerController {
 		model.addAttribute("currentPage", page);
 		model.addAttribute("totalPages", paginated.getTotalPages());
 		model.addAttribute("totalItems", paginated.getTotalElements());
+		model.addAttribute("totalExact", !(paginated instanceof CountedPage<?> counted) || counted.isTotalExact());
 		model.addAttribute("listOwners", listOwners);
+		model.addAttribute("nextCursor", nextCursor(paginated));
 		return "owners/ownersList";
 	}
 
+	private String addKeysetPaginationModel(Model model, Slice<Owner> paginated) {
+		model.addAttribute("listOwners", paginated.getContent());
+		model.addAttribute("nextCursor", nextCursor(paginated));
+		return "owners/ownersList";
+	}
+
+	private String nextCursor(Slice<Owner> paginated) {
+		if (!paginated.hasNext()) {
+			return null;
+		}
+		List<Owner> content = paginated.getContent();
+		return PersonCursor.after(content.get(content.size() - 1)).encode();
+	}
+
+	/**
+	 * Decode the cursor of a keyset paginated request, answering a tampered or truncated
+	 * one with a 400 rather than a server error.
+	 */
+	private static PersonCursor decodeCursor(String cursor) {
+		try {
+			return PersonCursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", ex);
+		}
+	}
+
 	private Page<Owner> findPaginatedForOwnersLastName(int page, String lastname) {
-		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
+		Pageable pageable = PageRequest.of(page - 1, PAGE_SIZE);
 		return owners.findByLastName(lastname, pageable);
 	}
 
+	/**
+	 * Suggest last names while the user types into the find owners form.
+	 * @param prefix the beginning of the last name
+	 * @return up to ten matching last names
+	 */
+	@GetMapping(path = "/owners/lastNames", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public List<String> findLastNames(@RequestParam(defaultValue = "") String prefix) {
+		return this.owners.findLastNamesStartingWith(prefix, MAX_LAST_NAME_SUGGESTIONS);
+	}
+
+	/**
+	 * Export all owners with their pets and visits, as a JSON array or as newline
+	 * delimited JSON, streamed from a database cursor one owner at a time.
+	 */
+	@GetMapping(path = "/owners/bulk",
+			produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamOwners(NativeWebRequest request)
+			throws HttpMediaTypeNotAcceptableException {
+		JsonStreamFormat format = JsonStreamFormat.negotiate(this.contentNegotiationManager, request);
+		StreamingResponseBody body = out -> {
+			try {
+				this.owners.streamAll(owners -> format.write(owners, this.objectMapper, out, null));
+			}
+			catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+		};
+		return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+	}
+
+	/**
+	 * Full-text search over owners, their pets and visits.
+	 * @param query the words to search for
+	 * @return the most relevant owners, best match first
+	 */
+	@GetMapping("/owners/search")
+	public String searchOwners(@RequestParam(name = "q", defaultValue = "") String query, Model model) {
+		model.addAttribute("query", query);
+		model.addAttribute("listOwners", this.owners.search(query, MAX_SEARCH_RESULTS));
+		model.addAttribute("searchIndexBuilding", !this.owners.isSearchIndexBuilt());
+		return "owners/ownersList";
+	}
+
 	@GetMapping("/owners/{ownerId}/edit")
 	public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
 		Owner owner = this.owners.findById(ownerId);
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.Duration;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.CountCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Caching implementation of {@link OwnerCountRepository}. Cached counts are invalidated
+ * once a saved {@link Owner} has been committed, and after bulk imports.
+ */
+@Component
+class OwnerCountRepositoryImpl implements OwnerCountRepository {
+
+	private static final long EXACT_COUNT_THRESHOLD = 1000;
+
+	private final CountCache<String> counts = new CountCache<>(EXACT_COUNT_THRESHOLD, 1000, Duration.ofMinutes(5));
+
+	private final EntityManager entityManager;
+
+	OwnerCountRepositoryImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public CountCache.Count countByLastName(String lastName) {
+		return this.counts.count(lastName, this::count);
+	}
+
+	private long count(String lastName) {
+		return this.entityManager
+			.createQuery("SELECT count(owner) FROM Owner owner WHERE owner.lastName LIKE :lastName", Long.class)
+			.setParameter("lastName", lastName + "%")
+			.getSingleResult();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onOwnerSaved(OwnerSavedEvent event) {
+		this.counts.invalidate();
+	}
+
+	@EventListener
+	public void onOwnersImported(OwnersImportedEvent event) {
+		this.counts.invalidate();
+	}
+
+}
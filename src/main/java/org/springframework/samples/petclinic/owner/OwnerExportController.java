@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Arrays;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Bulk export of the owners, pets and visits tables.
+ *
+ * @see OwnerExporter
+ * @see OwnerExportRunner
+ */
+@Controller
+class OwnerExportController {
+
+	private final OwnerExporter exporter;
+
+	private final ContentNegotiationManager contentNegotiationManager;
+
+	OwnerExportController(OwnerExporter exporter, ContentNegotiationManager contentNegotiationManager) {
+		this.exporter = exporter;
+		this.contentNegotiationManager = contentNegotiationManager;
+	}
+
+	/**
+	 * Export all rows of the {@code owners}, {@code pets} or {@code visits} table as CSV,
+	 * newline delimited JSON or the compact binary format of {@link ExportFormat#BINARY},
+	 * whichever the client accepts first. The rows are compressed with gzip if the client
+	 * accepts that encoding.
+	 */
+	@GetMapping("/export/{table}")
+	public ResponseEntity<StreamingResponseBody> export(@PathVariable("table") String name,
+			@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+		OwnerExporter.Table table = OwnerExporter.Table.of(name);
+		if (table == null) {
+			return ResponseEntity.notFound().build();
+		}
+		ExportFormat format = negotiate(request);
+		boolean gzip = acceptsGzip(acceptEncoding);
+		StreamingResponseBody body = out -> this.exporter.export(table, format, gzip, out);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+			.contentType(format.getMediaType())
+			.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+			.header(HttpHeaders.CONTENT_DISPOSITION,
+					ContentDisposition.attachment().filename(table.fileName(format, false)).build().toString());
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(body);
+	}
+
+	private ExportFormat negotiate(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+		for (MediaType acceptable : this.contentNegotiationManager.resolveMediaTypes(request)) {
+			for (ExportFormat format : ExportFormat.values()) {
+				if (acceptable.isCompatibleWith(format.getMediaType())) {
+					return format;
+				}
+			}
+		}
+		throw new HttpMediaTypeNotAcceptableException(
+				Arrays.stream(ExportFormat.values()).map(ExportFormat::getMediaType).toList());
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (!StringUtils.hasText(acceptEncoding)) {
+			return false;
+		}
+		for (String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+			String[] parts = coding.trim().split(";\\s*q=");
+			if (parts[0].trim().equalsIgnoreCase("gzip")) {
+				return parts.length == 1 || !parts[1].trim().matches("0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+}
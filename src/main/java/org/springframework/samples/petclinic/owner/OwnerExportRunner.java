@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bulk export of the owners, pets and visits tables to files on the command line. Starts
+ * the application against the database, writes one file per table into the directory
+ * given as {@code --export-dir} and exits, for example:
+ *
+ * <pre class="code">
+ * java -jar spring-petclinic.jar --spring.profiles.active=postgres --server.port=0 \
+ *     --export-dir=/var/exports/petclinic --export-format=ndjson --export-gzip
+ * </pre>
+ *
+ * The format is {@code csv} (the default), {@code ndjson} or {@code bin}, see
+ * {@link ExportFormat}. The number of rows and rows per second of each table are logged.
+ * Without {@code --export-dir}, the application starts as usual.
+ *
+ * @see OwnerExporter
+ */
+@Component
+class OwnerExportRunner implements ApplicationRunner {
+
+	private final OwnerExporter exporter;
+
+	private final ApplicationContext context;
+
+	OwnerExportRunner(OwnerExporter exporter, ApplicationContext context) {
+		this.exporter = exporter;
+		this.context = context;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		String directory = option(args, "export-dir");
+		if (directory == null) {
+			return;
+		}
+		String formatName = option(args, "export-format");
+		ExportFormat format = formatName != null ? ExportFormat.of(formatName) : ExportFormat.CSV;
+		if (format == null) {
+			throw new IllegalArgumentException("Unknown export format " + formatName);
+		}
+		boolean gzip = args.containsOption("export-gzip");
+		export(Path.of(directory), format, gzip);
+		System.exit(SpringApplication.exit(this.context));
+	}
+
+	void export(Path directory, ExportFormat format, boolean gzip) throws IOException {
+		Files.createDirectories(directory);
+		for (OwnerExporter.Table table : OwnerExporter.Table.values()) {
+			try (OutputStream out = Files.newOutputStream(directory.resolve(table.fileName(format, gzip)))) {
+				this.exporter.export(table, format, gzip, out);
+			}
+		}
+	}
+
+	private static String option(ApplicationArguments args, String name) {
+		List<String> values = args.getOptionValues(name);
+		return (values == null || values.isEmpty()) ? null : values.get(0);
+	}
+
+}
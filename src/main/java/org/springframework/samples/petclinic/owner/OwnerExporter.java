@@ -0,0 +1,224 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports the owners, pets and visits tables row by row, such as for loading them into a
+ * data warehouse every night.
+ * <p>
+ * Each table is read with one query through a forward-only, read-only JDBC cursor
+ * fetching {@value #FETCH_SIZE} rows at a time, inside a read-only transaction (which
+ * PostgreSQL needs to keep the cursor open between fetches). Rows are written as they are
+ * read, so memory use does not depend on the size of the tables, and a slow reader of the
+ * output stops the cursor rather than buffering rows.
+ * <p>
+ * Columns are named like the columns {@link OwnerImporter} reads, so an export can be
+ * imported into another database. Pets refer to their type by name.
+ *
+ * @see ExportFormat
+ */
+@Component
+class OwnerExporter {
+
+	static final int FETCH_SIZE = 1000;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Log logger = LogFactory.getLog(OwnerExporter.class);
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	OwnerExporter(DataSource dataSource, PlatformTransactionManager transactionManager) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * Write all rows of the given table to the given output stream.
+	 * @param table the table to export
+	 * @param format the format to write the rows in
+	 * @param gzip whether to compress the rows with gzip
+	 * @param out the output stream, flushed and left open
+	 * @return the number of exported rows and how long it took
+	 * @throws IOException if writing fails
+	 */
+	Result export(Table table, ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+		long start = System.nanoTime();
+		GZIPOutputStream compressed = gzip ? new FastGzipOutputStream(out) : null;
+		// row writers write single bytes and small arrays, which gzip would compress one
+		// by one
+		BufferedOutputStream buffer = new BufferedOutputStream(gzip ? compressed : out, BUFFER_SIZE);
+		Object[] values = new Object[table.columns.size()];
+		ExportFormat.RowWriter writer = format.writer(buffer, table.columns);
+		long rows;
+		try {
+			rows = this.transactionTemplate.execute(status -> {
+				long[] count = new long[1];
+				this.jdbcTemplate.query(table.query, resultSet -> {
+					for (int i = 0; i < values.length; i++) {
+						values[i] = resultSet.getObject(i + 1, table.columns.get(i).type());
+					}
+					try {
+						writer.write(values);
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+					count[0]++;
+				});
+				return count[0];
+			});
+		}
+		catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		writer.finish();
+		buffer.flush();
+		if (compressed != null) {
+			compressed.finish();
+			out.flush();
+		}
+		Result result = new Result(table, rows, Duration.ofNanos(System.nanoTime() - start));
+		if (logger.isInfoEnabled()) {
+			logger.info("Exported " + result.rows() + " " + table + " as " + format + " in "
+					+ result.elapsed().toMillis() + " ms (" + Math.round(result.rowsPerSecond()) + " rows/s)");
+		}
+		return result;
+	}
+
+	/**
+	 * Gzip compression trading some size for speed, so that compressing does not slow
+	 * down the export much more than writing uncompressed rows to a network or disk.
+	 */
+	private static final class FastGzipOutputStream extends GZIPOutputStream {
+
+		FastGzipOutputStream(OutputStream out) throws IOException {
+			super(out, BUFFER_SIZE);
+			this.def.setLevel(Deflater.BEST_SPEED);
+		}
+
+	}
+
+	/**
+	 * A column of an exported table.
+	 *
+	 * @param name the name of the column, as read by {@link OwnerImporter}
+	 * @param type the type of the values, {@code Integer}, {@code String},
+	 * {@code LocalDate} or {@code LocalTime}
+	 */
+	record Column(String name, Class<?> type) {
+
+	}
+
+	/**
+	 * The tables that can be exported.
+	 */
+	enum Table {
+
+		OWNERS("SELECT id, first_name, last_name, address, city, telephone FROM owners ORDER BY id",
+				new Column("id", Integer.class), new Column("firstName", String.class),
+				new Column("lastName", String.class), new Column("address", String.class),
+				new Column("city", String.class), new Column("telephone", String.class)),
+
+		PETS("SELECT pets.id, pets.owner_id, pets.name, pets.birth_date, types.name FROM pets "
+				+ "JOIN types ON types.id = pets.type_id ORDER BY pets.id", new Column("id", Integer.class),
+				new Column("ownerId", Integer.class), new Column("name", String.class),
+				new Column("birthDate", LocalDate.class), new Column("type", String.class)),
+
+		VISITS("SELECT id, pet_id, visit_date, description, vet_id, start_time, end_time FROM visits ORDER BY id",
+				new Column("id", Integer.class), new Column("petId", Integer.class),
+				new Column("date", LocalDate.class), new Column("description", String.class),
+				new Column("vetId", Integer.class), new Column("startTime", LocalTime.class),
+				new Column("endTime", LocalTime.class));
+
+		private final String query;
+
+		private final List<Column> columns;
+
+		Table(String query, Column... columns) {
+			this.query = query;
+			this.columns = List.of(columns);
+		}
+
+		/**
+		 * Return the table with the given name, ignoring case.
+		 * @return the table or {@literal null} if there is none
+		 */
+		static Table of(String name) {
+			for (Table table : values()) {
+				if (table.name().equalsIgnoreCase(name)) {
+					return table;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Return the name of the file the table is exported to in the given format.
+		 */
+		String fileName(ExportFormat format, boolean gzip) {
+			return this + "." + format.getExtension() + (gzip ? ".gz" : "");
+		}
+
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+	}
+
+	/**
+	 * The outcome of exporting a table.
+	 *
+	 * @param table the exported table
+	 * @param rows the number of exported rows
+	 * @param elapsed how long reading and writing the rows took
+	 */
+	record Result(Table table, long rows, Duration elapsed) {
+
+		double rowsPerSecond() {
+			long nanos = this.elapsed.toNanos();
+			return nanos == 0 ? 0 : this.rows * 1e9 / nanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bulk import of owners, pets and visits from uploaded CSV files.
+ *
+ * @see OwnerImporter
+ * @see OwnerImportRunner
+ */
+@Controller
+class OwnerImportController {
+
+	private final OwnerImporter importer;
+
+	private final ObjectMapper objectMapper;
+
+	OwnerImportController(OwnerImporter importer, ObjectMapper objectMapper) {
+		this.importer = importer;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Import the CSV files uploaded as the {@code owners}, {@code pets} and
+	 * {@code visits} parts of a multipart request. The uploads are spooled to disk by the
+	 * server and read from there as streams.
+	 * <p>
+	 * Responds with newline delimited JSON while the import runs: the progress of each
+	 * file every {@value OwnerImporter#CHUNK_SIZE} rows and at its end, each rejected
+	 * row, and finally the totals, or the error that stopped the import.
+	 */
+	@PostMapping(path = "/owners/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> importOwners(
+			@RequestPart(name = "owners", required = false) MultipartFile owners,
+			@RequestPart(name = "pets", required = false) MultipartFile pets,
+			@RequestPart(name = "visits", required = false) MultipartFile visits) {
+		if (owners == null && pets == null && visits == null) {
+			return ResponseEntity.badRequest().build();
+		}
+		StreamingResponseBody body = out -> {
+			OwnerImporter.Listener listener = new OwnerImporter.Listener() {
+
+				@Override
+				public void progress(OwnerImporter.Progress progress) {
+					writeLine(out, progress);
+				}
+
+				@Override
+				public void rejected(OwnerImporter.Rejection rejection) {
+					writeLine(out, rejection);
+				}
+
+			};
+			try {
+				writeLine(out, this.importer.importCsv(owners, pets, visits, listener));
+			}
+			catch (UncheckedIOException ex) {
+				// the client went away
+				throw ex.getCause();
+			}
+			catch (IOException | DataAccessException ex) {
+				writeLine(out, Map.of("error", ex.getMessage()));
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+
+	private void writeLine(OutputStream out, Object value) {
+		try {
+			out.write(this.objectMapper.writeValueAsBytes(value));
+			out.write('\n');
+			// report progress as it happens
+			out.flush();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+}
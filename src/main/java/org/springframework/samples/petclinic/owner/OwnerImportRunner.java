@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bulk import of owners, pets and visits from CSV files on the command line. Starts the
+ * application against the target database, imports the files given as
+ * {@code --import-owners}, {@code --import-pets} and {@code --import-visits} and exits,
+ * for example:
+ *
+ * <pre class="code">
+ * java -jar spring-petclinic.jar --spring.profiles.active=postgres --server.port=0 \
+ *     --import-owners=owners.csv --import-pets=pets.csv --import-visits=visits.csv
+ * </pre>
+ *
+ * Progress and rejected rows are logged. The exit status is {@code 0} if all rows were
+ * imported and {@code 1} otherwise. Without these arguments, the application starts as
+ * usual.
+ *
+ * @see OwnerImporter
+ */
+@Component
+class OwnerImportRunner implements ApplicationRunner {
+
+	private static final Log logger = LogFactory.getLog(OwnerImportRunner.class);
+
+	private final OwnerImporter importer;
+
+	private final ApplicationContext context;
+
+	OwnerImportRunner(OwnerImporter importer, ApplicationContext context) {
+		this.importer = importer;
+		this.context = context;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		FileSystemResource owners = file(args, "import-owners");
+		FileSystemResource pets = file(args, "import-pets");
+		FileSystemResource visits = file(args, "import-visits");
+		if (owners == null && pets == null && visits == null) {
+			return;
+		}
+		OwnerImporter.Result result = this.importer.importCsv(owners, pets, visits, new OwnerImporter.Listener() {
+
+			@Override
+			public void progress(OwnerImporter.Progress progress) {
+				logger.info("Imported " + progress.imported() + " of " + progress.rows() + " " + progress.file()
+						+ ", rejected " + progress.rejected());
+			}
+
+			@Override
+			public void rejected(OwnerImporter.Rejection rejection) {
+				logger.warn("Rejected row " + rejection.row() + " of " + rejection.file() + ": " + rejection.reason());
+			}
+
+		});
+		logger.info("Imported " + result.imported() + " rows, rejected " + result.rejected());
+		int status = SpringApplication.exit(this.context, () -> result.rejected() == 0 ? 0 : 1);
+		System.exit(status);
+	}
+
+	private static FileSystemResource file(ApplicationArguments args, String option) {
+		List<String> values = args.getOptionValues(option);
+		return (values == null || values.isEmpty()) ? null : new FileSystemResource(values.get(0));
+	}
+
+}
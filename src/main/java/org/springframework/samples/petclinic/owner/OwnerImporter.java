@@ -0,0 +1,472 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.DataBinder;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Imports owners, their pets and their visits from CSV files, such as those of another
+ * clinic moving onto this one.
+ * <p>
+ * Each file starts with a header row naming its columns:
+ * <ul>
+ * <li>owners: {@code id}, {@code firstName}, {@code lastName}, {@code address},
+ * {@code city}, {@code telephone}</li>
+ * <li>pets: {@code id}, {@code ownerId}, {@code name}, {@code birthDate},
+ * {@code type}</li>
+ * <li>visits: {@code petId}, {@code date}, {@code description}</li>
+ * </ul>
+ * The {@code id}, {@code ownerId} and {@code petId} columns hold the ids used by the
+ * files, imported rows get new ids. Pets can only belong to owners, and visits to pets,
+ * imported together with them. Pet types are looked up by name among the known ones.
+ * <p>
+ * Rows are bound and validated like the owner, pet and visit forms. Invalid rows are
+ * reported and skipped. The files are read as streams and valid rows are inserted in JDBC
+ * batches of {@value #CHUNK_SIZE} rows, each committed on its own, so memory use does not
+ * depend on the size of the files: only the mapping of owner and pet ids grows with them.
+ * An error writing a batch, or a file that is not valid CSV, stops the import, keeping
+ * the batches committed so far.
+ *
+ * @see OwnersImportedEvent
+ */
+@Component
+class OwnerImporter {
+
+	static final int CHUNK_SIZE = 1000;
+
+	private static final ObjectReader CSV_READER = new CsvMapper().readerForMapOf(String.class)
+		.with(CsvSchema.emptySchema().withHeader());
+
+	// marks ids of accepted rows that are not inserted yet
+	private static final int PENDING = -1;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Validator validator;
+
+	private final ConversionService conversionService;
+
+	private final MessageSource messageSource;
+
+	private final ApplicationEventPublisher events;
+
+	OwnerImporter(JdbcTemplate jdbcTemplate, EntityManager entityManager, PlatformTransactionManager transactionManager,
+			jakarta.validation.Validator validator, PetTypeFormatter petTypeFormatter, MessageSource messageSource,
+			ApplicationEventPublisher events) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.validator = new SpringValidatorAdapter(validator);
+		DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+		conversionService.addFormatter(petTypeFormatter);
+		this.conversionService = conversionService;
+		this.messageSource = messageSource;
+		this.events = events;
+	}
+
+	/**
+	 * Import the given files, owners first, then pets, then visits.
+	 * @param owners the owners file, may be {@literal null}
+	 * @param pets the pets file, may be {@literal null}
+	 * @param visits the visits file, may be {@literal null}
+	 * @param listener notified of the progress of each file and of rejected rows
+	 * @return the number of imported and rejected rows of all files
+	 * @throws IOException if a file cannot be read or is not valid CSV
+	 */
+	Result importCsv(InputStreamSource owners, InputStreamSource pets, InputStreamSource visits, Listener listener)
+			throws IOException {
+		IdMap ownerIds = new IdMap();
+		IdMap petIds = new IdMap();
+		Table<Owner> ownerTable = owners(ownerIds);
+		Result result = new Result(0, 0);
+		try {
+			if (owners != null) {
+				result = result.add(importFile(owners, ownerTable, listener));
+			}
+			if (pets != null) {
+				result = result.add(importFile(pets, pets(ownerIds, petIds), listener));
+			}
+			if (visits != null) {
+				result = result.add(importFile(visits, visits(petIds), listener));
+			}
+		}
+		finally {
+			if (ownerTable.inserted > 0) {
+				this.events.publishEvent(new OwnersImportedEvent(ownerTable.inserted));
+			}
+		}
+		return result;
+	}
+
+	private <T extends BaseEntity> Progress importFile(InputStreamSource source, Table<T> table, Listener listener)
+			throws IOException {
+		List<Row<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+		long rows = 0;
+		long rejected = 0;
+		try (MappingIterator<Map<String, String>> iterator = CSV_READER.readValues(source.getInputStream())) {
+			while (iterator.hasNextValue()) {
+				Map<String, String> values = iterator.nextValue();
+				rows++;
+				T entity = table.create();
+				BindingResult errors = bind(table, entity, values);
+				int parentId = errors.hasErrors() ? 0 : table.resolve(values, errors);
+				if (errors.hasErrors()) {
+					rejected++;
+					listener.rejected(new Rejection(table.file, rows, describe(errors)));
+				}
+				else {
+					chunk.add(new Row<>(entity, values, parentId));
+				}
+				if (rows % CHUNK_SIZE == 0) {
+					write(table, chunk);
+					listener.progress(new Progress(table.file, rows, table.inserted, rejected));
+				}
+			}
+		}
+		write(table, chunk);
+		Progress progress = new Progress(table.file, rows, table.inserted, rejected);
+		listener.progress(progress);
+		return progress;
+	}
+
+	/**
+	 * Bind and validate the given row like the form of the entity.
+	 */
+	private <T extends BaseEntity> BindingResult bind(Table<T> table, T entity, Map<String, String> values) {
+		DataBinder binder = new DataBinder(entity, table.objectName);
+		binder.setAllowedFields(table.fields);
+		binder.setConversionService(this.conversionService);
+		binder.addValidators(this.validator);
+		binder.addValidators(table.validators());
+		binder.bind(new MutablePropertyValues(values));
+		binder.validate();
+		return binder.getBindingResult();
+	}
+
+	private <T extends BaseEntity> void write(Table<T> table, List<Row<T>> chunk) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		this.transactionTemplate.executeWithoutResult(status -> {
+			List<Object[]> parameters = new ArrayList<>(chunk.size());
+			for (Row<T> row : chunk) {
+				row.entity().setId(EntityIds.next(this.entityManager, table.type));
+				parameters.add(table.parameters(row.entity(), row.parentId()));
+			}
+			this.jdbcTemplate.batchUpdate(table.insert, parameters);
+		});
+		for (Row<T> row : chunk) {
+			table.inserted(row.values(), row.entity().getId());
+		}
+		table.inserted += chunk.size();
+		chunk.clear();
+	}
+
+	private String describe(BindingResult errors) {
+		// a value that cannot be converted also fails validation, only report why once
+		Map<String, String> reasons = new LinkedHashMap<>();
+		for (ObjectError error : errors.getAllErrors()) {
+			String key = (error instanceof FieldError fieldError) ? fieldError.getField() : error.getCode();
+			reasons.putIfAbsent(key, describe(error));
+		}
+		return String.join(", ", reasons.values());
+	}
+
+	private String describe(ObjectError error) {
+		if (error instanceof FieldError fieldError) {
+			String defaultMessage = fieldError.isBindingFailure() ? "invalid value " + fieldError.getRejectedValue()
+					: fieldError.getDefaultMessage();
+			return fieldError.getField() + ": "
+					+ this.messageSource.getMessage(
+							new DefaultMessageSourceResolvable(error.getCodes(), error.getArguments(), defaultMessage),
+							Locale.ENGLISH);
+		}
+		return error.getDefaultMessage();
+	}
+
+	private static Table<Owner> owners(IdMap ownerIds) {
+		return new Table<>("owners", "owner", Owner.class,
+				"INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?, ?)",
+				"firstName", "lastName", "address", "city", "telephone") {
+
+			@Override
+			Owner create() {
+				return new Owner();
+			}
+
+			@Override
+			int resolve(Map<String, String> values, Errors errors) {
+				claimId(values, ownerIds, errors);
+				return 0;
+			}
+
+			@Override
+			Object[] parameters(Owner owner, int parentId) {
+				return new Object[] { owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+						owner.getCity(), owner.getTelephone() };
+			}
+
+			@Override
+			void inserted(Map<String, String> values, int id) {
+				mapId(values, ownerIds, id);
+			}
+
+		};
+	}
+
+	private static Table<Pet> pets(IdMap ownerIds, IdMap petIds) {
+		return new Table<>("pets", "pet", Pet.class,
+				"INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)", "name",
+				"birthDate", "type") {
+
+			@Override
+			Pet create() {
+				return new Pet();
+			}
+
+			@Override
+			Validator[] validators() {
+				return new Validator[] { new PetValidator() };
+			}
+
+			@Override
+			int resolve(Map<String, String> values, Errors errors) {
+				int ownerId = findId(values, "ownerId", "owner", ownerIds, errors);
+				claimId(values, petIds, errors);
+				return ownerId;
+			}
+
+			@Override
+			Object[] parameters(Pet pet, int ownerId) {
+				return new Object[] { pet.getId(), pet.getName(), pet.getBirthDate(), pet.getType().getId(), ownerId };
+			}
+
+			@Override
+			void inserted(Map<String, String> values, int id) {
+				mapId(values, petIds, id);
+			}
+
+		};
+	}
+
+	private static Table<Visit> visits(IdMap petIds) {
+		return new Table<>("visits", "visit", Visit.class,
+				"INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, ?, ?, ?)", "date", "description") {
+
+			@Override
+			Visit create() {
+				return new Visit();
+			}
+
+			@Override
+			int resolve(Map<String, String> values, Errors errors) {
+				return findId(values, "petId", "pet", petIds, errors);
+			}
+
+			@Override
+			Object[] parameters(Visit visit, int petId) {
+				return new Object[] { visit.getId(), petId, visit.getDate(), visit.getDescription() };
+			}
+
+		};
+	}
+
+	private static Integer parseId(Map<String, String> values, String column, Errors errors) {
+		String value = values.get(column);
+		if (!StringUtils.hasText(value)) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value.trim());
+		}
+		catch (NumberFormatException ex) {
+			errors.reject("invalidId", column + ": invalid id " + value);
+			return null;
+		}
+	}
+
+	/**
+	 * Reserve the id of the given row, unless an earlier row has the same id. Rows
+	 * without id are imported but cannot be referred to.
+	 */
+	private static void claimId(Map<String, String> values, IdMap ids, Errors errors) {
+		Integer key = parseId(values, "id", errors);
+		if (!errors.hasErrors() && key != null && ids.putIfAbsent(key, PENDING) != 0) {
+			errors.reject("duplicateId", "id: duplicate id " + key);
+		}
+	}
+
+	private static void mapId(Map<String, String> values, IdMap ids, int id) {
+		String key = values.get("id");
+		if (StringUtils.hasText(key)) {
+			ids.put(Integer.parseInt(key.trim()), id);
+		}
+	}
+
+	/**
+	 * Return the new id of the row the given column refers to, which must have been
+	 * imported before.
+	 */
+	private static int findId(Map<String, String> values, String column, String kind, IdMap ids, Errors errors) {
+		Integer key = parseId(values, column, errors);
+		int id = key != null ? ids.get(key) : 0;
+		if (id <= 0 && !errors.hasErrors()) {
+			errors.reject("unknownId", column + ": no imported " + kind + " with id " + values.get(column));
+		}
+		return id;
+	}
+
+	/**
+	 * Called with the progress of a running import.
+	 */
+	interface Listener {
+
+		/**
+		 * Called after every {@value OwnerImporter#CHUNK_SIZE} rows of a file and at the
+		 * end of each file.
+		 */
+		void progress(Progress progress);
+
+		/**
+		 * Called for every row that is not imported.
+		 */
+		void rejected(Rejection rejection);
+
+	}
+
+	/**
+	 * Progress of the import of one file.
+	 *
+	 * @param file the file, {@code owners}, {@code pets} or {@code visits}
+	 * @param rows the number of rows read so far, not counting the header
+	 * @param imported the number of rows committed so far
+	 * @param rejected the number of invalid rows so far
+	 */
+	record Progress(String file, long rows, long imported, long rejected) {
+
+	}
+
+	/**
+	 * A row that was not imported.
+	 *
+	 * @param file the file, {@code owners}, {@code pets} or {@code visits}
+	 * @param row the number of the row, not counting the header
+	 * @param reason why the row was rejected
+	 */
+	record Rejection(String file, long row, String reason) {
+
+	}
+
+	/**
+	 * The outcome of an import.
+	 *
+	 * @param imported the number of imported rows of all files
+	 * @param rejected the number of rejected rows of all files
+	 */
+	record Result(long imported, long rejected) {
+
+		Result add(Progress progress) {
+			return new Result(this.imported + progress.imported(), this.rejected + progress.rejected());
+		}
+
+	}
+
+	private record Row<T>(T entity, Map<String, String> values, int parentId) {
+
+	}
+
+	/**
+	 * How the rows of one file are bound, checked and inserted.
+	 */
+	private abstract static class Table<T extends BaseEntity> {
+
+		final String file;
+
+		final String objectName;
+
+		final Class<T> type;
+
+		final String insert;
+
+		final String[] fields;
+
+		long inserted;
+
+		Table(String file, String objectName, Class<T> type, String insert, String... fields) {
+			this.file = file;
+			this.objectName = objectName;
+			this.type = type;
+			this.insert = insert;
+			this.fields = fields;
+		}
+
+		abstract T create();
+
+		Validator[] validators() {
+			return new Validator[0];
+		}
+
+		/**
+		 * Check the ids of a valid row.
+		 * @return the new id of the row the given row belongs to, or {@literal 0}
+		 */
+		abstract int resolve(Map<String, String> values, Errors errors);
+
+		abstract Object[] parameters(T entity, int parentId);
+
+		void inserted(Map<String, String> values, int id) {
+		}
+
+	}
+
+}
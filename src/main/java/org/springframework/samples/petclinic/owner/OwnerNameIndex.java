@@ -0,0 +1,368 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, memory-compact index of owner last names, answering prefix lookups without
+ * touching the database.
+ * <p>
+ * Entries are sorted by last name and id, in blocks of parallel arrays of
+ * interned last names and primitive owner ids. Prefix lookups are binary searches over
+ * the blocks and then within them. The last name of each owner is also kept in pages
+ * indexed by owner id, so that a change finds the entry it replaces directly. Changes
+ * create a new index that shares all but the changed block and page with this one, so
+ * that readers never need to lock and a save copies a few thousand references, not the
+ * whole index.
+ *
+ * @see OwnerNameIndexRepository
+ */
+final class OwnerNameIndex {
+
+	// the same order as the binary collation of owners.last_name in every schema
+	private static final Comparator<String> NAME_ORDER = Comparator.naturalOrder();
+
+	// entries per block when building, blocks growing to twice that size are split
+	private static final int BLOCK_SIZE = 512;
+
+	private static final int PAGE_BITS = 10;
+
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private final String[][] names;
+
+	private final int[][] ids;
+
+	// position of the first entry of each block, followed by the number of entries
+	private final int[] starts;
+
+	// last names by owner id, ids are allocated from a sequence so pages are dense
+	private final String[][] namesById;
+
+	private OwnerNameIndex(String[][] names, int[][] ids, String[][] namesById) {
+		this.names = names;
+		this.ids = ids;
+		this.namesById = namesById;
+		this.starts = new int[names.length + 1];
+		for (int i = 0; i < names.length; i++) {
+			this.starts[i + 1] = this.starts[i] + names[i].length;
+		}
+	}
+
+	/**
+	 * Build an index from the given owner ids and last names.
+	 * @param ids the owner ids, not negative
+	 * @param names the last names, at the same positions as their owner ids
+	 * @return the index
+	 */
+	static OwnerNameIndex of(int[] ids, String[] names) {
+		Integer[] order = new Integer[ids.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (i, j) -> compare(names[i], ids[i], names[j], ids[j]));
+		int blocks = (ids.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		String[][] blockNames = new String[blocks][];
+		int[][] blockIds = new int[blocks][];
+		String[][] namesById = new String[0][];
+		for (int block = 0; block < blocks; block++) {
+			int from = block * BLOCK_SIZE;
+			int size = Math.min(BLOCK_SIZE, ids.length - from);
+			blockNames[block] = new String[size];
+			blockIds[block] = new int[size];
+			for (int i = 0; i < size; i++) {
+				int entry = order[from + i];
+				String name = names[entry].intern();
+				int id = ids[entry];
+				blockNames[block][i] = name;
+				blockIds[block][i] = id;
+				int page = id >>> PAGE_BITS;
+				if (page >= namesById.length) {
+					namesById = Arrays.copyOf(namesById, Math.max(page + 1, namesById.length * 2));
+				}
+				if (namesById[page] == null) {
+					namesById[page] = new String[PAGE_SIZE];
+				}
+				namesById[page][id & (PAGE_SIZE - 1)] = name;
+			}
+		}
+		return new OwnerNameIndex(blockNames, blockIds, namesById);
+	}
+
+	int size() {
+		return this.starts[this.names.length];
+	}
+
+	/**
+	 * Count the owners whose last name starts with the given prefix.
+	 */
+	int count(String prefix) {
+		return upperBound(prefix) - lowerBound(prefix);
+	}
+
+	/**
+	 * Return the ids of the owners whose last name starts with the given prefix, ordered
+	 * by last name and id.
+	 * @param prefix the last name prefix
+	 * @param offset the number of matching owners to skip
+	 * @param limit the maximum number of ids to return
+	 */
+	List<Integer> ids(String prefix, long offset, int limit) {
+		int from = (int) Math.min(lowerBound(prefix) + offset, Integer.MAX_VALUE);
+		int to = (int) Math.min(upperBound(prefix), (long) from + limit);
+		List<Integer> result = new ArrayList<>(Math.max(to - from, 0));
+		if (from < to) {
+			int block = blockOf(from);
+			int i = from - this.starts[block];
+			for (int position = from; position < to; position++, i++) {
+				if (i == this.ids[block].length) {
+					block++;
+					i = 0;
+				}
+				result.add(this.ids[block][i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the distinct last names starting with the given prefix, in alphabetical
+	 * order.
+	 * @param prefix the last name prefix
+	 * @param limit the maximum number of names to return
+	 */
+	List<String> names(String prefix, int limit) {
+		List<String> result = new ArrayList<>(Math.min(limit, 16));
+		int from = lowerBound(prefix);
+		int to = upperBound(prefix);
+		if (from < to) {
+			int block = blockOf(from);
+			int i = from - this.starts[block];
+			for (int position = from; position < to && result.size() < limit; position++, i++) {
+				if (i == this.names[block].length) {
+					block++;
+					i = 0;
+				}
+				String name = this.names[block][i];
+				if (result.isEmpty() || !result.get(result.size() - 1).equals(name)) {
+					result.add(name);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the last name indexed for the given owner.
+	 * @return the last name or {@literal null} if the owner is not indexed
+	 */
+	String nameOf(int id) {
+		int page = id >>> PAGE_BITS;
+		if (page >= this.namesById.length || this.namesById[page] == null) {
+			return null;
+		}
+		return this.namesById[page][id & (PAGE_SIZE - 1)];
+	}
+
+	/**
+	 * Return an index in which the given owner has the given last name.
+	 * @param id the owner id, not negative
+	 * @param name the last name, or {@literal null} to remove the owner from the index
+	 */
+	OwnerNameIndex with(int id, String name) {
+		String previous = nameOf(id);
+		if (Objects.equals(previous, name)) {
+			return this;
+		}
+		String interned = (name != null) ? name.intern() : null;
+		List<String[]> names = new ArrayList<>(Arrays.asList(this.names));
+		List<int[]> ids = new ArrayList<>(Arrays.asList(this.ids));
+		if (previous != null) {
+			remove(names, ids, previous, id);
+		}
+		if (interned != null) {
+			insert(names, ids, interned, id);
+		}
+		return new OwnerNameIndex(names.toArray(String[][]::new), ids.toArray(int[][]::new),
+				withName(this.namesById, id, interned));
+	}
+
+	private static void remove(List<String[]> names, List<int[]> ids, String name, int id) {
+		int block = blockFor(names, ids, name, id);
+		String[] blockNames = names.get(block);
+		int[] blockIds = ids.get(block);
+		int position = insertionPoint(blockNames, blockIds, name, id);
+		if (blockNames.length == 1) {
+			names.remove(block);
+			ids.remove(block);
+			return;
+		}
+		String[] newNames = new String[blockNames.length - 1];
+		int[] newIds = new int[blockIds.length - 1];
+		System.arraycopy(blockNames, 0, newNames, 0, position);
+		System.arraycopy(blockIds, 0, newIds, 0, position);
+		System.arraycopy(blockNames, position + 1, newNames, position, newNames.length - position);
+		System.arraycopy(blockIds, position + 1, newIds, position, newIds.length - position);
+		names.set(block, newNames);
+		ids.set(block, newIds);
+	}
+
+	private static void insert(List<String[]> names, List<int[]> ids, String name, int id) {
+		if (names.isEmpty()) {
+			names.add(new String[] { name });
+			ids.add(new int[] { id });
+			return;
+		}
+		int block = blockFor(names, ids, name, id);
+		String[] blockNames = names.get(block);
+		int[] blockIds = ids.get(block);
+		int position = insertionPoint(blockNames, blockIds, name, id);
+		String[] newNames = new String[blockNames.length + 1];
+		int[] newIds = new int[blockIds.length + 1];
+		System.arraycopy(blockNames, 0, newNames, 0, position);
+		System.arraycopy(blockIds, 0, newIds, 0, position);
+		newNames[position] = name;
+		newIds[position] = id;
+		System.arraycopy(blockNames, position, newNames, position + 1, blockNames.length - position);
+		System.arraycopy(blockIds, position, newIds, position + 1, blockIds.length - position);
+		if (newNames.length < 2 * BLOCK_SIZE) {
+			names.set(block, newNames);
+			ids.set(block, newIds);
+		}
+		else {
+			int half = newNames.length / 2;
+			names.set(block, Arrays.copyOfRange(newNames, 0, half));
+			ids.set(block, Arrays.copyOfRange(newIds, 0, half));
+			names.add(block + 1, Arrays.copyOfRange(newNames, half, newNames.length));
+			ids.add(block + 1, Arrays.copyOfRange(newIds, half, newIds.length));
+		}
+	}
+
+	private static String[][] withName(String[][] namesById, int id, String name) {
+		int page = id >>> PAGE_BITS;
+		String[][] result = Arrays.copyOf(namesById, Math.max(namesById.length, page + 1));
+		String[] entries = (result[page] != null) ? result[page].clone() : new String[PAGE_SIZE];
+		entries[id & (PAGE_SIZE - 1)] = name;
+		result[page] = entries;
+		return result;
+	}
+
+	/**
+	 * The block holding the given entry, or where it would be inserted: the first block
+	 * whose last entry is not lower than it, or else the last block.
+	 */
+	private static int blockFor(List<String[]> names, List<int[]> ids, String name, int id) {
+		int low = 0;
+		int high = names.size() - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int last = ids.get(middle).length - 1;
+			if (compare(names.get(middle)[last], ids.get(middle)[last], name, id) < 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The block holding the entry at the given position.
+	 */
+	private int blockOf(int position) {
+		int low = 0;
+		int high = this.names.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (this.starts[middle] <= position) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	private String nameAt(int position) {
+		int block = blockOf(position);
+		return this.names[block][position - this.starts[block]];
+	}
+
+	/**
+	 * First position whose name is not lower than the prefix.
+	 */
+	private int lowerBound(String prefix) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (NAME_ORDER.compare(nameAt(middle), prefix) < 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * First position whose name is greater than the prefix and does not start with it.
+	 */
+	private int upperBound(String prefix) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			String name = nameAt(middle);
+			if (NAME_ORDER.compare(name, prefix) < 0 || name.startsWith(prefix)) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static int insertionPoint(String[] names, int[] ids, String name, int id) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(names[middle], ids[middle], name, id) < 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static int compare(String name1, int id1, String name2, int id2) {
+		int result = NAME_ORDER.compare(name1, name2);
+		return result != 0 ? result : Integer.compare(id1, id2);
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository fragment answering last name prefix lookups from an in-memory index of
+ * <code>Owner</code> last names, without using a database connection.
+ * <p>
+ * The index is built once the application is ready and kept current as owners are saved
+ * through {@link OwnerRepository#save(Owner)}.
+ * <p>
+ * Lookups are declared read-only, so that memoizing and coalescing proxies treat them as
+ * reads, but do not start a transaction of their own.
+ */
+public interface OwnerNameIndexRepository {
+
+	/**
+	 * Retrieve a page of {@link Owner} ids by last name from the index.
+	 * @param lastName Value to search for
+	 * @param pageable the page to retrieve, may be {@literal null} for all owners
+	 * @return the ids of the matching {@link Owner}s, ordered by last name and id, or
+	 * {@link Optional#empty()} if the index has not been built yet
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	Optional<Page<Integer>> findOwnerIdsByLastNameInIndex(String lastName, Pageable pageable);
+
+	/**
+	 * Retrieve the distinct last names starting with the given prefix, for example to
+	 * suggest names while typing.
+	 * @param prefix Value to search for
+	 * @param limit the maximum number of names to return
+	 * @return the matching last names in alphabetical order
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	List<String> findLastNamesStartingWith(String prefix, int limit);
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link OwnerNameIndexRepository} backed by an {@link OwnerNameIndex}.
+ * <p>
+ * Saved owners are applied to the index right away, so that a transaction sees its own
+ * changes, and reverted if the transaction rolls back. Saves whose transactions are still
+ * running when the index is rebuilt, or that happen while it is, are replayed onto the
+ * new index before it replaces the current one, as the rebuild may not see them.
+ */
+@Component
+class OwnerNameIndexRepositoryImpl implements OwnerNameIndexRepository {
+
+	private static final Log logger = LogFactory.getLog(OwnerNameIndexRepositoryImpl.class);
+
+	private final EntityManager entityManager;
+
+	// serializes rebuilds, which query the owners table without holding the update lock
+	private final Lock rebuildLock = new ReentrantLock();
+
+	// guards changes of the index and the saves below
+	private final Lock updateLock = new ReentrantLock();
+
+	private volatile OwnerNameIndex index;
+
+	// saves whose transactions are still running
+	private final Set<Save> inFlight = new LinkedHashSet<>();
+
+	// saves to replay onto the index being rebuilt, null when not rebuilding
+	private List<Save> replay;
+
+	private final TransactionTemplate transactionTemplate;
+
+	OwnerNameIndexRepositoryImpl(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	@Override
+	public Optional<Page<Integer>> findOwnerIdsByLastNameInIndex(String lastName, Pageable pageable) {
+		OwnerNameIndex index = this.index;
+		if (index == null) {
+			return Optional.empty();
+		}
+		int total = index.count(lastName);
+		if (pageable == null || pageable.isUnpaged()) {
+			return Optional.of(new PageImpl<>(index.ids(lastName, 0, total)));
+		}
+		List<Integer> ids = index.ids(lastName, pageable.getOffset(), pageable.getPageSize());
+		return Optional.of(new PageImpl<>(ids, pageable, total));
+	}
+
+	@Override
+	public List<String> findLastNamesStartingWith(String prefix, int limit) {
+		OwnerNameIndex index = this.index;
+		if (index != null) {
+			return index.names(prefix, limit);
+		}
+		return this.entityManager
+			.createQuery("SELECT DISTINCT owner.lastName FROM Owner owner WHERE owner.lastName LIKE :prefix "
+					+ "ORDER BY owner.lastName", String.class)
+			.setParameter("prefix", prefix + "%")
+			.setMaxResults(limit)
+			.getResultList();
+	}
+
+	/**
+	 * Build the index from the owners table, on startup and after bulk imports.
+	 */
+	@EventListener({ ApplicationReadyEvent.class, OwnersImportedEvent.class })
+	public void rebuild() {
+		this.rebuildLock.lock();
+		try {
+			this.updateLock.lock();
+			try {
+				this.replay = new ArrayList<>(this.inFlight);
+			}
+			finally {
+				this.updateLock.unlock();
+			}
+			OwnerNameIndex index = null;
+			try {
+				index = this.transactionTemplate.execute(status -> load());
+			}
+			finally {
+				publish(index);
+			}
+			logger.info("Indexed last names of " + index.size() + " owners");
+		}
+		finally {
+			this.rebuildLock.unlock();
+		}
+	}
+
+	/**
+	 * Replay the recorded saves onto the rebuilt index and make it the current one.
+	 * @param index the rebuilt index, or {@literal null} if the rebuild failed
+	 */
+	private void publish(OwnerNameIndex index) {
+		this.updateLock.lock();
+		try {
+			if (index != null) {
+				for (Save save : this.replay) {
+					if (!save.rolledBack) {
+						index = save.apply(index);
+					}
+				}
+				this.index = index;
+			}
+			this.replay = null;
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+	}
+
+	private OwnerNameIndex load() {
+		int[] ids = new int[1024];
+		String[] names = new String[1024];
+		int size = 0;
+		try (Stream<Object[]> rows = this.entityManager
+			.createQuery("SELECT owner.id, owner.lastName FROM Owner owner", Object[].class)
+			.getResultStream()) {
+			for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext();) {
+				Object[] row = iterator.next();
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					names = Arrays.copyOf(names, size * 2);
+				}
+				ids[size] = (Integer) row[0];
+				names[size] = (String) row[1];
+				size++;
+			}
+		}
+		return OwnerNameIndex.of(Arrays.copyOf(ids, size), Arrays.copyOf(names, size));
+	}
+
+	@EventListener
+	public void onOwnerSaved(OwnerSavedEvent event) {
+		Owner owner = event.owner();
+		if (owner.isNew()) {
+			return;
+		}
+		Save save = new Save(owner.getId(), owner.getLastName());
+		boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+		this.updateLock.lock();
+		try {
+			if (this.index != null) {
+				this.index = save.apply(this.index);
+			}
+			if (this.replay != null) {
+				this.replay.add(save);
+			}
+			if (transactional) {
+				this.inFlight.add(save);
+			}
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+		if (transactional) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					completed(save, status == STATUS_ROLLED_BACK);
+				}
+
+			});
+		}
+	}
+
+	private void completed(Save save, boolean rolledBack) {
+		this.updateLock.lock();
+		try {
+			this.inFlight.remove(save);
+			if (rolledBack) {
+				save.rolledBack = true;
+				if (save.applied && this.index != null) {
+					this.index = this.index.with(save.id, save.previous);
+				}
+			}
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+	}
+
+	/**
+	 * The last name an owner was saved with, guarded by the update lock.
+	 */
+	private static final class Save {
+
+		private final int id;
+
+		private final String name;
+
+		// the last name to restore on rollback, once applied to an index
+		private String previous;
+
+		private boolean applied;
+
+		private boolean rolledBack;
+
+		Save(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		OwnerNameIndex apply(OwnerNameIndex index) {
+			this.previous = index.nameOf(this.id);
+			this.applied = true;
+			return index.with(this.id, this.name);
+		}
+
+	}
+
+}
@@ -15,15 +15,31 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.model.CountedPage;
+import org.springframework.samples.petclinic.model.Hedged;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant
  * with Spring Data naming conventions so this interface can easily be extended for Spring
@@ -35,36 +51,159 @@ import org.springframework.transaction.annotation.Transactional;
  * @author Sam Brannen
  * @author Michael Isvy
  */
-public interface OwnerRepository extends Repository<Owner, Integer> {
+public interface OwnerRepository extends Repository<Owner, Integer>, OwnerCountRepository, OwnerNameIndexRepository,
+		OwnerSearchRepository, OwnerCacheRepository, OwnerStreamRepository {
 
 	/**
-	 * Retrieve all {@link PetType}s from the data store.
+	 * Retrieve all {@link PetType}s from the data store. The result is kept in the query
+	 * cache until pet types change.
 	 * @return a Collection of {@link PetType}s.
+	 * @see PetTypeReferenceData
 	 */
 	@Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+	@QueryHints({ @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "pet-type-queries") })
 	@Transactional(readOnly = true)
 	List<PetType> findPetTypes();
 
 	/**
 	 * Retrieve {@link Owner}s from the data store by last name, returning all owners
 	 * whose last name <i>starts</i> with the given name.
+	 * <p>
+	 * The search runs in two phases: a page of owner ids is selected first, without
+	 * joining any collection, and the owners of that page are then loaded together with
+	 * their pets and visits in two queries. The number of statements per page is
+	 * therefore independent of how many pets and visits the owners have.
+	 * <p>
+	 * The first phase is answered from the in-memory last name index once it has been
+	 * built. Until then, the ids are selected from the database and the total is taken
+	 * from {@link #countByLastName(String)}, which may be approximate for large results,
+	 * see {@link CountedPage#isTotalExact()}. A slow search may be hedged, see
+	 * {@link Hedged}.
 	 * @param lastName Value to search for
 	 * @return a Collection of matching {@link Owner}s (or an empty Collection if none
 	 * found)
 	 */
+	@Hedged
+	@Transactional(readOnly = true)
+	default Page<Owner> findByLastName(String lastName, Pageable pageable) {
+		Optional<Page<Integer>> indexed = findOwnerIdsByLastNameInIndex(lastName, pageable);
+		if (indexed.isPresent()) {
+			Page<Integer> ids = indexed.get();
+			return new PageImpl<>(findAllWithPetsAndVisitsInOrder(ids.getContent()), ids.getPageable(),
+					ids.getTotalElements());
+		}
+		List<Integer> ids = findOwnerIdsByLastName(lastName, pageable);
+		return CountedPage.of(findAllWithPetsAndVisitsInOrder(ids), pageable, () -> countByLastName(lastName));
+	}
+
+	/**
+	 * Retrieve the {@link Owner}s whose last name <i>starts</i> with the given name and
+	 * that come after the given cursor, ordered by last name and id.
+	 * <p>
+	 * Unlike {@link #findByLastName(String, Pageable)} this seeks directly to the cursor
+	 * position using the last name index and does not count the matching owners, so every
+	 * page costs the same no matter how deep it is.
+	 * @param lastName Value to search for
+	 * @param after the position to continue from, use {@link PersonCursor#FIRST} for the
+	 * first page
+	 * @param size the maximum number of owners to return
+	 * @return a slice of matching {@link Owner}s that knows whether more owners follow
+	 */
+	@Transactional(readOnly = true)
+	default Slice<Owner> findByLastNameAfter(String lastName, PersonCursor after, int size) {
+		List<Integer> ids = findOwnerIdsByLastNameAfter(lastName, after.lastName(), after.id(),
+				PageRequest.of(0, size + 1));
+		boolean hasNext = ids.size() > size;
+		if (hasNext) {
+			ids = ids.subList(0, size);
+		}
+		return new SliceImpl<>(findAllWithPetsAndVisitsInOrder(ids), PageRequest.of(0, size), hasNext);
+	}
+
+	/**
+	 * Retrieve the {@link Owner}s matching all words of the given query in their name,
+	 * address, city, telephone, pet names or visit descriptions, most relevant first.
+	 * <p>
+	 * Matching owner ids are taken from the full-text index, see
+	 * {@link #searchOwnerIds(String, int)}, and the owners are then loaded together with
+	 * their pets and visits in two queries.
+	 * @param query the words to search for, in any case
+	 * @param limit the maximum number of owners to return
+	 * @return the matching {@link Owner}s (or an empty Collection if none found)
+	 */
+	@Transactional(readOnly = true)
+	default List<Owner> search(String query, int limit) {
+		return findAllWithPetsAndVisitsInOrder(searchOwnerIds(query, limit));
+	}
+
+	private List<Owner> findAllWithPetsAndVisitsInOrder(List<Integer> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		// pets and their visits go into the persistence context first, so that fetching
+		// the owners with their pets neither reloads them nor repeats pets for each visit
+		findPetsWithVisitsByOwnerIdIn(ids);
+		Map<Integer, Owner> owners = new HashMap<>();
+		for (Owner owner : findAllWithPetsByIdIn(ids)) {
+			owners.put(owner.getId(), owner);
+		}
+		List<Owner> content = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			Owner owner = owners.get(id);
+			if (owner != null) {
+				content.add(owner);
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Retrieve a page of {@link Owner} ids by last name, in the order of the last name
+	 * index, without touching the pets and visits tables and without counting them.
+	 * @param lastName Value to search for
+	 * @return the ids of the matching {@link Owner}s
+	 */
+	@Query("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE concat(:lastName, '%') "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<Integer> findOwnerIdsByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+	/**
+	 * Retrieve {@link Owner} ids by last name, starting right after the given last name
+	 * and id.
+	 * @param lastName Value to search for
+	 * @param afterLastName last name of the last owner of the previous page
+	 * @param afterId id of the last owner of the previous page
+	 * @return the ids of the matching {@link Owner}s, ordered by last name and id
+	 */
+	@Query("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE concat(:lastName, '%') "
+			+ "AND (owner.lastName > :afterLastName OR (owner.lastName = :afterLastName AND owner.id > :afterId)) "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<Integer> findOwnerIdsByLastNameAfter(@Param("lastName") String lastName,
+			@Param("afterLastName") String afterLastName, @Param("afterId") int afterId, Pageable pageable);
 
-	@Query("SELECT DISTINCT owner FROM Owner owner left join  owner.pets WHERE owner.lastName LIKE :lastName% ")
+	/**
+	 * Retrieve the {@link Pet}s of the {@link Owner}s with the given ids, fetching their
+	 * types and visits in the same query.
+	 * @param ids the ids of the owners whose pets to load
+	 * @return the matching {@link Pet}s, in no particular order
+	 */
+	@Query("SELECT DISTINCT pet FROM Owner owner join owner.pets pet left join fetch pet.type "
+			+ "left join fetch pet.visits WHERE owner.id IN :ids")
 	@Transactional(readOnly = true)
-	Page<Owner> findByLastName(@Param("lastName") String lastName, Pageable pageable);
+	List<Pet> findPetsWithVisitsByOwnerIdIn(@Param("ids") Collection<Integer> ids);
 
 	/**
-	 * Retrieve an {@link Owner} from the data store by id.
-	 * @param id the id to search for
-	 * @return the {@link Owner} if found
+	 * Retrieve the {@link Owner}s with the given ids, fetching their pets in the same
+	 * query.
+	 * @param ids the ids of the owners to load
+	 * @return the matching {@link Owner}s, in no particular order
 	 */
-	@Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.id IN :ids")
 	@Transactional(readOnly = true)
-	Owner findById(@Param("id") Integer id);
+	List<Owner> findAllWithPetsByIdIn(@Param("ids") Collection<Integer> ids);
 
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
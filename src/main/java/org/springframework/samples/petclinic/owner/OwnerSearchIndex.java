@@ -0,0 +1,389 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over owners, their pets and visits, answering ranked full-text
+ * queries without touching the database.
+ * <p>
+ * Each owner is one document made of its name, address, city and telephone, the names of
+ * its pets and the descriptions of their visits. Text is split into lower case terms of
+ * letters and digits, and every term has a posting list of the owners containing it,
+ * sorted by owner id together with the term frequencies. A query matches the owners
+ * containing all of its terms, intersecting the posting lists from the shortest one, and
+ * keeps the best {@code limit} owners ranked by BM25 in a bounded heap.
+ * <p>
+ * The index is safe for concurrent use: queries share a read lock, updates take the write
+ * lock for the time it takes to patch the posting lists of one owner.
+ *
+ * @see OwnerSearchRepository
+ */
+final class OwnerSearchIndex {
+
+	private static final float K1 = 1.2f;
+
+	private static final float B = 0.75f;
+
+	private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score)
+		.reversed()
+		.thenComparingInt(Hit::ownerId);
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	private final Map<Integer, Document> documents = new HashMap<>();
+
+	// document lengths by owner id, ids are generated by the database and mostly dense
+	private int[] lengths = new int[0];
+
+	private long totalLength;
+
+	/**
+	 * Return the number of indexed owners.
+	 */
+	int size() {
+		this.lock.readLock().lock();
+		try {
+			return this.documents.size();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the indexed document of the given owner.
+	 * @return the document or {@literal null} if the owner is not indexed
+	 */
+	Document document(int ownerId) {
+		this.lock.readLock().lock();
+		try {
+			return this.documents.get(ownerId);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Index the given document for the given owner, replacing the previous one.
+	 * @param ownerId the owner id
+	 * @param document the document, or {@literal null} to remove the owner from the index
+	 * @return the previous document, or {@literal null} if the owner was not indexed
+	 */
+	Document put(int ownerId, Document document) {
+		this.lock.writeLock().lock();
+		try {
+			Document previous = document != null ? this.documents.put(ownerId, document)
+					: this.documents.remove(ownerId);
+			String[] oldTerms = previous != null ? previous.terms : new String[0];
+			String[] newTerms = document != null ? document.terms : new String[0];
+			// both documents have sorted terms, so walk them together and only shift
+			// posting lists for terms that were added or removed
+			int i = 0;
+			int j = 0;
+			while (i < oldTerms.length || j < newTerms.length) {
+				int order = (i == oldTerms.length) ? 1
+						: (j == newTerms.length) ? -1 : oldTerms[i].compareTo(newTerms[j]);
+				if (order < 0) {
+					Postings list = this.postings.get(oldTerms[i++]);
+					list.remove(ownerId);
+					if (list.size == 0) {
+						this.postings.remove(oldTerms[i - 1]);
+					}
+				}
+				else if (order > 0) {
+					this.postings.computeIfAbsent(newTerms[j], term -> new Postings())
+						.add(ownerId, document.frequencies[j]);
+					j++;
+				}
+				else {
+					this.postings.get(newTerms[j]).set(ownerId, document.frequencies[j]);
+					i++;
+					j++;
+				}
+			}
+			if (ownerId >= this.lengths.length) {
+				this.lengths = Arrays.copyOf(this.lengths, Math.max(ownerId + 1, this.lengths.length * 2));
+			}
+			this.totalLength += (document != null ? document.length : 0) - (previous != null ? previous.length : 0);
+			this.lengths[ownerId] = document != null ? document.length : 0;
+			return previous;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the owners matching all terms of the given query, best matches first.
+	 * @param query the query text
+	 * @param limit the maximum number of owners to return
+	 * @return the matching owners and their scores, highest score first
+	 */
+	List<Hit> search(String query, int limit) {
+		Set<String> terms = new LinkedHashSet<>(tokenize(query));
+		if (terms.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		this.lock.readLock().lock();
+		try {
+			Postings[] lists = new Postings[terms.size()];
+			int i = 0;
+			for (String term : terms) {
+				Postings list = this.postings.get(term);
+				if (list == null) {
+					return List.of();
+				}
+				lists[i++] = list;
+			}
+			Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+			return rank(lists, limit);
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private List<Hit> rank(Postings[] lists, int limit) {
+		int documentCount = this.documents.size();
+		float averageLength = (float) this.totalLength / documentCount;
+		float[] idf = new float[lists.length];
+		for (int i = 0; i < lists.length; i++) {
+			idf[i] = (float) Math.log(1 + (documentCount - lists[i].size + 0.5) / (lists[i].size + 0.5));
+		}
+		int[] positions = new int[lists.length];
+		PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+		Postings shortest = lists[0];
+		candidates: for (int candidate = 0; candidate < shortest.size; candidate++) {
+			int ownerId = shortest.ids[candidate];
+			positions[0] = candidate;
+			for (int i = 1; i < lists.length; i++) {
+				positions[i] = lists[i].seek(ownerId, positions[i]);
+				if (positions[i] == lists[i].size) {
+					break candidates;
+				}
+				if (lists[i].ids[positions[i]] != ownerId) {
+					continue candidates;
+				}
+			}
+			float lengthNorm = K1 * (1 - B + B * this.lengths[ownerId] / averageLength);
+			float score = 0;
+			for (int i = 0; i < lists.length; i++) {
+				int frequency = lists[i].frequencies[positions[i]];
+				score += idf[i] * frequency * (K1 + 1) / (frequency + lengthNorm);
+			}
+			if (best.size() < limit) {
+				best.add(new Hit(ownerId, score));
+			}
+			else if (score > best.peek().score()) {
+				// ids ascend, so on equal scores the hit already kept ranks first
+				best.poll();
+				best.add(new Hit(ownerId, score));
+			}
+		}
+		List<Hit> hits = new ArrayList<>(best);
+		hits.sort(RANKING);
+		return hits;
+	}
+
+	/**
+	 * Split the given text into lower case terms of letters and digits.
+	 * @param text the text, may be {@literal null}
+	 * @return the terms in order of appearance, including duplicates
+	 */
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean partOfTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (partOfTerm && start < 0) {
+				start = i;
+			}
+			else if (!partOfTerm && start >= 0) {
+				terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * An owner matching a query.
+	 *
+	 * @param ownerId the owner id
+	 * @param score the relevance of the owner for the query, higher is better
+	 */
+	record Hit(int ownerId, float score) {
+
+	}
+
+	/**
+	 * The distinct terms of one owner, in alphabetical order, with their frequencies.
+	 */
+	static final class Document {
+
+		private final String[] terms;
+
+		private final int[] frequencies;
+
+		private final int length;
+
+		private Document(String[] terms, int[] frequencies, int length) {
+			this.terms = terms;
+			this.frequencies = frequencies;
+			this.length = length;
+		}
+
+		static Builder builder() {
+			return new Builder();
+		}
+
+		/**
+		 * Return a document with the terms of this document and of the given text.
+		 */
+		Document with(String text) {
+			Builder builder = new Builder();
+			for (int i = 0; i < this.terms.length; i++) {
+				builder.frequencies.put(this.terms[i], this.frequencies[i]);
+			}
+			builder.length = this.length;
+			return builder.add(text).build();
+		}
+
+		/**
+		 * Collects the text of a document.
+		 */
+		static final class Builder {
+
+			private final Map<String, Integer> frequencies = new HashMap<>();
+
+			private int length;
+
+			private Builder() {
+			}
+
+			Builder add(String text) {
+				for (String term : tokenize(text)) {
+					this.frequencies.merge(term, 1, Integer::sum);
+					this.length++;
+				}
+				return this;
+			}
+
+			Document build() {
+				String[] terms = new String[this.frequencies.size()];
+				int[] frequencies = new int[terms.length];
+				int i = 0;
+				for (Map.Entry<String, Integer> entry : new TreeMap<>(this.frequencies).entrySet()) {
+					terms[i] = entry.getKey().intern();
+					frequencies[i] = entry.getValue();
+					i++;
+				}
+				return new Document(terms, frequencies, this.length);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Owner ids containing a term in ascending order, with the term frequencies at the
+	 * same positions.
+	 */
+	private static final class Postings {
+
+		private int[] ids = new int[2];
+
+		private int[] frequencies = new int[2];
+
+		private int size;
+
+		void add(int ownerId, int frequency) {
+			// owners are mostly added in id order, so check the end first
+			int position = (this.size == 0 || this.ids[this.size - 1] < ownerId) ? this.size : seek(ownerId, 0);
+			if (this.size == this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, this.size * 2);
+				this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2);
+			}
+			System.arraycopy(this.ids, position, this.ids, position + 1, this.size - position);
+			System.arraycopy(this.frequencies, position, this.frequencies, position + 1, this.size - position);
+			this.ids[position] = ownerId;
+			this.frequencies[position] = frequency;
+			this.size++;
+		}
+
+		void set(int ownerId, int frequency) {
+			this.frequencies[seek(ownerId, 0)] = frequency;
+		}
+
+		void remove(int ownerId) {
+			int position = seek(ownerId, 0);
+			if (position < this.size && this.ids[position] == ownerId) {
+				System.arraycopy(this.ids, position + 1, this.ids, position, this.size - position - 1);
+				System.arraycopy(this.frequencies, position + 1, this.frequencies, position, this.size - position - 1);
+				this.size--;
+			}
+		}
+
+		/**
+		 * Return the first position at or after {@code from} whose id is not lower than
+		 * the given owner id, galloping before the binary search so that skipping a few
+		 * entries stays cheap.
+		 */
+		int seek(int ownerId, int from) {
+			int low = from;
+			int step = 1;
+			int high = from;
+			while (high < this.size && this.ids[high] < ownerId) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			high = Math.min(high, this.size);
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.ids[middle] < ownerId) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+	}
+
+}
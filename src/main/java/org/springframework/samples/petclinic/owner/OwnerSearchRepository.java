@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository fragment answering full-text searches over <code>Owner</code>s, their pets
+ * and visits from an embedded inverted index, without using a database connection.
+ * <p>
+ * The index is built once the application is ready and kept current as owners are saved
+ * through {@link OwnerRepository#save(Owner)} and visits are added through
+ * {@link VisitService}.
+ */
+public interface OwnerSearchRepository {
+
+	/**
+	 * Retrieve the ids of the {@link Owner}s matching all words of the given query in
+	 * their name, address, city, telephone, pet names or visit descriptions.
+	 * @param query the words to search for, in any case
+	 * @param limit the maximum number of owners to return
+	 * @return the ids of the matching {@link Owner}s, most relevant first, or an empty
+	 * list if the index has not been built yet, see {@link #isSearchIndexBuilt()}
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	List<Integer> searchOwnerIds(String query, int limit);
+
+	/**
+	 * Return whether the index has been built, which happens shortly after startup.
+	 * Until then searches find nothing.
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	boolean isSearchIndexBuilt();
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link OwnerSearchRepository} backed by an {@link OwnerSearchIndex}.
+ * <p>
+ * Saved owners and added visits are applied to the index right away, so that a
+ * transaction sees its own changes, and reverted if the transaction rolls back. Changes
+ * whose transactions are still running when the index is rebuilt, or that happen while
+ * it is, are replayed onto the new index before it replaces the current one, as the
+ * rebuild may not see them. A replayed visit that the rebuild did see counts twice
+ * towards the ranking of its owner until the next rebuild.
+ */
+@Component
+class OwnerSearchRepositoryImpl implements OwnerSearchRepository {
+
+	private static final Log logger = LogFactory.getLog(OwnerSearchRepositoryImpl.class);
+
+	private final EntityManager entityManager;
+
+	// serializes rebuilds, which scan the tables without holding the update lock
+	private final Lock rebuildLock = new ReentrantLock();
+
+	// guards changes of the index and the changes below, a lock rather than a monitor so
+	// that it does not pin the carrier of a virtual thread
+	private final Lock updateLock = new ReentrantLock();
+
+	private volatile OwnerSearchIndex index;
+
+	// changes whose transactions are still running
+	private final Set<Change> inFlight = new LinkedHashSet<>();
+
+	// changes to replay onto the index being rebuilt, null when not rebuilding
+	private List<Change> replay;
+
+	private final TransactionTemplate transactionTemplate;
+
+	OwnerSearchRepositoryImpl(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	@Override
+	public boolean isSearchIndexBuilt() {
+		return this.index != null;
+	}
+
+	@Override
+	public List<Integer> searchOwnerIds(String query, int limit) {
+		OwnerSearchIndex index = this.index;
+		if (index == null) {
+			return List.of();
+		}
+		return index.search(query, limit).stream().map(OwnerSearchIndex.Hit::ownerId).toList();
+	}
+
+	/**
+	 * Build the index from the owners, pets and visits tables, on startup and after bulk
+	 * imports. Searches keep using the previous index, if any, until the new one is
+	 * complete.
+	 */
+	@EventListener({ ApplicationReadyEvent.class, OwnersImportedEvent.class })
+	public void rebuild() {
+		this.rebuildLock.lock();
+		try {
+			this.updateLock.lock();
+			try {
+				this.replay = new ArrayList<>(this.inFlight);
+			}
+			finally {
+				this.updateLock.unlock();
+			}
+			OwnerSearchIndex index = null;
+			try {
+				index = this.transactionTemplate.execute(status -> load());
+			}
+			finally {
+				publish(index);
+			}
+			logger.info("Indexed " + index.size() + " owners for full-text search");
+		}
+		finally {
+			this.rebuildLock.unlock();
+		}
+	}
+
+	/**
+	 * Replay the recorded changes onto the rebuilt index and make it the current one.
+	 * @param index the rebuilt index, or {@literal null} if the rebuild failed
+	 */
+	private void publish(OwnerSearchIndex index) {
+		this.updateLock.lock();
+		try {
+			if (index != null) {
+				for (Change change : this.replay) {
+					if (!change.rolledBack) {
+						change.apply(index);
+					}
+				}
+				this.index = index;
+			}
+			this.replay = null;
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+	}
+
+	private OwnerSearchIndex load() {
+		OwnerSearchIndex index = new OwnerSearchIndex();
+		// one pass ordered by owner and pet, so only the current owner is held in memory
+		try (Stream<Object[]> rows = this.entityManager
+			.createQuery(
+					"SELECT owner.id, owner.firstName, owner.lastName, owner.address, owner.city, "
+							+ "owner.telephone, pet.id, pet.name, visit.description FROM Owner owner "
+							+ "left join owner.pets pet left join pet.visits visit ORDER BY owner.id, pet.id",
+					Object[].class)
+			.getResultStream()) {
+			Integer ownerId = null;
+			Integer petId = null;
+			OwnerSearchIndex.Document.Builder document = null;
+			for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext();) {
+				Object[] row = iterator.next();
+				if (!row[0].equals(ownerId)) {
+					if (document != null) {
+						index.put(ownerId, document.build());
+					}
+					ownerId = (Integer) row[0];
+					petId = null;
+					document = OwnerSearchIndex.Document.builder();
+					for (int i = 1; i <= 5; i++) {
+						document.add((String) row[i]);
+					}
+				}
+				if (row[6] != null && !row[6].equals(petId)) {
+					petId = (Integer) row[6];
+					document.add((String) row[7]);
+				}
+				document.add((String) row[8]);
+			}
+			if (document != null) {
+				index.put(ownerId, document.build());
+			}
+		}
+		return index;
+	}
+
+	private static OwnerSearchIndex.Document document(Owner owner) {
+		OwnerSearchIndex.Document.Builder document = OwnerSearchIndex.Document.builder()
+			.add(owner.getFirstName())
+			.add(owner.getLastName())
+			.add(owner.getAddress())
+			.add(owner.getCity())
+			.add(owner.getTelephone());
+		for (Pet pet : owner.getPets()) {
+			document.add(pet.getName());
+			for (Visit visit : pet.getVisits()) {
+				document.add(visit.getDescription());
+			}
+		}
+		return document.build();
+	}
+
+	@EventListener
+	public void onOwnerSaved(OwnerSavedEvent event) {
+		Owner owner = event.owner();
+		if (!owner.isNew()) {
+			update(owner.getId(), previous -> document(owner));
+		}
+	}
+
+	@EventListener
+	public void onVisitAdded(VisitAddedEvent event) {
+		update(event.ownerId(), previous -> previous != null ? previous.with(event.visit().getDescription()) : null);
+	}
+
+	private void update(int id, UnaryOperator<OwnerSearchIndex.Document> update) {
+		Change change = new Change(id, update);
+		boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+		this.updateLock.lock();
+		try {
+			if (this.index != null) {
+				change.apply(this.index);
+			}
+			if (this.replay != null) {
+				this.replay.add(change);
+			}
+			if (transactional) {
+				this.inFlight.add(change);
+			}
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+		if (transactional) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					completed(change, status == STATUS_ROLLED_BACK);
+				}
+
+			});
+		}
+	}
+
+	private void completed(Change change, boolean rolledBack) {
+		this.updateLock.lock();
+		try {
+			this.inFlight.remove(change);
+			if (rolledBack) {
+				change.rolledBack = true;
+				if (change.appliedTo != null && change.appliedTo == this.index) {
+					this.index.put(change.id, change.previous);
+				}
+			}
+		}
+		finally {
+			this.updateLock.unlock();
+		}
+	}
+
+	/**
+	 * A change of the document of an owner, guarded by the update lock.
+	 */
+	private static final class Change {
+
+		private final int id;
+
+		private final UnaryOperator<OwnerSearchIndex.Document> update;
+
+		// the index the change was last applied to, and the document to restore there on
+		// rollback
+		private OwnerSearchIndex appliedTo;
+
+		private OwnerSearchIndex.Document previous;
+
+		private boolean rolledBack;
+
+		Change(int id, UnaryOperator<OwnerSearchIndex.Document> update) {
+			this.id = id;
+			this.update = update;
+		}
+
+		void apply(OwnerSearchIndex index) {
+			OwnerSearchIndex.Document previous = index.document(this.id);
+			OwnerSearchIndex.Document document = this.update.apply(previous);
+			if (document != null) {
+				index.put(this.id, document);
+				this.appliedTo = index;
+				this.previous = previous;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Immutable copy of an {@link Owner} with its pets, pet types and visits, safe to share
+ * between threads and persistence contexts. Every call to {@link #toOwner()} creates new,
+ * detached entities that callers may change and save like any other detached owner.
+ *
+ * @see OwnerCacheRepository
+ */
+record OwnerSnapshot(int id, String firstName, String lastName, String address, String city, String telephone,
+		List<PetSnapshot> pets) {
+
+	static OwnerSnapshot of(Owner owner) {
+		return new OwnerSnapshot(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+				owner.getCity(), owner.getTelephone(), owner.getPets().stream().map(PetSnapshot::of).toList());
+	}
+
+	Owner toOwner() {
+		Owner owner = new Owner();
+		owner.setId(this.id);
+		owner.setFirstName(this.firstName);
+		owner.setLastName(this.lastName);
+		owner.setAddress(this.address);
+		owner.setCity(this.city);
+		owner.setTelephone(this.telephone);
+		for (PetSnapshot pet : this.pets) {
+			owner.getPets().add(pet.toPet());
+		}
+		return owner;
+	}
+
+	record PetSnapshot(int id, String name, LocalDate birthDate, Integer typeId, String typeName,
+			List<VisitSnapshot> visits) {
+
+		static PetSnapshot of(Pet pet) {
+			PetType type = pet.getType();
+			return new PetSnapshot(pet.getId(), pet.getName(), pet.getBirthDate(), type != null ? type.getId() : null,
+					type != null ? type.getName() : null, pet.getVisits().stream().map(VisitSnapshot::of).toList());
+		}
+
+		Pet toPet() {
+			Pet pet = new Pet();
+			pet.setId(this.id);
+			pet.setName(this.name);
+			pet.setBirthDate(this.birthDate);
+			if (this.typeId != null) {
+				PetType type = new PetType();
+				type.setId(this.typeId);
+				type.setName(this.typeName);
+				pet.setType(type);
+			}
+			for (VisitSnapshot visit : this.visits) {
+				pet.addVisit(visit.toVisit());
+			}
+			return pet;
+		}
+
+	}
+
+	record VisitSnapshot(int id, LocalDate date, String description, Integer vetId, LocalTime startTime,
+			LocalTime endTime) {
+
+		static VisitSnapshot of(Visit visit) {
+			return new VisitSnapshot(visit.getId(), visit.getDate(), visit.getDescription(), visit.getVetId(),
+					visit.getStartTime(), visit.getEndTime());
+		}
+
+		Visit toVisit() {
+			Visit visit = new Visit();
+			visit.setId(this.id);
+			visit.setDate(this.date);
+			visit.setDescription(this.description);
+			visit.setVetId(this.vetId);
+			visit.setStartTime(this.startTime);
+			visit.setEndTime(this.endTime);
+			return visit;
+		}
+
+	}
+
+}
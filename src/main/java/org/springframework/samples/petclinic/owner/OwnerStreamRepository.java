@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository fragment reading all <code>Owner</code>s, with their pets, pet types and
+ * visits, through a database cursor in constant memory.
+ */
+public interface OwnerStreamRepository {
+
+	/**
+	 * Stream all {@link Owner}s ordered by id to the given function. The owners are built
+	 * from one query as detached entities, one at a time, and are not kept in the
+	 * persistence context. The stream is only valid while the function runs.
+	 * @param function consumes the owners
+	 * @return the result of the function
+	 */
+	@Transactional(readOnly = true)
+	<R> R streamAll(Function<Stream<Owner>, R> function);
+
+}
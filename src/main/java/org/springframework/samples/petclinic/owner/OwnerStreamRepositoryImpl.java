@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.samples.petclinic.model.RowGroups;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link OwnerStreamRepository} reading one row per visit, ordered by owner, and building
+ * each owner from its consecutive rows.
+ */
+@Component
+class OwnerStreamRepositoryImpl implements OwnerStreamRepository {
+
+	private static final int FETCH_SIZE = 500;
+
+	private final EntityManager entityManager;
+
+	OwnerStreamRepositoryImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public <R> R streamAll(Function<Stream<Owner>, R> function) {
+		// pets and visits in the order of Owner.pets and Pet.visits
+		Stream<Object[]> rows = this.entityManager
+			.createQuery("SELECT owner.id, owner.firstName, owner.lastName, owner.address, owner.city, "
+					+ "owner.telephone, pet.id, pet.name, pet.birthDate, type.id, type.name, visit.id, visit.date, "
+					+ "visit.description, visit.vetId, visit.startTime, visit.endTime "
+					+ "FROM Owner owner left join owner.pets pet left join pet.type type "
+					+ "left join pet.visits visit ORDER BY owner.id, pet.name, pet.id, visit.date, visit.id",
+					Object[].class)
+			.setHint(AvailableHints.HINT_FETCH_SIZE, FETCH_SIZE)
+			.getResultStream();
+		try (Stream<Owner> owners = RowGroups.group(rows, row -> row[0], OwnerStreamRepositoryImpl::owner,
+				OwnerStreamRepositoryImpl::add)) {
+			return function.apply(owners);
+		}
+	}
+
+	/**
+	 * Create an owner from the first six columns of the given row.
+	 */
+	static Owner owner(Object[] row) {
+		Owner owner = new Owner();
+		owner.setId((Integer) row[0]);
+		owner.setFirstName((String) row[1]);
+		owner.setLastName((String) row[2]);
+		owner.setAddress((String) row[3]);
+		owner.setCity((String) row[4]);
+		owner.setTelephone((String) row[5]);
+		return owner;
+	}
+
+	/**
+	 * Add the pet and visit of the given row to the owner, rows being in the order of
+	 * {@link #streamAll(Function)}.
+	 */
+	static void add(Owner owner, Object[] row) {
+		if (row[6] == null) {
+			return;
+		}
+		List<Pet> pets = owner.getPets();
+		Pet pet = pets.isEmpty() ? null : pets.get(pets.size() - 1);
+		if (pet == null || !pet.getId().equals(row[6])) {
+			pet = new Pet();
+			pet.setId((Integer) row[6]);
+			pet.setName((String) row[7]);
+			pet.setBirthDate((LocalDate) row[8]);
+			if (row[9] != null) {
+				PetType type = new PetType();
+				type.setId((Integer) row[9]);
+				type.setName((String) row[10]);
+				pet.setType(type);
+			}
+			// addPet() ignores pets that already have an id
+			pets.add(pet);
+		}
+		if (row[11] != null) {
+			Visit visit = new Visit();
+			visit.setId((Integer) row[11]);
+			visit.setDate((LocalDate) row[12]);
+			visit.setDescription((String) row[13]);
+			visit.setVetId((Integer) row[14]);
+			visit.setStartTime((LocalTime) row[15]);
+			visit.setEndTime((LocalTime) row[16]);
+			pet.addVisit(visit);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link OwnerRepository#findById(Integer)} for the reactive
+ * API, reading an owner with its pets and visits through R2DBC in a single query.
+ *
+ * @see OwnerStreamRepositoryImpl
+ */
+@Component
+class ReactiveOwnerRepository {
+
+	// same columns and order as OwnerStreamRepositoryImpl, to build owners the same way
+	private static final String FIND_BY_ID = """
+			SELECT o.id, o.first_name, o.last_name, o.address, o.city, o.telephone, p.id, p.name, p.birth_date,
+			t.id, t.name, v.id, v.visit_date, v.description, v.vet_id, v.start_time, v.end_time
+			FROM owners o LEFT JOIN pets p ON p.owner_id = o.id LEFT JOIN types t ON t.id = p.type_id
+			LEFT JOIN visits v ON v.pet_id = p.id WHERE o.id = :id ORDER BY p.name, p.id, v.visit_date, v.id""";
+
+	private final DatabaseClient databaseClient;
+
+	ReactiveOwnerRepository(DatabaseClient databaseClient) {
+		this.databaseClient = databaseClient;
+	}
+
+	/**
+	 * Retrieve an {@link Owner} with its pets and visits.
+	 * @param id the id to search for
+	 * @return the owner, or an empty {@link Mono} if none was found
+	 */
+	Mono<Owner> findById(int id) {
+		return this.databaseClient.sql(FIND_BY_ID)
+			.bind("id", id)
+			.map(row -> new Object[] { row.get(0, Integer.class), row.get(1, String.class), row.get(2, String.class),
+					row.get(3, String.class), row.get(4, String.class), row.get(5, String.class),
+					row.get(6, Integer.class), row.get(7, String.class), row.get(8, LocalDate.class),
+					row.get(9, Integer.class), row.get(10, String.class), row.get(11, Integer.class),
+					row.get(12, LocalDate.class), row.get(13, String.class), row.get(14, Integer.class),
+					row.get(15, LocalTime.class), row.get(16, LocalTime.class) })
+			.all()
+			.collectList()
+			.filter(rows -> !rows.isEmpty())
+			.map(rows -> {
+				Owner owner = OwnerStreamRepositoryImpl.owner(rows.get(0));
+				rows.forEach(row -> OwnerStreamRepositoryImpl.add(owner, row));
+				return owner;
+			});
+	}
+
+}
@@ -16,10 +16,14 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.BaseEntity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
@@ -33,6 +37,8 @@ import jakarta.validation.constraints.NotBlank;
  */
 @Entity
 @Table(name = "visits")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "visits")
 public class Visit extends BaseEntity {
 
 	@Column(name = "visit_date")
@@ -42,6 +48,17 @@ public class Visit extends BaseEntity {
 	@NotBlank
 	private String description;
 
+	@Column(name = "vet_id")
+	private Integer vetId;
+
+	@Column(name = "start_time")
+	@DateTimeFormat(pattern = "HH:mm")
+	private LocalTime startTime;
+
+	@Column(name = "end_time")
+	@DateTimeFormat(pattern = "HH:mm")
+	private LocalTime endTime;
+
 	/**
 	 * Creates a new instance of Visit for the current date
 	 */
@@ -65,4 +82,32 @@ public class Visit extends BaseEntity {
 		this.description = description;
 	}
 
+	/**
+	 * Return the id of the vet the visit is scheduled with.
+	 * @return the vet id, or {@literal null} if the visit is not scheduled
+	 */
+	public Integer getVetId() {
+		return this.vetId;
+	}
+
+	public void setVetId(Integer vetId) {
+		this.vetId = vetId;
+	}
+
+	public LocalTime getStartTime() {
+		return this.startTime;
+	}
+
+	public void setStartTime(LocalTime startTime) {
+		this.startTime = startTime;
+	}
+
+	public LocalTime getEndTime() {
+		return this.endTime;
+	}
+
+	public void setEndTime(LocalTime endTime) {
+		this.endTime = endTime;
+	}
+
 }
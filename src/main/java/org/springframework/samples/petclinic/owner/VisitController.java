@@ -17,12 +17,12 @@ package org.springframework.samples.petclinic.owner;
 
 import java.util.Map;
 
+import org.springframework.samples.petclinic.model.RequestScopedReads;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 
@@ -39,56 +39,67 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 class VisitController {
 
+	private static final String VIEWS_VISIT_CREATE_FORM = "pets/createOrUpdateVisitForm";
+
 	private final OwnerRepository owners;
 
-	public VisitController(OwnerRepository owners) {
-		this.owners = owners;
+	private final VisitService visits;
+
+	public VisitController(OwnerRepository owners, VisitService visits) {
+		this.owners = RequestScopedReads.memoize(owners, OwnerRepository.class);
+		this.visits = visits;
 	}
 
+	// visits with a vet are booked through the schedule of the vet, which checks that
+	// the vet is free at that time
 	@InitBinder
 	public void setAllowedFields(WebDataBinder dataBinder) {
-		dataBinder.setDisallowedFields("id");
+		dataBinder.setDisallowedFields("id", "vetId", "startTime", "endTime");
 	}
 
 	/**
-	 * Called before each and every @RequestMapping annotated method. 2 goals: - Make sure
-	 * we always have fresh data - Since we do not use the session scope, make sure that
-	 * Pet object always has an id (Even though id is not part of the form fields)
-	 * @param petId
-	 * @return Pet
+	 * Load the owner and pet shown alongside the visit form. Since we do not use the
+	 * session scope, this also makes sure that the Pet object always has an id (even
+	 * though id is not part of the form fields).
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @param model the model to add the owner and pet to
 	 */
-	@ModelAttribute("visit")
-	public Visit loadPetWithVisit(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
-			Map<String, Object> model) {
+	private void loadOwnerAndPet(int ownerId, int petId, Map<String, Object> model) {
 		Owner owner = this.owners.findById(ownerId);
-
+		if (owner == null) {
+			throw new IllegalArgumentException("Owner ID not found: " + ownerId);
+		}
 		Pet pet = owner.getPet(petId);
+		if (pet == null) {
+			throw new IllegalArgumentException("Pet ID not found: " + petId);
+		}
 		model.put("pet", pet);
 		model.put("owner", owner);
-
-		Visit visit = new Visit();
-		pet.addVisit(visit);
-		return visit;
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is
-	// called
 	@GetMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String initNewVisitForm() {
-		return "pets/createOrUpdateVisitForm";
+	public String initNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			Map<String, Object> model) {
+		loadOwnerAndPet(ownerId, petId, model);
+		model.put("visit", new Visit());
+		return VIEWS_VISIT_CREATE_FORM;
 	}
 
-	// Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is
-	// called
+	// Only the visit is written: the owner, its pets and their visits are not loaded
+	// unless the form has to be shown again
 	@PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-	public String processNewVisitForm(@ModelAttribute Owner owner, @PathVariable int petId, @Valid Visit visit,
-			BindingResult result, RedirectAttributes redirectAttributes) {
+	public String processNewVisitForm(@PathVariable("ownerId") int ownerId, @PathVariable("petId") int petId,
+			@Valid Visit visit, BindingResult result, Map<String, Object> model,
+			RedirectAttributes redirectAttributes) {
 		if (result.hasErrors()) {
-			return "pets/createOrUpdateVisitForm";
+			loadOwnerAndPet(ownerId, petId, model);
+			return VIEWS_VISIT_CREATE_FORM;
 		}
 
-		owner.addVisit(petId, visit);
-		this.owners.save(owner);
+		if (!this.visits.addVisit(ownerId, petId, visit)) {
+			throw new IllegalArgumentException("Pet ID not found: " + petId);
+		}
 		redirectAttributes.addFlashAttribute("message", "Your vist has been boked");
 		return "redirect:/owners/{ownerId}";
 	}
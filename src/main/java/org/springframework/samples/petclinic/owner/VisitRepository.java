@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository class for <code>Visit</code> domain objects, writing visits by pet id
+ * without loading the pet or its owner.
+ *
+ * @see VisitService
+ */
+public interface VisitRepository extends Repository<Visit, Integer> {
+
+	/**
+	 * Insert a visit for the given pet if, and only if, the pet belongs to the given
+	 * owner. The ownership check and the insert are a single statement.
+	 * <p>
+	 * The id must be taken from the {@code visits_seq} sequence, like Hibernate does for
+	 * the visits it inserts itself.
+	 * <p>
+	 * Only the second-level cache regions of the visits table are invalidated, instead of
+	 * the whole cache as for any native statement that does not declare what it changes.
+	 * @param id the id of the new visit
+	 * @param ownerId the id of the owner of the pet
+	 * @param petId the id of the visited pet
+	 * @param date the date of the visit
+	 * @param description the description of the visit
+	 * @param vetId the id of the vet the visit is scheduled with, may be {@literal null}
+	 * @param startTime the start of the visit, may be {@literal null}
+	 * @param endTime the end of the visit, may be {@literal null}
+	 * @return the number of inserted visits, {@literal 0} if the owner has no such pet
+	 */
+	@Modifying
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "visits"))
+	@Query(value = "INSERT INTO visits (id, pet_id, visit_date, description, vet_id, start_time, end_time) "
+			+ "SELECT :id, pets.id, CAST(:date AS DATE), :description, :vetId, CAST(:startTime AS TIME), "
+			+ "CAST(:endTime AS TIME) FROM pets WHERE pets.id = :petId AND pets.owner_id = :ownerId",
+			nativeQuery = true)
+	@Transactional
+	int insertVisit(@Param("id") int id, @Param("ownerId") int ownerId, @Param("petId") int petId,
+			@Param("date") LocalDate date, @Param("description") String description, @Param("vetId") Integer vetId,
+			@Param("startTime") LocalTime startTime, @Param("endTime") LocalTime endTime);
+
+	/**
+	 * Count the pets with the given id belonging to the given owner.
+	 * @param ownerId the id of the owner
+	 * @param petId the id of the pet
+	 * @return {@literal 1} if the owner has such a pet, {@literal 0} otherwise
+	 */
+	@Query(value = "SELECT COUNT(*) FROM pets WHERE pets.id = :petId AND pets.owner_id = :ownerId",
+			nativeQuery = true)
+	@Transactional(readOnly = true)
+	int countPets(@Param("ownerId") int ownerId, @Param("petId") int petId);
+
+	/**
+	 * Retrieve the visits scheduled with a vet on or after the given date.
+	 * @param date the first date
+	 * @return the scheduled visits, in no particular order
+	 */
+	@Query("SELECT visit FROM Visit visit WHERE visit.vetId IS NOT NULL AND visit.date >= :date")
+	@Transactional(readOnly = true)
+	List<Visit> findScheduledVisitsFrom(@Param("date") LocalDate date);
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Books {@link Visit}s with a single insert, instead of loading, changing and saving the
+ * owner with all its pets and visits. The cost of booking a visit therefore does not
+ * depend on how many visits the pet already had.
+ * <p>
+ * Publishes a {@link VisitAddedEvent} for every booked visit, so that caches and indexes
+ * of owners can be updated.
+ */
+@Service
+public class VisitService {
+
+	private final VisitRepository visits;
+
+	private final ApplicationEventPublisher events;
+
+	private final EntityManager entityManager;
+
+	public VisitService(VisitRepository visits, ApplicationEventPublisher events, EntityManager entityManager) {
+		this.visits = visits;
+		this.events = events;
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Return whether the given owner has a pet with the given id.
+	 */
+	public boolean hasPet(int ownerId, int petId) {
+		return this.visits.countPets(ownerId, petId) > 0;
+	}
+
+	/**
+	 * Add a visit for the given pet of the given owner.
+	 * @param ownerId the id of the owner of the pet
+	 * @param petId the id of the visited pet
+	 * @param visit the visit to add, gets the id of the new visit if it was added
+	 * @return {@literal false} if the owner has no such pet, in which case nothing was
+	 * added
+	 */
+	@Transactional
+	public boolean addVisit(int ownerId, int petId, Visit visit) {
+		int id = EntityIds.next(this.entityManager, Visit.class);
+		if (this.visits.insertVisit(id, ownerId, petId, visit.getDate(), visit.getDescription(), visit.getVetId(),
+				visit.getStartTime(), visit.getEndTime()) == 0) {
+			return false;
+		}
+		visit.setId(id);
+		this.events.publishEvent(new VisitAddedEvent(ownerId, petId, visit));
+		return true;
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Limits the number of requests in flight to a limit sized from their latency, with a
+ * gradient algorithm: the limit grows while requests are as fast as they used to be, and
+ * shrinks as soon as they get slower, which is when they start queueing for a database
+ * connection or lock.
+ * <p>
+ * Each completed request compares its latency to the long term average latency. Their
+ * ratio, the gradient, is at most 1 and drops below 1 when requests get slower than
+ * average. The limit is multiplied by the gradient and a queue of the square root of the
+ * limit is added, so that the limit keeps probing for more concurrency, then smoothed.
+ * The limit is left as is while less than half of it is used, since the latency then
+ * says nothing about how much more the database could take.
+ * <p>
+ * {@link Priority#WRITE Writes} may use the whole limit, {@link Priority#READ reads}
+ * only a share of it, so that reads are turned away first.
+ */
+final class AdaptiveConcurrencyLimiter implements MeterBinder {
+
+	// the long term latency averages over about this many requests
+	private static final int WINDOW = 600;
+
+	private static final int WARMUP_SAMPLES = 10;
+
+	// how much slower than average requests may get before the limit shrinks
+	private static final double TOLERANCE = 1.5;
+
+	private static final double SMOOTHING = 0.2;
+
+	/**
+	 * How much of the limit of a limiter a request may use.
+	 */
+	enum Priority {
+
+		/**
+		 * The request may use the whole limit.
+		 */
+		WRITE,
+
+		/**
+		 * The request may use the read share of the limit.
+		 */
+		READ
+
+	}
+
+	private final String name;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double readShare;
+
+	private final Ticker ticker;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final LongAdder[] rejections = new LongAdder[Priority.values().length];
+
+	private volatile int limit;
+
+	// guarded by this
+	private double estimatedLimit;
+
+	// guarded by this
+	private double longLatency;
+
+	// guarded by this
+	private int samples;
+
+	AdaptiveConcurrencyLimiter(String name, ConcurrencyLimits limits, double readShare) {
+		this(name, limits, readShare, Ticker.systemTicker());
+	}
+
+	AdaptiveConcurrencyLimiter(String name, ConcurrencyLimits limits, double readShare, Ticker ticker) {
+		this.name = name;
+		this.minLimit = limits.minLimit();
+		this.maxLimit = limits.maxLimit();
+		this.readShare = readShare;
+		this.ticker = ticker;
+		this.estimatedLimit = limits.initialLimit();
+		this.limit = limits.initialLimit();
+		for (int i = 0; i < this.rejections.length; i++) {
+			this.rejections[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Try to start a request.
+	 * @param priority the priority of the request
+	 * @return the permit to release once the request completed, or {@literal null} if
+	 * the limit for that priority is reached and the request should be rejected
+	 */
+	Permit tryAcquire(Priority priority) {
+		int limit = this.limit;
+		int allowed = (priority == Priority.WRITE) ? limit : Math.max(1, (int) (limit * this.readShare));
+		int current;
+		do {
+			current = this.inFlight.get();
+			if (current >= allowed) {
+				this.rejections[priority.ordinal()].increment();
+				return null;
+			}
+		}
+		while (!this.inFlight.compareAndSet(current, current + 1));
+		return new Permit(this.ticker.read(), current + 1);
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	int getLimit() {
+		return this.limit;
+	}
+
+	int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	long getRejections(Priority priority) {
+		return this.rejections[priority.ordinal()].sum();
+	}
+
+	private synchronized void onSample(long latency, int inFlight) {
+		if (this.samples < WARMUP_SAMPLES) {
+			this.longLatency = (this.longLatency * this.samples + latency) / (this.samples + 1);
+			this.samples++;
+		}
+		else {
+			this.longLatency += (latency - this.longLatency) * 2 / (WINDOW + 1);
+		}
+		double shortLatency = Math.max(latency, 1);
+		if (this.longLatency / shortLatency > 2) {
+			// requests got much faster, let the average forget the slow period sooner
+			this.longLatency *= 0.95;
+		}
+		if (inFlight < this.estimatedLimit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * this.longLatency / shortLatency));
+		double newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+		newLimit = this.estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+		this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+		this.limit = (int) this.estimatedLimit;
+	}
+
+	/**
+	 * Register the limit, the requests in flight and the rejections by priority, tagged
+	 * with the name of this limiter.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("petclinic.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+			.tag("limiter", this.name)
+			.description("Maximum number of requests in flight")
+			.register(registry);
+		Gauge.builder("petclinic.concurrency.in.flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+			.tag("limiter", this.name)
+			.description("Number of requests in flight")
+			.register(registry);
+		for (Priority priority : Priority.values()) {
+			FunctionCounter
+				.builder("petclinic.concurrency.rejections", this, limiter -> limiter.getRejections(priority))
+				.tag("limiter", this.name)
+				.tag("priority", priority.name().toLowerCase(Locale.ROOT))
+				.description("Number of requests rejected because the limit was reached")
+				.register(registry);
+		}
+	}
+
+	/**
+	 * A request in flight.
+	 */
+	final class Permit {
+
+		private final long startTime;
+
+		private final int inFlight;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(long startTime, int inFlight) {
+			this.startTime = startTime;
+			this.inFlight = inFlight;
+		}
+
+		/**
+		 * Complete the request, adapting the limit to its latency.
+		 */
+		void release() {
+			if (this.released.compareAndSet(false, true)) {
+				AdaptiveConcurrencyLimiter.this.inFlight.decrementAndGet();
+				onSample(AdaptiveConcurrencyLimiter.this.ticker.read() - this.startTime, this.inFlight);
+			}
+		}
+
+		/**
+		 * Complete the request without adapting the limit, for requests whose latency
+		 * does not tell how busy the database is.
+		 */
+		void releaseWithoutSample() {
+			if (this.released.compareAndSet(false, true)) {
+				AdaptiveConcurrencyLimiter.this.inFlight.decrementAndGet();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration applying the {@link AsyncTimeouts timeouts of individual endpoints} to
+ * their asynchronous requests with an {@link AsyncTimeoutInterceptor}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(AsyncTimeouts.class)
+class AsyncTimeoutConfiguration implements WebMvcConfigurer {
+
+	private final AsyncTimeouts timeouts;
+
+	AsyncTimeoutConfiguration(AsyncTimeouts timeouts) {
+		this.timeouts = timeouts;
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.registerCallableInterceptors(new AsyncTimeoutInterceptor(this.timeouts));
+	}
+
+}
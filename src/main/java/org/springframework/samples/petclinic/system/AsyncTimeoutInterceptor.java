@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Applies the {@link AsyncTimeouts timeout of its endpoint} to an asynchronous request,
+ * such as a streamed response, right before it starts, so that long running imports and
+ * exports do not lift the timeout of every other request.
+ */
+class AsyncTimeoutInterceptor implements CallableProcessingInterceptor {
+
+	private final Map<PathPattern, Duration> timeouts = new LinkedHashMap<>();
+
+	AsyncTimeoutInterceptor(AsyncTimeouts timeouts) {
+		PathPatternParser parser = PathPatternParser.defaultInstance;
+		timeouts.timeouts().forEach((pattern, timeout) -> this.timeouts.put(parser.parse(pattern), timeout));
+	}
+
+	@Override
+	public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+		HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+		if (!(request instanceof AsyncWebRequest asyncRequest) || servletRequest == null) {
+			return;
+		}
+		RequestPath requestPath = ServletRequestPathUtils.hasParsedRequestPath(servletRequest)
+				? ServletRequestPathUtils.getParsedRequestPath(servletRequest)
+				: ServletRequestPathUtils.parseAndCache(servletRequest);
+		PathContainer path = requestPath.pathWithinApplication();
+		for (Map.Entry<PathPattern, Duration> timeout : this.timeouts.entrySet()) {
+			if (timeout.getKey().matches(path)) {
+				asyncRequest.setTimeout(timeout.getValue().toMillis());
+				return;
+			}
+		}
+	}
+
+}
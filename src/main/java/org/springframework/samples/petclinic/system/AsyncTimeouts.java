@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.Assert;
+
+/**
+ * Timeouts of asynchronous requests to individual endpoints, such as bulk imports and
+ * exports, bound from {@code petclinic.async}. Other asynchronous requests time out after
+ * {@code spring.mvc.async.request-timeout}.
+ *
+ * @param timeouts the timeouts by path pattern, such as {@code /export/*}, the first
+ * matching pattern applies
+ * @see AsyncTimeoutInterceptor
+ */
+@ConfigurationProperties("petclinic.async")
+record AsyncTimeouts(Map<String, Duration> timeouts) {
+
+	AsyncTimeouts {
+		timeouts = (timeouts != null) ? timeouts : Map.of();
+		timeouts.values()
+			.forEach(timeout -> Assert.isTrue(timeout.isPositive(), "Timeouts must be positive, not " + timeout));
+	}
+
+}
@@ -13,41 +13,57 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.samples.petclinic.system;
 
-import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import javax.cache.configuration.MutableConfiguration;
-
 /**
- * Cache configuration intended for caches providing the JCache API. This configuration
- * creates the used cache for the application and enables statistics that become
- * accessible via JMX.
+ * Cache configuration creating the caches declared in {@link CachePolicies}, each one a
+ * bounded Caffeine cache recording statistics. Spring Boot binds the statistics of every
+ * cache to Micrometer, as {@code cache.gets}, {@code cache.load.duration},
+ * {@code cache.evictions} and friends tagged with the cache name.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
-class CacheConfiguration {
+@EnableConfigurationProperties(CachePolicies.class)
+class CacheConfiguration implements CachingConfigurer {
 
+	/**
+	 * Create the caches. Background refreshes run the blocking value loaders on the
+	 * application task executor, on virtual threads when
+	 * {@code spring.threads.virtual.enabled} is set, rather than on the common fork join
+	 * pool, which is meant for computations and has one thread per core.
+	 */
 	@Bean
-	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> cm.createCache("vets", cacheConfiguration());
+	public CacheManager cacheManager(CachePolicies policies,
+			@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+			ObjectProvider<Executor> executor) {
+		Executor refreshExecutor = executor.getIfAvailable(ForkJoinPool::commonPool);
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(policies.policies()
+			.entrySet()
+			.stream()
+			.map(entry -> new RefreshAheadCaffeineCache(entry.getKey(), entry.getValue(), refreshExecutor))
+			.toList());
+		return cacheManager;
 	}
 
-	/**
-	 * Create a simple configuration that enable statistics via the JCache programmatic
-	 * configuration API.
-	 * <p>
-	 * Within the configuration object that is provided by the JCache API standard, there
-	 * is only a very limited set of configuration options. The really relevant
-	 * configuration options (like the size limit) must be set via a configuration
-	 * mechanism that is provided by the selected JCache implementation.
-	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
-		return new MutableConfiguration<>().setStatisticsEnabled(true);
+	@Override
+	public KeyGenerator keyGenerator() {
+		return new CacheKeyGenerator();
 	}
 
 }
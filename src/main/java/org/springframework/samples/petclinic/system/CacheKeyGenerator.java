@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.Method;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * {@link SimpleKeyGenerator} that replaces {@link Pageable} arguments with a compact
+ * {@link PageKey}, so that equal page requests share one entry whatever their
+ * implementation, and keys do not hold on to request objects.
+ */
+class CacheKeyGenerator implements KeyGenerator {
+
+	@Override
+	public Object generate(Object target, Method method, Object... params) {
+		Object[] normalized = params;
+		for (int i = 0; i < params.length; i++) {
+			if (params[i] instanceof Pageable pageable) {
+				if (normalized == params) {
+					normalized = params.clone();
+				}
+				normalized[i] = PageKey.of(pageable);
+			}
+		}
+		return SimpleKeyGenerator.generateKey(normalized);
+	}
+
+	/**
+	 * Cache key of a page request.
+	 *
+	 * @param offset the offset of the first element, or {@code -1} for all elements
+	 * @param size the page size, or {@code -1} for all elements
+	 * @param sort the sort order, as rendered by {@code Sort.toString()}
+	 */
+	record PageKey(long offset, int size, String sort) {
+
+		static PageKey of(Pageable pageable) {
+			String sort = pageable.getSort().toString();
+			if (pageable.isUnpaged()) {
+				return new PageKey(-1, -1, sort);
+			}
+			return new PageKey(pageable.getOffset(), pageable.getPageSize(), sort);
+		}
+
+	}
+
+}
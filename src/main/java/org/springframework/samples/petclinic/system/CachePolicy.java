@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Size and expiry policy of one cache, bound from
+ * {@code petclinic.cache.policies.<name>}. Every cache must have a maximum size, so that
+ * no key space, such as page numbers walked by a crawler, can grow a cache without
+ * bounds.
+ *
+ * @param maximumSize the maximum number of entries
+ * @param expireAfterWrite how long an entry may be served after it was loaded, or
+ * {@literal null} to keep it until it is evicted
+ * @param expireAfterAccess how long an entry may stay unread, or {@literal null} to keep
+ * it until it is evicted
+ * @param refreshAfterWrite how long after it was loaded an entry is reloaded in the
+ * background while readers keep getting the current value, or {@literal null} to never
+ * refresh. Must be shorter than {@code expireAfterWrite}.
+ * @see RefreshAheadCaffeineCache
+ */
+record CachePolicy(long maximumSize, Duration expireAfterWrite, Duration expireAfterAccess,
+		Duration refreshAfterWrite) {
+
+	CachePolicy {
+		Assert.isTrue(maximumSize > 0, "Maximum size must be positive");
+		if (refreshAfterWrite != null) {
+			Assert.isTrue(expireAfterWrite != null && refreshAfterWrite.compareTo(expireAfterWrite) < 0,
+					"Refresh after write must be shorter than expire after write");
+		}
+	}
+
+	/**
+	 * Return a Caffeine builder applying this policy and recording statistics.
+	 */
+	Caffeine<Object, Object> caffeine() {
+		Caffeine<Object, Object> caffeine = Caffeine.newBuilder().maximumSize(this.maximumSize).recordStats();
+		if (this.expireAfterWrite != null) {
+			caffeine.expireAfterWrite(this.expireAfterWrite);
+		}
+		if (this.expireAfterAccess != null) {
+			caffeine.expireAfterAccess(this.expireAfterAccess);
+		}
+		return caffeine;
+	}
+
+}
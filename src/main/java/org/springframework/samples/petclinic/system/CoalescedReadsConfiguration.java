@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.samples.petclinic.model.CoalescedReads;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+
+/**
+ * Configuration coalescing identical concurrent reads of the owner and vet repositories
+ * with {@link CoalescedReads}. Each repository is wrapped once, where it is defined, so
+ * that all the controllers and services using it share the same reads in flight.
+ */
+@Configuration(proxyBeanMethods = false)
+class CoalescedReadsConfiguration {
+
+	/**
+	 * Order of the post processor wrapping the repositories, after any other wrapping,
+	 * such as the hedging of {@link ReplicaConfiguration}, so that a coalesced read runs
+	 * all of it once.
+	 */
+	static final int ORDER = Ordered.LOWEST_PRECEDENCE;
+
+	@Bean
+	static BeanPostProcessor coalescedRepositoryReads() {
+		return new CoalescingPostProcessor();
+	}
+
+	private static final class CoalescingPostProcessor implements BeanPostProcessor, Ordered {
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof OwnerRepository owners) {
+				return CoalescedReads.coalesce(owners, OwnerRepository.class);
+			}
+			if (bean instanceof VetRepository vets) {
+				return CoalescedReads.coalesce(vets, VetRepository.class);
+			}
+			return bean;
+		}
+
+		@Override
+		public int getOrder() {
+			return ORDER;
+		}
+
+	}
+
+}
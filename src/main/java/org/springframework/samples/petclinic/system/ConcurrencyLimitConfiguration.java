@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration limiting the concurrency of the owner and vet pages, which use the
+ * database, with a {@link ConcurrencyLimitInterceptor}. The welcome page, static
+ * resources and the bulk imports and exports, which run for as long as their data takes,
+ * are not limited.
+ * <p>
+ * The limits, requests in flight and rejections of every limiter are published as
+ * {@code petclinic.concurrency.*} metrics, tagged with the limiter name: the controller
+ * method, or {@code database} for the shared limit.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ConcurrencyLimits.class)
+class ConcurrencyLimitConfiguration implements WebMvcConfigurer {
+
+	private final ConcurrencyLimits limits;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	ConcurrencyLimitConfiguration(ConcurrencyLimits limits, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.limits = limits;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		if (!this.limits.enabled()) {
+			return;
+		}
+		registry.addInterceptor(new ConcurrencyLimitInterceptor(this.limits, this.meterRegistry))
+			.addPathPatterns("/owners", "/owners/**", "/vets", "/vets/**", "/vets.html")
+			.excludePathPatterns("/owners/bulk", "/owners/import");
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.system.AdaptiveConcurrencyLimiter.Permit;
+import org.springframework.samples.petclinic.system.AdaptiveConcurrencyLimiter.Priority;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Sheds the requests of controller methods exceeding their
+ * {@link AdaptiveConcurrencyLimiter adaptive concurrency limit} with a
+ * {@code 503 Service Unavailable}, before they take a database connection.
+ * <p>
+ * A request needs a permit from the limiter of its controller method, so that a slow
+ * endpoint cannot hold all the request threads, and one from the limiter shared by all
+ * the endpoints using the database. Requests other than {@code GET} and {@code HEAD} are
+ * writes, such as booking a visit, and may use the whole database limit; reads, such as
+ * listing owners, are rejected once they use its read share.
+ * <p>
+ * Asynchronous requests, such as streamed responses, hold their permits until they
+ * complete but their latency does not change the limits.
+ */
+class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+	static final String DATABASE_LIMITER = "database";
+
+	private static final String PERMITS_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".PERMITS";
+
+	private final ConcurrencyLimits limits;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	private final AdaptiveConcurrencyLimiter database;
+
+	private final Map<String, AdaptiveConcurrencyLimiter> endpoints = new ConcurrentHashMap<>();
+
+	ConcurrencyLimitInterceptor(ConcurrencyLimits limits, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.limits = limits;
+		this.meterRegistry = meterRegistry;
+		this.database = limiter(DATABASE_LIMITER, limits.readShare());
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!(handler instanceof HandlerMethod method) || request.getDispatcherType() != DispatcherType.REQUEST) {
+			return true;
+		}
+		Priority priority = isRead(request) ? Priority.READ : Priority.WRITE;
+		Permit endpoint = this.endpoints.computeIfAbsent(name(method), name -> limiter(name, 1.0))
+			.tryAcquire(priority);
+		if (endpoint == null) {
+			return reject(response);
+		}
+		Permit database = this.database.tryAcquire(priority);
+		if (database == null) {
+			endpoint.releaseWithoutSample();
+			return reject(response);
+		}
+		request.setAttribute(PERMITS_ATTRIBUTE, new Permits(endpoint, database, true));
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		// released once the asynchronous dispatch completes
+		if (request.getAttribute(PERMITS_ATTRIBUTE) instanceof Permits permits) {
+			request.setAttribute(PERMITS_ATTRIBUTE, new Permits(permits.endpoint(), permits.database(), false));
+		}
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		if (request.getAttribute(PERMITS_ATTRIBUTE) instanceof Permits permits) {
+			request.removeAttribute(PERMITS_ATTRIBUTE);
+			permits.release();
+		}
+	}
+
+	AdaptiveConcurrencyLimiter getDatabaseLimiter() {
+		return this.database;
+	}
+
+	AdaptiveConcurrencyLimiter getEndpointLimiter(String name) {
+		return this.endpoints.get(name);
+	}
+
+	private AdaptiveConcurrencyLimiter limiter(String name, double readShare) {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(name, this.limits, readShare);
+		this.meterRegistry.ifAvailable(limiter::bindTo);
+		return limiter;
+	}
+
+	private static boolean isRead(HttpServletRequest request) {
+		String method = request.getMethod();
+		return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+	}
+
+	private static String name(HandlerMethod method) {
+		return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+	}
+
+	private static boolean reject(HttpServletResponse response) {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		return false;
+	}
+
+	private record Permits(Permit endpoint, Permit database, boolean sampled) {
+
+		void release() {
+			if (this.sampled) {
+				this.database.release();
+				this.endpoint.release();
+			}
+			else {
+				this.database.releaseWithoutSample();
+				this.endpoint.releaseWithoutSample();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.Assert;
+
+/**
+ * Bounds of the {@link AdaptiveConcurrencyLimiter adaptive concurrency limits} of the
+ * endpoints reading and writing the database, bound from
+ * {@code petclinic.concurrency-limit}.
+ *
+ * @param enabled whether requests are limited at all
+ * @param initialLimit the limit of an endpoint before any request completed
+ * @param minLimit the lowest limit, however slow the requests get
+ * @param maxLimit the highest limit, however fast the requests are
+ * @param readShare the share of the database limit that reads may use, the rest is kept
+ * for writes
+ */
+@ConfigurationProperties("petclinic.concurrency-limit")
+record ConcurrencyLimits(@DefaultValue("true") boolean enabled, @DefaultValue("20") int initialLimit,
+		@DefaultValue("2") int minLimit, @DefaultValue("200") int maxLimit, @DefaultValue("0.8") double readShare) {
+
+	ConcurrencyLimits {
+		Assert.isTrue(minLimit > 0, "Minimum limit must be positive");
+		Assert.isTrue(minLimit <= initialLimit && initialLimit <= maxLimit,
+				"Initial limit must be between the minimum and maximum limits");
+		Assert.isTrue(readShare > 0 && readShare <= 1, "Read share must be in (0, 1]");
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.samples.petclinic.model.HedgedReads;
+import org.springframework.util.Assert;
+
+/**
+ * Hedging of slow owner reads across the read replicas, bound from
+ * {@code petclinic.hedged-reads}, see {@link HedgedReads}.
+ *
+ * @param enabled whether slow reads are hedged
+ * @param minDelay how long reads run at least before they are hedged
+ * @param budget the share of reads that may be hedged
+ */
+@ConfigurationProperties("petclinic.hedged-reads")
+record HedgedReadProperties(@DefaultValue("true") boolean enabled, @DefaultValue("5ms") Duration minDelay,
+		@DefaultValue("0.1") double budget) {
+
+	HedgedReadProperties {
+		Assert.isTrue(!minDelay.isNegative(), "Minimum delay must not be negative");
+		Assert.isTrue(budget >= 0 && budget <= 1, "Budget must be between 0 and 1");
+	}
+
+}
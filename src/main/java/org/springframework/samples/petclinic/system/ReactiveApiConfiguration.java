@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Configuration of the reactive read API: the {@link RouterFunction} beans of the
+ * application, served by a {@link ReactiveApiServer} on
+ * {@code petclinic.reactive-api.port} (8081 by default) with the JSON settings of the MVC
+ * pages.
+ */
+@Configuration(proxyBeanMethods = false)
+class ReactiveApiConfiguration {
+
+	@Bean
+	ReactiveApiServer reactiveApiServer(ObjectProvider<RouterFunction<ServerResponse>> routes,
+			ObjectMapper objectMapper, ServerProperties serverProperties,
+			@Value("${petclinic.reactive-api.port:8081}") int port) {
+		HandlerStrategies strategies = HandlerStrategies.builder().codecs(codecs -> {
+			codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+			codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+		}).build();
+		// without routes every request is answered with 404
+		RouterFunction<ServerResponse> route = routes.orderedStream()
+			.reduce(RouterFunction::and)
+			.orElse(request -> Mono.empty());
+		boolean randomPort = Integer.valueOf(0).equals(serverProperties.getPort());
+		return new ReactiveApiServer(RouterFunctions.toHttpHandler(route, strategies), randomPort ? 0 : port);
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Reactor Netty server running next to the servlet container, on its own port, for the
+ * reactive read API.
+ * <p>
+ * Requests are handled on the Netty event loops, so a client that is slow to send its
+ * request or to read the response holds a connection and some buffers, but no thread. The
+ * server starts once the servlet container is up, so tests using a mock servlet
+ * environment do not open a port, and it uses a random port whenever the servlet
+ * container does.
+ */
+class ReactiveApiServer implements ApplicationListener<ServletWebServerInitializedEvent>, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(ReactiveApiServer.class);
+
+	private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+	private final HttpHandler handler;
+
+	private final int port;
+
+	private volatile DisposableServer server;
+
+	/**
+	 * Create a new {@link ReactiveApiServer}.
+	 * @param handler the handler of all requests
+	 * @param port the port to listen on, {@code 0} for a random port
+	 */
+	ReactiveApiServer(HttpHandler handler, int port) {
+		this.handler = handler;
+		this.port = port;
+	}
+
+	@Override
+	public void onApplicationEvent(ServletWebServerInitializedEvent event) {
+		// a management server on its own port publishes an event from its own namespace
+		if (event.getApplicationContext().getServerNamespace() != null || this.server != null) {
+			return;
+		}
+		this.server = HttpServer.create().port(this.port).handle(new ReactorHttpHandlerAdapter(this.handler)).bindNow();
+		logger.info("Reactive API started on port " + this.server.port());
+	}
+
+	/**
+	 * Return the port the server listens on.
+	 * @return the port, or {@code -1} if the server is not running
+	 */
+	int getPort() {
+		DisposableServer server = this.server;
+		return server != null ? server.port() : -1;
+	}
+
+	@Override
+	public void destroy() {
+		DisposableServer server = this.server;
+		if (server != null) {
+			server.disposeNow(SHUTDOWN_TIMEOUT);
+			this.server = null;
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.samples.petclinic.model.ReferenceData;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint showing the reference data held in memory, and reloading it after the
+ * underlying tables were changed outside of the application.
+ */
+@Component
+@Endpoint(id = "referencedata")
+class ReferenceDataEndpoint {
+
+	private final List<ReferenceData<?>> referenceData;
+
+	ReferenceDataEndpoint(List<ReferenceData<?>> referenceData) {
+		this.referenceData = referenceData;
+	}
+
+	@ReadOperation
+	Map<String, Integer> sizes() {
+		Map<String, Integer> sizes = new LinkedHashMap<>();
+		for (ReferenceData<?> data : this.referenceData) {
+			sizes.put(data.getName(), data.findAll().size());
+		}
+		return sizes;
+	}
+
+	@WriteOperation
+	Map<String, Integer> refresh() {
+		this.referenceData.forEach(ReferenceData::refresh);
+		return sizes();
+	}
+
+}
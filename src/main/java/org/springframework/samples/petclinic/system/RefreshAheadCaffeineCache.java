@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * {@link CaffeineCache} applying a {@link CachePolicy}, including its refresh interval.
+ * <p>
+ * When an entry older than the refresh interval is read through
+ * {@link #get(Object, Callable)}, as {@code @Cacheable(sync = true)} does, the reader
+ * gets the current value right away and the value loader of that reader reloads the entry
+ * in the background. Only one refresh per entry runs at a time. If it fails the entry is
+ * kept until the next read tries again or it expires. Plain lookups never trigger a
+ * refresh, and refreshes are not counted as loads in the cache statistics.
+ */
+class RefreshAheadCaffeineCache extends CaffeineCache {
+
+	private static final Log logger = LogFactory.getLog(RefreshAheadCaffeineCache.class);
+
+	private final long refreshAfterNanos;
+
+	private final Ticker ticker;
+
+	private final Executor executor;
+
+	RefreshAheadCaffeineCache(String name, CachePolicy policy, Executor executor) {
+		this(name, policy, Ticker.systemTicker(), executor);
+	}
+
+	RefreshAheadCaffeineCache(String name, CachePolicy policy, Ticker ticker, Executor executor) {
+		super(name, policy.caffeine().ticker(ticker).build());
+		this.refreshAfterNanos = (policy.refreshAfterWrite() != null) ? policy.refreshAfterWrite().toNanos() : 0;
+		this.ticker = ticker;
+		this.executor = executor;
+	}
+
+	@Override
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		if (this.refreshAfterNanos > 0 && getNativeCache().policy().getIfPresentQuietly(key) instanceof Written written
+				&& written.claimRefresh(this.ticker.read() - this.refreshAfterNanos)) {
+			this.executor.execute(() -> refresh(key, written, valueLoader));
+		}
+		return super.get(key, valueLoader);
+	}
+
+	private void refresh(Object key, Written written, Callable<?> valueLoader) {
+		try {
+			if (getNativeCache().policy().getIfPresentQuietly(key) != written) {
+				// evicted or replaced since the refresh was claimed
+				return;
+			}
+			// loaded outside of the map, so that writers of the entry do not wait for the
+			// database; readers keep getting the current value until it is replaced, and a
+			// value written or evicted in the meantime is kept
+			getNativeCache().asMap().replace(key, written, load(key, valueLoader));
+		}
+		catch (RuntimeException ex) {
+			written.releaseRefresh();
+			logger.warn("Failed to refresh entry " + key + " of cache " + getName(), ex);
+		}
+	}
+
+	private Object load(Object key, Callable<?> valueLoader) {
+		try {
+			return toStoreValue(valueLoader.call());
+		}
+		catch (Exception ex) {
+			throw new ValueRetrievalException(key, valueLoader, ex);
+		}
+	}
+
+	@Override
+	protected Object toStoreValue(Object userValue) {
+		Object storeValue = super.toStoreValue(userValue);
+		return (this.refreshAfterNanos > 0) ? new Written(storeValue, this.ticker.read()) : storeValue;
+	}
+
+	@Override
+	protected Object fromStoreValue(Object storeValue) {
+		return super.fromStoreValue((storeValue instanceof Written written) ? written.value : storeValue);
+	}
+
+	/**
+	 * A cached value and the time it was loaded.
+	 */
+	private static final class Written {
+
+		private final Object value;
+
+		private final long writeTime;
+
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		private Written(Object value, long writeTime) {
+			this.value = value;
+			this.writeTime = writeTime;
+		}
+
+		boolean claimRefresh(long writtenBefore) {
+			return this.writeTime <= writtenBefore && this.refreshing.compareAndSet(false, true);
+		}
+
+		void releaseRefresh() {
+			this.refreshing.set(false);
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.samples.petclinic.model.HedgedReads;
+import org.springframework.samples.petclinic.model.ReadYourWrites;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSavedEvent;
+import org.springframework.samples.petclinic.owner.VisitAddedEvent;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Configuration routing read-only transactions to the read replicas declared in
+ * {@link ReplicaProperties}, active once {@code petclinic.datasource.replicas[0].url}
+ * is set.
+ * <p>
+ * The application {@link DataSource} hands out connections lazily: a transaction only
+ * takes one when it runs its first statement, through the
+ * {@link ReplicaRoutingDataSource}. Hibernate gives connections back at the end of every
+ * transaction, rather than keeping them for the whole request as the open
+ * {@code EntityManager} of the view otherwise would, so that each transaction is routed
+ * on its own. Replica pools take their driver and sizing from {@code spring.datasource}.
+ * Saving an owner or booking a visit keeps the user on the primary for
+ * {@code petclinic.datasource.max-lag}.
+ * <p>
+ * Slow owner reads are hedged on another replica or the primary, see
+ * {@link HedgedReadProperties}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "petclinic.datasource.replicas[0]", name = "url")
+@EnableConfigurationProperties({ ReplicaProperties.class, HedgedReadProperties.class })
+class ReplicaConfiguration {
+
+	private final ReplicaProperties properties;
+
+	ReplicaConfiguration(ReplicaProperties properties) {
+		this.properties = properties;
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+			DataSourceProperties dataSourceProperties, ReplicaProperties properties) {
+		List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+		for (ReplicaProperties.Replica replica : properties.replicas()) {
+			String name = "replica-" + (replicas.size() + 1);
+			replicas.add(new ReplicaRoutingDataSource.Replica(name,
+					replicaPool(name, replica, primaryDataSource, dataSourceProperties)));
+		}
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+				properties.maxLag(), properties.lagQuery(), properties.unknownLagAsZero());
+		dataSource.start(properties.healthCheckInterval());
+		return dataSource;
+	}
+
+	private static HikariDataSource replicaPool(String name, ReplicaProperties.Replica replica,
+			HikariDataSource primary, DataSourceProperties properties) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setPoolName(name);
+		pool.setJdbcUrl(replica.url());
+		pool.setDriverClassName(properties.determineDriverClassName());
+		pool.setUsername((replica.username() != null) ? replica.username() : primary.getUsername());
+		pool.setPassword((replica.password() != null) ? replica.password() : primary.getPassword());
+		pool.setDataSourceProperties(primary.getDataSourceProperties());
+		pool.setMaximumPoolSize(primary.getMaximumPoolSize());
+		pool.setConnectionTimeout(primary.getConnectionTimeout());
+		pool.setReadOnly(true);
+		return pool;
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+	@Bean
+	HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+		return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+				PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "petclinic.hedged-reads", name = "enabled", matchIfMissing = true)
+	HedgedReads hedgedReads(HedgedReadProperties properties) {
+		return new HedgedReads(properties.minDelay(), properties.budget());
+	}
+
+	@Bean
+	static BeanPostProcessor hedgedOwnerReads(ObjectProvider<HedgedReads> hedgedReads) {
+		return new HedgingPostProcessor(hedgedReads);
+	}
+
+	@EventListener
+	public void onOwnerSaved(OwnerSavedEvent event) {
+		ReadYourWrites.recordWrite(this.properties.maxLag());
+	}
+
+	@EventListener
+	public void onVisitAdded(VisitAddedEvent event) {
+		ReadYourWrites.recordWrite(this.properties.maxLag());
+	}
+
+	private static final class HedgingPostProcessor implements BeanPostProcessor, Ordered {
+
+		private final ObjectProvider<HedgedReads> hedgedReads;
+
+		HedgingPostProcessor(ObjectProvider<HedgedReads> hedgedReads) {
+			this.hedgedReads = hedgedReads;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			HedgedReads reads = (bean instanceof OwnerRepository) ? this.hedgedReads.getIfAvailable() : null;
+			// outside of the repository, so that each run starts its own transaction
+			return (reads != null) ? reads.hedge((OwnerRepository) bean, OwnerRepository.class) : bean;
+		}
+
+		@Override
+		public int getOrder() {
+			// inside the coalescing, so that callers sharing a read share its hedge
+			return CoalescedReadsConfiguration.ORDER - 1;
+		}
+
+	}
+
+}
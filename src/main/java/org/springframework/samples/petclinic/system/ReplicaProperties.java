@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.Assert;
+
+/**
+ * Read replicas of the database, bound from {@code petclinic.datasource}. Read-only
+ * transactions go to a replica that is up and lags behind the primary by at most
+ * {@code maxLag}, other transactions go to the primary.
+ * <p>
+ * The lag is measured with {@code lagQuery}, which returns the lag of the replica it
+ * runs on in seconds, for example
+ * {@code SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())} on
+ * PostgreSQL. Without it, replicas are assumed to be up to date. A replica whose lag query
+ * returns no row or {@literal null}, such as a PostgreSQL replica that has not replayed
+ * anything yet, is not read from unless {@code unknownLagAsZero} is set.
+ *
+ * @param replicas the replicas, using the driver of {@code spring.datasource}
+ * @param maxLag the maximum lag of a replica to read from, also how long users who saved
+ * something keep reading from the primary
+ * @param lagQuery the query returning the lag of a replica in seconds, or {@literal null}
+ * @param unknownLagAsZero whether to read from a replica whose lag query returns no row or
+ * {@literal null}, as if it were up to date
+ * @param healthCheckInterval how often replicas are checked
+ */
+@ConfigurationProperties("petclinic.datasource")
+record ReplicaProperties(List<Replica> replicas, @DefaultValue("10s") Duration maxLag, String lagQuery,
+		boolean unknownLagAsZero, @DefaultValue("5s") Duration healthCheckInterval) {
+
+	ReplicaProperties {
+		replicas = (replicas != null) ? List.copyOf(replicas) : List.of();
+		Assert.isTrue(!healthCheckInterval.isNegative() && !healthCheckInterval.isZero(),
+				"Health check interval must be positive");
+	}
+
+	/**
+	 * Connection settings of one replica.
+	 *
+	 * @param url the JDBC url of the replica
+	 * @param username the user, or {@literal null} to use the one of the primary
+	 * @param password the password, or {@literal null} to use the one of the primary
+	 */
+	record Replica(String url, String username, String password) {
+
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.samples.petclinic.model.HedgedReads;
+import org.springframework.samples.petclinic.model.ReadYourWrites;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link DataSource} handing out connections of the replicas, in turn, to read-only
+ * transactions, and connections of the primary to everything else.
+ * <p>
+ * A replica serves reads while its last health check found it up and lagging behind the
+ * primary by at most the maximum lag. A replica whose lag query returns no row or
+ * {@literal null} has an unknown lag and does not serve reads, unless configured to
+ * consider it up to date. A replica that fails to hand out a connection is
+ * skipped until its next successful health check. Reads fall back to the primary when no
+ * replica can serve them, and when {@link ReadYourWrites} requires it, such as right
+ * after the user saved an owner. The hedge of a slow read, see {@link HedgedReads}, goes
+ * to a replica the first run does not use, or else to the primary.
+ * <p>
+ * Transactions take their connection before they are flagged read-only, so this data
+ * source must be used through a {@link LazyConnectionDataSourceProxy}, which only takes
+ * a connection when the first statement runs.
+ */
+class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(ReplicaRoutingDataSource.class);
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final DataSource primary;
+
+	private final List<Replica> replicas;
+
+	private final Duration maxLag;
+
+	private final String lagQuery;
+
+	private final boolean unknownLagAsZero;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final LongAdder primaryReads = new LongAdder();
+
+	private ScheduledExecutorService healthChecks;
+
+	/**
+	 * Create a new {@link ReplicaRoutingDataSource}.
+	 * @param primary the primary database, for writes and reads no replica can serve
+	 * @param replicas the replicas, by name
+	 * @param maxLag the maximum lag of a replica to read from
+	 * @param lagQuery the query returning the lag of a replica in seconds, or
+	 * {@literal null} to consider replicas up to date
+	 * @param unknownLagAsZero whether to consider a replica whose lag query returns no row
+	 * or {@literal null} up to date, rather than not read from it
+	 */
+	ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Duration maxLag, String lagQuery,
+			boolean unknownLagAsZero) {
+		this.primary = primary;
+		this.replicas = List.copyOf(replicas);
+		this.maxLag = maxLag;
+		this.lagQuery = lagQuery;
+		this.unknownLagAsZero = unknownLagAsZero;
+	}
+
+	/**
+	 * Check the replicas now and then in the background at the given interval.
+	 * @param interval the time between two health checks
+	 */
+	void start(Duration interval) {
+		checkReplicas();
+		this.healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.healthChecks.scheduleWithFixedDelay(this::checkReplicas, interval.toMillis(), interval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return this.primary.getConnection();
+		}
+		HedgedReads.Attempt attempt = HedgedReads.currentAttempt();
+		if (!ReadYourWrites.isPrimaryRequired()) {
+			int start = this.next.getAndIncrement();
+			for (int i = 0; i < this.replicas.size(); i++) {
+				Replica replica = this.replicas.get(Math.floorMod(start + i, this.replicas.size()));
+				if (replica.isAvailable(this.maxLag) && (attempt == null || attempt.claim(replica))) {
+					try {
+						return HedgedReads.cancellable(replica.dataSource().getConnection());
+					}
+					catch (SQLException ex) {
+						replica.down(ex);
+					}
+				}
+			}
+		}
+		this.primaryReads.increment();
+		return HedgedReads.cancellable(this.primary.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Connections use the credentials of their pools");
+	}
+
+	/**
+	 * Check whether every replica is up and how far it lags behind.
+	 */
+	void checkReplicas() {
+		for (Replica replica : this.replicas) {
+			try (Connection connection = replica.dataSource().getConnection()) {
+				if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+					throw new SQLException("Connection is not valid");
+				}
+				replica.up(lag(connection));
+			}
+			catch (SQLException | RuntimeException ex) {
+				replica.down(ex);
+			}
+		}
+	}
+
+	private Duration lag(Connection connection) throws SQLException {
+		if (this.lagQuery == null) {
+			return Duration.ZERO;
+		}
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(this.lagQuery)) {
+			// no result, or null, when the replica has not replayed anything yet or is
+			// not a replica at all, so it may be arbitrarily far behind
+			if (!result.next()) {
+				return unknownLag();
+			}
+			double seconds = result.getDouble(1);
+			if (result.wasNull()) {
+				return unknownLag();
+			}
+			return Duration.ofMillis((long) (Math.max(seconds, 0) * 1000));
+		}
+	}
+
+	private Duration unknownLag() {
+		return this.unknownLagAsZero ? Duration.ZERO : null;
+	}
+
+	List<Replica> getReplicas() {
+		return this.replicas;
+	}
+
+	/**
+	 * Return the number of read-only transactions that went to the primary.
+	 */
+	long getPrimaryReads() {
+		return this.primaryReads.sum();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.healthChecks != null) {
+			this.healthChecks.shutdownNow();
+		}
+		for (Replica replica : this.replicas) {
+			if (replica.dataSource() instanceof AutoCloseable pool) {
+				try {
+					pool.close();
+				}
+				catch (Exception ex) {
+					logger.warn("Failed to close replica " + replica.name(), ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A replica and the outcome of its last health check.
+	 */
+	static final class Replica {
+
+		private final String name;
+
+		private final DataSource dataSource;
+
+		private volatile boolean up;
+
+		private volatile Duration lag = Duration.ZERO;
+
+		Replica(String name, DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+
+		String name() {
+			return this.name;
+		}
+
+		DataSource dataSource() {
+			return this.dataSource;
+		}
+
+		boolean isUp() {
+			return this.up;
+		}
+
+		/**
+		 * Return the lag found by the last health check, or {@literal null} if unknown.
+		 */
+		Duration getLag() {
+			return this.lag;
+		}
+
+		boolean isAvailable(Duration maxLag) {
+			Duration lag = this.lag;
+			return this.up && lag != null && lag.compareTo(maxLag) <= 0;
+		}
+
+		void up(Duration lag) {
+			if (!this.up) {
+				logger.info("Replica " + this.name + " is up, lagging "
+						+ ((lag != null) ? lag.toMillis() + " ms" : "an unknown time") + " behind");
+			}
+			this.lag = lag;
+			this.up = true;
+		}
+
+		void down(Exception ex) {
+			if (this.up) {
+				logger.warn("Replica " + this.name + " is down, reading from the primary", ex);
+			}
+			this.up = false;
+		}
+
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.List;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link VetStreamRepository} for the reactive API, reading
+ * vets with their specialties through R2DBC. Vets are emitted as their rows arrive, so
+ * the query only moves as fast as clients consume the vets.
+ */
+@Component
+class ReactiveVetRepository {
+
+	// same columns and order as VetStreamRepositoryImpl, to build vets the same way
+	private static final String FIND_ALL = """
+			SELECT v.id, v.first_name, v.last_name, s.id, s.name FROM vets v
+			LEFT JOIN vet_specialties vs ON vs.vet_id = v.id LEFT JOIN specialties s ON s.id = vs.specialty_id
+			ORDER BY v.id""";
+
+	private final DatabaseClient databaseClient;
+
+	private final SpecialtyReferenceData specialties;
+
+	ReactiveVetRepository(DatabaseClient databaseClient, SpecialtyReferenceData specialties) {
+		this.databaseClient = databaseClient;
+		this.specialties = specialties;
+	}
+
+	/**
+	 * Retrieve all {@link Vet}s with their specialties, ordered by id.
+	 */
+	Flux<Vet> findAll() {
+		return this.databaseClient.sql(FIND_ALL)
+			.map(row -> new Object[] { row.get(0, Integer.class), row.get(1, String.class), row.get(2, String.class),
+					row.get(3, Integer.class), row.get(4, String.class) })
+			.all()
+			.bufferUntilChanged(row -> row[0])
+			.map(this::vet);
+	}
+
+	private Vet vet(List<Object[]> rows) {
+		Vet vet = VetStreamRepositoryImpl.vet(rows.get(0));
+		rows.forEach(row -> VetStreamRepositoryImpl.add(vet, row, this.specialties));
+		return vet;
+	}
+
+}
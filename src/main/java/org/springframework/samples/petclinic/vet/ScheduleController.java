@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import jakarta.validation.Valid;
+
+/**
+ * Finds free slots of vets and schedules visits with them.
+ *
+ * @see VetSchedule
+ */
+@Controller
+class ScheduleController {
+
+	private static final int MAX_DAYS = 90;
+
+	private final VetSchedule schedule;
+
+	ScheduleController(VetSchedule schedule) {
+		this.schedule = schedule;
+	}
+
+	@InitBinder("visit")
+	public void setAllowedFields(WebDataBinder dataBinder) {
+		dataBinder.setDisallowedFields("id", "vetId");
+	}
+
+	/**
+	 * Find the earliest free slot of any vet having all the given specialties, for
+	 * example {@code /vets/slots?specialty=surgery&duration=30&days=7}.
+	 * @param specialties the specialty names, any vet if empty
+	 * @param duration the length of the slot in minutes
+	 * @param days the number of days to search, starting today
+	 * @return the slot, or 404 if all matching vets are busy
+	 */
+	@GetMapping(value = "/vets/slots", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Slot> findEarliestSlot(
+			@RequestParam(name = "specialty", defaultValue = "") List<String> specialties,
+			@RequestParam(name = "duration", defaultValue = "30") int duration,
+			@RequestParam(name = "days", defaultValue = "7") int days) {
+		if (duration <= 0 || days <= 0 || days > MAX_DAYS) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity
+			.of(this.schedule.findEarliestSlot(specialties, LocalDateTime.now(), days, Duration.ofMinutes(duration)));
+	}
+
+	/**
+	 * Schedule a visit of a pet with the given vet.
+	 * @return 201 pointing to the owner of the pet, 400 if the vet does not exist or the
+	 * visit is in the past or outside the opening hours, 404 if the owner has no such pet,
+	 * or 409 if the vet is busy at that time
+	 */
+	@PostMapping("/vets/{vetId}/appointments")
+	public ResponseEntity<Void> book(@PathVariable("vetId") int vetId, @RequestParam("ownerId") int ownerId,
+			@RequestParam("petId") int petId, @Valid Visit visit, BindingResult result) {
+		if (result.hasErrors() || visit.getDate() == null || visit.getStartTime() == null
+				|| visit.getEndTime() == null || !this.schedule.isOpen(visit.getStartTime(), visit.getEndTime())
+				|| !this.schedule.isBookable(vetId, visit.getDate(), visit.getStartTime())) {
+			return ResponseEntity.badRequest().build();
+		}
+		if (!this.schedule.hasPet(ownerId, petId)) {
+			return ResponseEntity.notFound().build();
+		}
+		visit.setVetId(vetId);
+		if (!this.schedule.book(ownerId, petId, visit)) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		URI owner = UriComponentsBuilder.fromPath("/owners/{ownerId}").buildAndExpand(ownerId).toUri();
+		return ResponseEntity.created(owner).build();
+	}
+
+}
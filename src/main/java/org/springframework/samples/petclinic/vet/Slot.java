@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Free time of a vet, long enough for a visit.
+ *
+ * @param vetId the id of the free vet
+ * @param date the date of the slot
+ * @param startTime the start of the slot
+ * @param endTime the end of the slot
+ * @see VetSchedule#findEarliestSlot(java.util.Collection, java.time.LocalDateTime, int,
+ * java.time.Duration)
+ */
+public record Slot(int vetId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+
+}
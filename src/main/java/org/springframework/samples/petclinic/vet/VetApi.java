@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes of the reactive vet API. The vets are written as a JSON array, or one per line
+ * when {@code application/x-ndjson} is requested, as they are read from the database.
+ */
+@Configuration(proxyBeanMethods = false)
+class VetApi {
+
+	@Bean
+	RouterFunction<ServerResponse> vetApiRoutes(ReactiveVetRepository vets) {
+		return route(GET("/api/vets"), request -> {
+			MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+					? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+			return ServerResponse.ok().contentType(contentType).body(vets.findAll(), Vet.class);
+		});
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The busy time of one vet, as intervals of minutes that never overlap.
+ * <p>
+ * Since booked intervals cannot overlap, they are ordered by their start as well as by
+ * their end, and a sorted map from start to end is all the interval tree we need: the
+ * only interval that can overlap a new one is the last one starting before it ends, and
+ * free time is the gaps between consecutive entries.
+ * <p>
+ * Each calendar has its own lock, so bookings with different vets never contend.
+ *
+ * @see VetCalendars
+ */
+final class VetCalendar {
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final NavigableMap<Long, Long> busy = new TreeMap<>();
+
+	/**
+	 * Mark the given interval as busy, unless it overlaps a busy one.
+	 * @param start the first minute of the interval
+	 * @param end the minute after the last minute of the interval
+	 * @return {@literal false} if the interval overlaps one booked before, in which case
+	 * nothing changed
+	 */
+	boolean book(long start, long end) {
+		this.lock.writeLock().lock();
+		try {
+			Map.Entry<Long, Long> before = this.busy.lowerEntry(end);
+			if (before != null && before.getValue() > start) {
+				return false;
+			}
+			this.busy.put(start, end);
+			return true;
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Free the given interval, previously booked with {@link #book(long, long)}.
+	 */
+	void release(long start, long end) {
+		this.lock.writeLock().lock();
+		try {
+			this.busy.remove(start, end);
+		}
+		finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the first minute at or after {@code from} starting a free interval of the
+	 * given length that ends no later than {@code until}.
+	 * @return the first minute of the free interval, or {@literal -1} if there is none
+	 */
+	long firstFree(long from, long until, long length) {
+		this.lock.readLock().lock();
+		try {
+			long candidate = from;
+			Map.Entry<Long, Long> before = this.busy.floorEntry(candidate);
+			if (before != null && before.getValue() > candidate) {
+				candidate = before.getValue();
+			}
+			for (Map.Entry<Long, Long> next : this.busy.tailMap(candidate, true).entrySet()) {
+				if (candidate + length > until) {
+					return -1;
+				}
+				if (next.getKey() >= candidate + length) {
+					return candidate;
+				}
+				candidate = next.getValue();
+			}
+			return (candidate + length <= until) ? candidate : -1;
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of busy intervals.
+	 */
+	int size() {
+		this.lock.readLock().lock();
+		try {
+			return this.busy.size();
+		}
+		finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * The {@link VetCalendar}s of all vets, answering which vet is free first within the
+ * opening hours of the clinic.
+ * <p>
+ * Times are kept as minutes since the epoch in local time, so slots do not shift with
+ * daylight saving time. Vets without a calendar have no booked visits.
+ *
+ * @see VetSchedule
+ */
+final class VetCalendars {
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	private final ConcurrentMap<Integer, VetCalendar> calendars = new ConcurrentHashMap<>();
+
+	private final LocalTime opens;
+
+	private final LocalTime closes;
+
+	VetCalendars(LocalTime opens, LocalTime closes) {
+		Assert.isTrue(opens.isBefore(closes), "Opening hours must end after they start");
+		this.opens = opens;
+		this.closes = closes;
+	}
+
+	/**
+	 * Return whether the given times are within the opening hours.
+	 */
+	boolean isOpen(LocalTime start, LocalTime end) {
+		return !start.isBefore(this.opens) && !end.isAfter(this.closes) && start.isBefore(end);
+	}
+
+	/**
+	 * Book the given vet for the given time, unless it is already booked.
+	 * @return {@literal false} if the vet is busy at that time, in which case nothing
+	 * changed
+	 */
+	boolean book(int vetId, LocalDate date, LocalTime start, LocalTime end) {
+		Assert.isTrue(start.isBefore(end), "Visits must end after they start");
+		return this.calendars.computeIfAbsent(vetId, id -> new VetCalendar())
+			.book(minute(date, start), minute(date, end));
+	}
+
+	/**
+	 * Free the given vet for the given time, booked before with
+	 * {@link #book(int, LocalDate, LocalTime, LocalTime)}.
+	 */
+	void release(int vetId, LocalDate date, LocalTime start, LocalTime end) {
+		VetCalendar calendar = this.calendars.get(vetId);
+		if (calendar != null) {
+			calendar.release(minute(date, start), minute(date, end));
+		}
+	}
+
+	/**
+	 * Find the earliest free slot of the given length among the given vets, within the
+	 * opening hours.
+	 * @param vetIds the ids of the vets to consider, on equal times the first one wins
+	 * @param from the earliest start of the slot
+	 * @param until the day after the last day of the slot
+	 * @param minutes the length of the slot in minutes
+	 * @return the earliest slot, if any
+	 */
+	Optional<Slot> findEarliest(int[] vetIds, LocalDateTime from, LocalDate until, int minutes) {
+		Assert.isTrue(minutes > 0, "Slots must not be empty");
+		long earliest = minute(from.toLocalDate(), from.toLocalTime());
+		for (LocalDate date = from.toLocalDate(); date.isBefore(until); date = date.plusDays(1)) {
+			long opens = Math.max(minute(date, this.opens), earliest);
+			long closes = minute(date, this.closes);
+			if (opens + minutes > closes) {
+				continue;
+			}
+			long best = -1;
+			int bestVetId = 0;
+			for (int vetId : vetIds) {
+				// only look for slots starting before the best one so far
+				long latestEnd = (best < 0) ? closes : best - 1 + minutes;
+				VetCalendar calendar = this.calendars.get(vetId);
+				long start = (calendar != null) ? calendar.firstFree(opens, latestEnd, minutes) : opens;
+				if (start >= 0) {
+					best = start;
+					bestVetId = vetId;
+					if (best == opens) {
+						break;
+					}
+				}
+			}
+			if (best >= 0) {
+				return Optional.of(new Slot(bestVetId, date, time(best), time(best + minutes)));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Return the number of booked visits.
+	 */
+	int size() {
+		return this.calendars.values().stream().mapToInt(VetCalendar::size).sum();
+	}
+
+	private static long minute(LocalDate date, LocalTime time) {
+		return date.toEpochDay() * MINUTES_PER_DAY + time.toSecondOfDay() / 60;
+	}
+
+	private static LocalTime time(long minute) {
+		return LocalTime.ofSecondOfDay(Math.floorMod(minute, MINUTES_PER_DAY) * 60L);
+	}
+
+}
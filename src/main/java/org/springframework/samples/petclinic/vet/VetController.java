@@ -15,16 +15,34 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.model.JsonStreamFormat;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * @author Juergen Hoeller
@@ -35,14 +53,36 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Controller
 class VetController {
 
+	private static final int PAGE_SIZE = 5;
+
 	private final VetRepository vetRepository;
 
-	public VetController(VetRepository clinicService) {
+	private final VetsResponseCache responses;
+
+	private final ContentNegotiationManager contentNegotiationManager;
+
+	private final ObjectMapper objectMapper;
+
+	private final VetSpecialtySearch specialtySearch;
+
+	public VetController(VetRepository clinicService, VetsResponseCache responses,
+			ContentNegotiationManager contentNegotiationManager, ObjectMapper objectMapper,
+			VetSpecialtySearch specialtySearch) {
 		this.vetRepository = clinicService;
+		this.responses = responses;
+		this.contentNegotiationManager = contentNegotiationManager;
+		this.objectMapper = objectMapper;
+		this.specialtySearch = specialtySearch;
 	}
 
 	@GetMapping("/vets.html")
-	public String showVetList(@RequestParam(defaultValue = "1") int page, Model model) {
+	public String showVetList(@RequestParam(defaultValue = "1") int page, @RequestParam(required = false) String cursor,
+			Model model) {
+		if (cursor != null) {
+			// continue after the cursor instead of counting and skipping rows
+			Slice<Vet> paginated = this.vetRepository.findAllAfter(decodeCursor(cursor), PAGE_SIZE);
+			return addKeysetPaginationModel(paginated, model);
+		}
 		// Here we are returning an object of type 'Vets' rather than a collection of Vet
 		// objects so it is simpler for Object-Xml mapping
 		Vets vets = new Vets();
@@ -57,22 +97,132 @@ class VetController {
 		model.addAttribute("totalPages", paginated.getTotalPages());
 		model.addAttribute("totalItems", paginated.getTotalElements());
 		model.addAttribute("listVets", listVets);
+		model.addAttribute("nextCursor", nextCursor(paginated));
 		return "vets/vetList";
 	}
 
+	private String addKeysetPaginationModel(Slice<Vet> paginated, Model model) {
+		model.addAttribute("listVets", paginated.getContent());
+		model.addAttribute("nextCursor", nextCursor(paginated));
+		return "vets/vetList";
+	}
+
+	private String nextCursor(Slice<Vet> paginated) {
+		if (!paginated.hasNext()) {
+			return null;
+		}
+		List<Vet> content = paginated.getContent();
+		return PersonCursor.after(content.get(content.size() - 1)).encode();
+	}
+
+	/**
+	 * Decode the cursor of a keyset paginated request, answering a tampered or truncated
+	 * one with a 400 rather than a server error.
+	 */
+	private static PersonCursor decodeCursor(String cursor) {
+		try {
+			return PersonCursor.decode(cursor);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", ex);
+		}
+	}
+
 	private Page<Vet> findPaginated(int page) {
-		int pageSize = 5;
-		Pageable pageable = PageRequest.of(page - 1, pageSize);
+		Pageable pageable = PageRequest.of(page - 1, PAGE_SIZE, Sort.by("lastName", "id"));
 		return vetRepository.findAll(pageable);
 	}
 
-	@GetMapping({ "/vets" })
-	public @ResponseBody Vets showResourcesVetList() {
-		// Here we are returning an object of type 'Vets' rather than a collection of Vet
-		// objects so it is simpler for JSon/Object mapping
+	/**
+	 * Serve all vets as JSON or XML from the {@link VetsResponseCache}, gzipped if the
+	 * client accepts it, with a strong entity tag answering conditional requests with
+	 * {@code 304 Not Modified}.
+	 */
+	@GetMapping(value = "/vets", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE })
+	public ResponseEntity<byte[]> showResourcesVetList(NativeWebRequest request,
+			@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+			throws HttpMediaTypeNotAcceptableException {
+		VetsResponseCache.Representation vets = this.responses.get(negotiate(request));
+		boolean gzip = acceptsGzip(acceptEncoding);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+			.contentType(vets.contentType())
+			.eTag(vets.eTag(gzip))
+			.varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(vets.gzippedBody());
+		}
+		return response.body(vets.body());
+	}
+
+	/**
+	 * Stream all vets from a database cursor as JSON, in the same shape as
+	 * {@link #showResourcesVetList}, or as newline delimited JSON, holding one vet in
+	 * memory at a time. For vet lists too large to keep in the {@link VetsResponseCache}.
+	 */
+	@GetMapping(value = "/vets", params = "stream",
+			produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamResourcesVetList(NativeWebRequest request)
+			throws HttpMediaTypeNotAcceptableException {
+		JsonStreamFormat format = JsonStreamFormat.negotiate(this.contentNegotiationManager, request);
+		StreamingResponseBody body = out -> {
+			try {
+				this.vetRepository.streamAll(vets -> format.write(vets, this.objectMapper, out, "vetList"));
+			}
+			catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+		};
+		return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+	}
+
+	/**
+	 * Find the vets having all the given specialties, for example
+	 * {@code /vets/search?specialty=radiology&specialty=surgery}.
+	 * @param specialties the specialty names, in any case
+	 * @return the matching vets, ordered by id
+	 */
+	@GetMapping(value = "/vets/search",
+			produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE })
+	public @ResponseBody Vets searchVetsBySpecialty(
+			@RequestParam(name = "specialty", defaultValue = "") List<String> specialties) {
 		Vets vets = new Vets();
-		vets.getVetList().addAll(this.vetRepository.findAll());
+		vets.getVetList().addAll(this.specialtySearch.findVetsWithAll(specialties));
 		return vets;
 	}
 
+	private MediaType negotiate(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+		for (MediaType acceptable : this.contentNegotiationManager.resolveMediaTypes(request)) {
+			for (MediaType mediaType : VetsResponseCache.MEDIA_TYPES) {
+				if (acceptable.isCompatibleWith(mediaType)) {
+					return mediaType;
+				}
+			}
+		}
+		throw new HttpMediaTypeNotAcceptableException(VetsResponseCache.MEDIA_TYPES);
+	}
+
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+			String[] parameters = coding.split(";");
+			if (parameters[0].trim().equalsIgnoreCase("gzip")) {
+				for (int i = 1; i < parameters.length; i++) {
+					String parameter = parameters[i].trim();
+					if (parameter.startsWith("q=")) {
+						try {
+							return Double.parseDouble(parameter.substring(2)) > 0;
+						}
+						catch (NumberFormatException ex) {
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
@@ -18,11 +18,18 @@ package org.springframework.samples.petclinic.vet;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository class for <code>Vet</code> domain objects All method names are compliant
@@ -35,16 +42,25 @@ import java.util.Collection;
  * @author Sam Brannen
  * @author Michael Isvy
  */
-public interface VetRepository extends Repository<Vet, Integer> {
+public interface VetRepository extends Repository<Vet, Integer>, VetStreamRepository {
 
 	/**
 	 * Retrieve all <code>Vet</code>s from the data store.
 	 * @return a <code>Collection</code> of <code>Vet</code>s
 	 */
 	@Transactional(readOnly = true)
-	@Cacheable("vets")
+	@Cacheable(cacheNames = "vets", sync = true)
 	Collection<Vet> findAll() throws DataAccessException;
 
+	/**
+	 * Retrieve all <code>Specialty</code>s from the data store, ordered by name.
+	 * @return a <code>List</code> of <code>Specialty</code>s
+	 * @see SpecialtyReferenceData
+	 */
+	@Query("SELECT specialty FROM Specialty specialty ORDER BY specialty.name")
+	@Transactional(readOnly = true)
+	List<Specialty> findSpecialties() throws DataAccessException;
+
 	/**
 	 * Retrieve all <code>Vet</code>s from data store in Pages
 	 * @param pageable
@@ -52,7 +68,38 @@ public interface VetRepository extends Repository<Vet, Integer> {
 	 * @throws DataAccessException
 	 */
 	@Transactional(readOnly = true)
-	@Cacheable("vets")
+	@Cacheable(cacheNames = "vets", sync = true)
 	Page<Vet> findAll(Pageable pageable) throws DataAccessException;
 
+	/**
+	 * Retrieve the <code>Vet</code>s that come after the given cursor, ordered by last
+	 * name and id. Seeks directly to the cursor position using the last name index and
+	 * does not count the vets, so every page costs the same no matter how deep it is.
+	 * @param after the position to continue from, use {@link PersonCursor#FIRST} for the
+	 * first page
+	 * @param size the maximum number of vets to return
+	 * @return a slice of <code>Vet</code>s that knows whether more vets follow
+	 * @throws DataAccessException
+	 */
+	@Transactional(readOnly = true)
+	default Slice<Vet> findAllAfter(PersonCursor after, int size) throws DataAccessException {
+		List<Vet> vets = findAllAfter(after.lastName(), after.id(), PageRequest.of(0, size + 1));
+		boolean hasNext = vets.size() > size;
+		return new SliceImpl<>(hasNext ? vets.subList(0, size) : vets, PageRequest.of(0, size), hasNext);
+	}
+
+	/**
+	 * Retrieve <code>Vet</code>s starting right after the given last name and id.
+	 * @param afterLastName last name of the last vet of the previous page
+	 * @param afterId id of the last vet of the previous page
+	 * @param pageable
+	 * @return the <code>Vet</code>s, ordered by last name and id
+	 * @throws DataAccessException
+	 */
+	@Query("SELECT vet FROM Vet vet WHERE vet.lastName > :afterLastName "
+			+ "OR (vet.lastName = :afterLastName AND vet.id > :afterId) ORDER BY vet.lastName, vet.id")
+	@Transactional(readOnly = true)
+	List<Vet> findAllAfter(@Param("afterLastName") String afterLastName, @Param("afterId") int afterId,
+			Pageable pageable) throws DataAccessException;
+
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.samples.petclinic.owner.VisitService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * Schedules {@link Visit}s with vets and finds free slots, without querying the database.
+ * <p>
+ * Visits scheduled from today on are held in {@link VetCalendars}, one calendar per vet.
+ * A booking first reserves its time in the calendar of the vet, under the lock of that
+ * calendar only, and then inserts the visit. Concurrent bookings of the same time
+ * therefore cannot both succeed, and the reservation is released if the transaction rolls
+ * back.
+ * <p>
+ * The calendars only know about bookings made through this instance of the application.
+ */
+@Service
+public class VetSchedule {
+
+	private static final Log logger = LogFactory.getLog(VetSchedule.class);
+
+	private final VisitRepository visitRepository;
+
+	private final VisitService visits;
+
+	private final VetSpecialtySearch vets;
+
+	private final LocalTime opens;
+
+	private final LocalTime closes;
+
+	// held while loading visits on first use, a lock so that virtual threads waiting for
+	// the query can unmount
+	private final Lock loadLock = new ReentrantLock();
+
+	private volatile VetCalendars calendars;
+
+	public VetSchedule(VisitRepository visitRepository, VisitService visits, VetSpecialtySearch vets,
+			@Value("${petclinic.schedule.opens:09:00}") String opens,
+			@Value("${petclinic.schedule.closes:17:00}") String closes) {
+		this.visitRepository = visitRepository;
+		this.visits = visits;
+		this.vets = vets;
+		this.opens = LocalTime.parse(opens);
+		this.closes = LocalTime.parse(closes);
+		Assert.isTrue(this.opens.isBefore(this.closes), "Opening hours must end after they start");
+	}
+
+	/**
+	 * Return whether a visit with the given times is within the opening hours.
+	 */
+	public boolean isOpen(LocalTime startTime, LocalTime endTime) {
+		return calendars().isOpen(startTime, endTime);
+	}
+
+	/**
+	 * Return whether the given visit can be booked with the given vet: the vet exists
+	 * and the visit does not start in the past.
+	 */
+	public boolean isBookable(int vetId, LocalDate date, LocalTime startTime) {
+		return this.vets.hasVet(vetId) && !LocalDateTime.of(date, startTime).isBefore(LocalDateTime.now());
+	}
+
+	/**
+	 * Return whether the given owner has a pet with the given id, to book visits for.
+	 */
+	public boolean hasPet(int ownerId, int petId) {
+		return this.visits.hasPet(ownerId, petId);
+	}
+
+	/**
+	 * Schedule the given visit of the given pet with the vet, date and times of the
+	 * visit.
+	 * @param ownerId the id of the owner of the pet
+	 * @param petId the id of the visited pet
+	 * @param visit the visit, with the id of an existing vet, a date, and start and end
+	 * times within the opening hours, not in the past
+	 * @return {@literal false} if the vet is busy at that time, in which case nothing was
+	 * scheduled
+	 * @throws IllegalArgumentException if the visit cannot be booked or the owner has no
+	 * such pet
+	 */
+	@Transactional
+	public boolean book(int ownerId, int petId, Visit visit) {
+		Integer vetId = visit.getVetId();
+		LocalDate date = visit.getDate();
+		LocalTime start = visit.getStartTime();
+		LocalTime end = visit.getEndTime();
+		Assert.isTrue(vetId != null && date != null && start != null && end != null,
+				"Visit must have a vet, a date and start and end times");
+		VetCalendars calendars = calendars();
+		Assert.isTrue(calendars.isOpen(start, end), "Visit must be within opening hours");
+		Assert.isTrue(isBookable(vetId, date, start), "Visit must be with a known vet and not in the past");
+		if (!calendars.book(vetId, date, start, end)) {
+			return false;
+		}
+		boolean synchronizationActive = TransactionSynchronizationManager.isSynchronizationActive();
+		if (synchronizationActive) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status != STATUS_COMMITTED) {
+						calendars.release(vetId, date, start, end);
+					}
+				}
+
+			});
+		}
+		try {
+			if (!this.visits.addVisit(ownerId, petId, visit)) {
+				throw new IllegalArgumentException("Pet ID not found: " + petId);
+			}
+			return true;
+		}
+		catch (RuntimeException ex) {
+			if (!synchronizationActive) {
+				calendars.release(vetId, date, start, end);
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Find the earliest free slot of any vet having all the given specialties.
+	 * @param specialties the specialty names, any vet if empty
+	 * @param from the earliest start of the slot
+	 * @param days the number of days to search, starting with the day of {@code from}
+	 * @param duration the length of the slot
+	 * @return the earliest slot, on equal times with the vet with the lowest id
+	 */
+	public Optional<Slot> findEarliestSlot(Collection<String> specialties, LocalDateTime from, int days,
+			Duration duration) {
+		LocalDateTime start = from.truncatedTo(ChronoUnit.MINUTES);
+		if (start.isBefore(from)) {
+			start = start.plusMinutes(1);
+		}
+		return calendars().findEarliest(this.vets.findVetIdsWithAll(specialties), start,
+				from.toLocalDate().plusDays(days), (int) duration.toMinutes());
+	}
+
+	/**
+	 * Load the visits scheduled from today on.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void refresh() {
+		VetCalendars calendars = new VetCalendars(this.opens, this.closes);
+		for (Visit visit : this.visitRepository.findScheduledVisitsFrom(LocalDate.now())) {
+			if (visit.getStartTime() != null && visit.getEndTime() != null) {
+				calendars.book(visit.getVetId(), visit.getDate(), visit.getStartTime(), visit.getEndTime());
+			}
+		}
+		this.calendars = calendars;
+		logger.info("Loaded " + calendars.size() + " scheduled visits");
+	}
+
+	private VetCalendars calendars() {
+		VetCalendars calendars = this.calendars;
+		if (calendars == null) {
+			this.loadLock.lock();
+			try {
+				if (this.calendars == null) {
+					refresh();
+				}
+				calendars = this.calendars;
+			}
+			finally {
+				this.loadLock.unlock();
+			}
+		}
+		return calendars;
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+/**
+ * Finds vets by specialty with a {@link VetSpecialtyIndex}, built from the cached vets
+ * and rebuilt with them.
+ */
+@Service
+public class VetSpecialtySearch {
+
+	private final VetsView<Snapshot> snapshot;
+
+	public VetSpecialtySearch(VetRepository vets) {
+		this.snapshot = new VetsView<>(vets, Snapshot::of);
+	}
+
+	/**
+	 * Return the vets having all the given specialties, ordered by id.
+	 * @param specialties the specialty names, in any case, all vets if empty
+	 */
+	public List<Vet> findVetsWithAll(Collection<String> specialties) {
+		Snapshot snapshot = this.snapshot.get();
+		RoaringBitmap ids = snapshot.index().vetIdsWithAll(specialties);
+		List<Vet> vets = new ArrayList<>(ids.getCardinality());
+		for (IntIterator iterator = ids.getIntIterator(); iterator.hasNext();) {
+			vets.add(snapshot.vetsById().get(iterator.next()));
+		}
+		return vets;
+	}
+
+	/**
+	 * Return the ids of the vets having all the given specialties, in ascending order.
+	 * @param specialties the specialty names, in any case, all vets if empty
+	 */
+	public int[] findVetIdsWithAll(Collection<String> specialties) {
+		return this.snapshot.get().index().vetIdsWithAll(specialties).toArray();
+	}
+
+	/**
+	 * Return whether a vet with the given id exists.
+	 */
+	public boolean hasVet(int vetId) {
+		return this.snapshot.get().vetsById().containsKey(vetId);
+	}
+
+	private record Snapshot(VetSpecialtyIndex index, Map<Integer, Vet> vetsById) {
+
+		static Snapshot of(Collection<Vet> vets) {
+			Map<Integer, Vet> vetsById = new HashMap<>();
+			for (Vet vet : vets) {
+				vetsById.put(vet.getId(), vet);
+			}
+			return new Snapshot(VetSpecialtyIndex.of(vets), vetsById);
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.samples.petclinic.model.RowGroups;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * {@link VetStreamRepository} reading one row per specialty, ordered by vet, and building
+ * each vet from its consecutive rows.
+ */
+@Component
+class VetStreamRepositoryImpl implements VetStreamRepository {
+
+	private static final int FETCH_SIZE = 500;
+
+	private final EntityManager entityManager;
+
+	// a provider, as the specialties are loaded through the repository this class is a
+	// fragment of
+	private final ObjectProvider<SpecialtyReferenceData> specialties;
+
+	VetStreamRepositoryImpl(EntityManager entityManager, ObjectProvider<SpecialtyReferenceData> specialties) {
+		this.entityManager = entityManager;
+		this.specialties = specialties;
+	}
+
+	@Override
+	public <R> R streamAll(Function<Stream<Vet>, R> function) {
+		Stream<Object[]> rows = this.entityManager
+			.createQuery("SELECT vet.id, vet.firstName, vet.lastName, specialty.id, specialty.name FROM Vet vet "
+					+ "left join vet.specialties specialty ORDER BY vet.id", Object[].class)
+			.setHint(AvailableHints.HINT_FETCH_SIZE, FETCH_SIZE)
+			.getResultStream();
+		SpecialtyReferenceData specialties = this.specialties.getIfAvailable();
+		try (Stream<Vet> vets = RowGroups.group(rows, row -> row[0], VetStreamRepositoryImpl::vet,
+				(vet, row) -> add(vet, row, specialties))) {
+			return function.apply(vets);
+		}
+	}
+
+	/**
+	 * Create a vet from the first three columns of the given row.
+	 */
+	static Vet vet(Object[] row) {
+		Vet vet = new Vet();
+		vet.setId((Integer) row[0]);
+		vet.setFirstName((String) row[1]);
+		vet.setLastName((String) row[2]);
+		return vet;
+	}
+
+	/**
+	 * Add the specialty of the given row to the vet. The specialty held in memory is
+	 * shared unless it was added or renamed after the specialties were loaded.
+	 * @param specialties the specialties held in memory, or {@literal null} to create
+	 * every specialty from its row
+	 */
+	static void add(Vet vet, Object[] row, SpecialtyReferenceData specialties) {
+		if (row[3] != null) {
+			Specialty specialty = (specialties != null) ? specialties.findById((Integer) row[3]) : null;
+			if (specialty == null || !specialty.getName().equals(row[4])) {
+				specialty = new Specialty();
+				specialty.setId((Integer) row[3]);
+				specialty.setName((String) row[4]);
+			}
+			vet.addSpecialty(specialty);
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link Vets} list encoded as JSON and XML, plain and gzipped, so that serving
+ * {@code /vets} is a buffer write instead of a serialization pass.
+ * <p>
+ * Each representation is encoded with the application's message converters when it is
+ * first requested, and all of them are discarded when the cached vets change.
+ */
+@Component
+class VetsResponseCache {
+
+	/**
+	 * The media types {@code /vets} can be served in, the first one is preferred.
+	 */
+	static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML);
+
+	private final HttpMessageConverters converters;
+
+	private final VetsView<Snapshot> snapshot;
+
+	VetsResponseCache(VetRepository vets, HttpMessageConverters converters) {
+		this.converters = converters;
+		this.snapshot = new VetsView<>(vets, list -> new Snapshot(list, new ConcurrentHashMap<>()));
+	}
+
+	/**
+	 * Return the current vets encoded in the given media type.
+	 * @param mediaType one of {@link #MEDIA_TYPES}
+	 */
+	Representation get(MediaType mediaType) {
+		Snapshot snapshot = this.snapshot.get();
+		return snapshot.representations().computeIfAbsent(mediaType, type -> encode(snapshot.vets(), type));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Representation encode(Collection<Vet> list, MediaType mediaType) {
+		Vets vets = new Vets();
+		vets.getVetList().addAll(list);
+		for (HttpMessageConverter<?> converter : this.converters) {
+			if (converter.canWrite(Vets.class, mediaType)) {
+				BufferedOutputMessage message = new BufferedOutputMessage();
+				try {
+					((HttpMessageConverter<Object>) converter).write(vets, mediaType, message);
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+				byte[] body = message.body.toByteArray();
+				return new Representation(message.headers.getContentType(), body, gzip(body), hash(body));
+			}
+		}
+		throw new IllegalStateException("No converter for " + mediaType);
+	}
+
+	private static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream(body.length / 4);
+		try (OutputStream out = new GZIPOutputStream(gzipped)) {
+			out.write(body);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return gzipped.toByteArray();
+	}
+
+	private static String hash(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			return HexFormat.of().formatHex(digest, 0, 16);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * The vets encoded in one media type.
+	 *
+	 * @param contentType the content type written by the message converter
+	 * @param body the encoded vets
+	 * @param gzippedBody the encoded vets, gzipped
+	 * @param hash hash of the encoded vets, for entity tags
+	 */
+	record Representation(MediaType contentType, byte[] body, byte[] gzippedBody, String hash) {
+
+		/**
+		 * Return the strong entity tag of the plain or the gzipped body.
+		 */
+		String eTag(boolean gzipped) {
+			return "\"" + this.hash + (gzipped ? "-gzip" : "") + "\"";
+		}
+
+	}
+
+	private record Snapshot(Collection<Vet> vets, Map<MediaType, Representation> representations) {
+
+	}
+
+	private static final class BufferedOutputMessage implements HttpOutputMessage {
+
+		private final HttpHeaders headers = new HttpHeaders();
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		@Override
+		public OutputStream getBody() {
+			return this.body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * A value derived from all vets, such as an index or an encoded response, kept for as
+ * long as {@link VetRepository#findAll()} returns the same, cached, list. A new list
+ * from the repository, for example after the vets cache refreshed, derives the value
+ * again, so changed vets and specialties are picked up with the vets cache.
+ * <p>
+ * Concurrent callers seeing a new list may each derive the value, the last one is kept.
+ *
+ * @param <T> the type of the derived value
+ */
+final class VetsView<T> {
+
+	private final VetRepository vets;
+
+	private final Function<Collection<Vet>, T> derive;
+
+	private volatile Derived<T> derived;
+
+	VetsView(VetRepository vets, Function<Collection<Vet>, T> derive) {
+		this.vets = vets;
+		this.derive = derive;
+	}
+
+	/**
+	 * Return the value derived from the current vets.
+	 */
+	T get() {
+		Collection<Vet> vets = this.vets.findAll();
+		Derived<T> derived = this.derived;
+		if (derived == null || derived.vets() != vets) {
+			derived = new Derived<>(vets, this.derive.apply(vets));
+			this.derived = derived;
+		}
+		return derived.value();
+	}
+
+	private record Derived<T>(Collection<Vet> vets, T value) {
+
+	}
+
+}
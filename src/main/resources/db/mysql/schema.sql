@@ -1,12 +1,38 @@
+-- MySQL has no sequences, so Hibernate emulates them with single row tables and hands
+-- out ids in blocks of 50, after the ids already in the tables, see the end of this script
+CREATE TABLE IF NOT EXISTS vets_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS specialties_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS types_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS owners_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS pets_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS visits_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
 CREATE TABLE IF NOT EXISTS vets (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
   INDEX(last_name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS specialties (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   name VARCHAR(80),
   INDEX(name)
 ) engine=InnoDB;
@@ -20,23 +46,24 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS types (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   name VARCHAR(80),
   INDEX(name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS owners (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   first_name VARCHAR(30),
-  last_name VARCHAR(30),
+  -- owner searches match and order last_name case sensitively, as the in-memory last name index does
+  last_name VARCHAR(30) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin,
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  INDEX owners_last_name (last_name, id)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   name VARCHAR(30),
   birth_date DATE,
   type_id INT(4) UNSIGNED NOT NULL,
@@ -47,9 +74,29 @@ CREATE TABLE IF NOT EXISTS pets (
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS visits (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   pet_id INT(4) UNSIGNED,
   visit_date DATE,
   description VARCHAR(255),
-  FOREIGN KEY (pet_id) REFERENCES pets(id)
+  vet_id INT(4) UNSIGNED,
+  start_time TIME,
+  end_time TIME,
+  FOREIGN KEY (pet_id) REFERENCES pets(id),
+  FOREIGN KEY (vet_id) REFERENCES vets(id),
+  INDEX(vet_id, visit_date)
 ) engine=InnoDB;
+
+-- seed each sequence table after the ids already in its table, or the sample data, so
+-- that databases filled before ids came from sequences keep working
+INSERT INTO vets_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM vets) ids
+  WHERE NOT EXISTS (SELECT * FROM vets_seq);
+INSERT INTO specialties_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM specialties) ids
+  WHERE NOT EXISTS (SELECT * FROM specialties_seq);
+INSERT INTO types_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM types) ids
+  WHERE NOT EXISTS (SELECT * FROM types_seq);
+INSERT INTO owners_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM owners) ids
+  WHERE NOT EXISTS (SELECT * FROM owners_seq);
+INSERT INTO pets_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM pets) ids
+  WHERE NOT EXISTS (SELECT * FROM pets_seq);
+INSERT INTO visits_seq SELECT next_val FROM (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) AS next_val FROM visits) ids
+  WHERE NOT EXISTS (SELECT * FROM visits_seq);
@@ -1,12 +1,21 @@
+-- ids are handed out by Hibernate in blocks of 50, after the ids already in the tables,
+-- see the end of this script
+CREATE SEQUENCE IF NOT EXISTS vets_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS specialties_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS types_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS owners_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pets_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS visits_seq START WITH 100 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS vets (
-  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id         INT PRIMARY KEY,
   first_name TEXT,
   last_name  TEXT
 );
 CREATE INDEX ON vets (last_name);
 
 CREATE TABLE IF NOT EXISTS specialties (
-  id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id   INT PRIMARY KEY,
   name TEXT
 );
 CREATE INDEX ON specialties (name);
@@ -18,23 +27,24 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
 );
 
 CREATE TABLE IF NOT EXISTS types (
-  id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id   INT PRIMARY KEY,
   name TEXT
 );
 CREATE INDEX ON types (name);
 
 CREATE TABLE IF NOT EXISTS owners (
-  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id         INT PRIMARY KEY,
   first_name TEXT,
-  last_name  TEXT,
+  last_name  TEXT COLLATE "C",
   address    TEXT,
   city       TEXT,
   telephone  TEXT
 );
-CREATE INDEX ON owners (last_name);
+-- owner searches match and order last_name case sensitively, as the in-memory last name index does
+CREATE INDEX IF NOT EXISTS owners_last_name ON owners (last_name, id);
 
 CREATE TABLE IF NOT EXISTS pets (
-  id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id         INT PRIMARY KEY,
   name       TEXT,
   birth_date DATE,
   type_id    INT NOT NULL REFERENCES types (id),
@@ -44,9 +54,29 @@ CREATE INDEX ON pets (name);
 CREATE INDEX ON pets (owner_id);
 
 CREATE TABLE IF NOT EXISTS visits (
-  id          INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  id          INT PRIMARY KEY,
   pet_id      INT REFERENCES pets (id),
   visit_date  DATE,
-  description TEXT
+  description TEXT,
+  vet_id      INT REFERENCES vets (id),
+  start_time  TIME,
+  end_time    TIME
 );
 CREATE INDEX ON visits (pet_id);
+CREATE INDEX ON visits (vet_id, visit_date);
+
+-- start each sequence after the ids already in its table, or the sample data, until it
+-- hands out its first id, so that databases filled before ids came from sequences keep
+-- working
+SELECT setval('vets_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM vets), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'vets_seq') IS NULL;
+SELECT setval('specialties_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM specialties), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'specialties_seq') IS NULL;
+SELECT setval('types_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM types), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'types_seq') IS NULL;
+SELECT setval('owners_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM owners), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'owners_seq') IS NULL;
+SELECT setval('pets_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM pets), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'pets_seq') IS NULL;
+SELECT setval('visits_seq', (SELECT GREATEST(COALESCE(MAX(id), 0) + 1, 100) FROM visits), false)
+  WHERE (SELECT last_value FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'visits_seq') IS NULL;
@@ -25,12 +25,22 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.web.client.RestTemplate;
 
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.cache.Caching;
+
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 public class PetClinicIntegrationTests {
 
@@ -43,12 +53,33 @@ public class PetClinicIntegrationTests {
 	@Autowired
 	private RestTemplateBuilder builder;
 
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void testFindAll() throws Exception {
 		vets.findAll();
 		vets.findAll(); // served from cache
 	}
 
+	@Test
+	void testVetsCacheIsBoundedAndInstrumented() {
+		for (int page = 0; page < 500; page++) {
+			vets.findAll(PageRequest.of(page, 5));
+		}
+		vets.findAll(PageRequest.of(0, 5)); // served from cache
+
+		CaffeineCache cache = (CaffeineCache) cacheManager.getCache("vets");
+		cache.getNativeCache().cleanUp();
+		assertThat(cache.getNativeCache().estimatedSize()).isLessThanOrEqualTo(100);
+		assertThat(meterRegistry.get("cache.gets").tags("cache", "vets", "result", "hit").functionCounter().count())
+			.isPositive();
+		assertThat(meterRegistry.get("cache.evictions").tag("cache", "vets").functionCounter().count()).isPositive();
+	}
+
 	@Test
 	void testOwnerDetails() {
 		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
@@ -56,6 +87,73 @@ public class PetClinicIntegrationTests {
 		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
 
+	@Test
+	void testOwnersSecondLevelCacheStatisticsInActuator() {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		template.exchange(RequestEntity.get("/owners/4").build(), String.class);
+
+		ResponseEntity<String> puts = template.exchange(
+				RequestEntity.get("/actuator/metrics/hibernate.second.level.cache.puts?tag=region:owners").build(),
+				String.class);
+		assertThat(puts.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(meterRegistry.get("hibernate.second.level.cache.puts")
+			.tag("region", "owners")
+			.functionCounter()
+			.count()).isPositive();
+		assertThat(meterRegistry.get("hibernate.second.level.cache.requests")
+			.tags("region", "pet-types", "result", "hit")
+			.functionCounter()).isNotNull();
+
+		javax.cache.CacheManager regions = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+			.getCacheManager();
+		assertThat(regions.getCache("owners").getConfiguration(CaffeineConfiguration.class).getMaximumSize())
+			.hasValue(10_000);
+		assertThat(regions.getCache("pet-types").getConfiguration(CaffeineConfiguration.class).getMaximumSize())
+			.hasValue(100);
+	}
+
+	@Test
+	void testVetsNotModified() {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		ResponseEntity<String> result = template.exchange(RequestEntity.get("/vets").build(), String.class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+		assertThat(result.getBody()).contains("\"lastName\":\"Carter\"");
+
+		ResponseEntity<String> cached = template
+			.exchange(RequestEntity.get("/vets").ifNoneMatch(result.getHeaders().getETag()).build(), String.class);
+		assertThat(cached.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+	}
+
+	@Test
+	void testSearchVetsBySpecialty() {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		ResponseEntity<String> result = template
+			.exchange(RequestEntity.get("/vets/search?specialty=surgery&specialty=dentistry")
+				.accept(MediaType.APPLICATION_JSON)
+				.build(), String.class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getBody()).contains("\"lastName\":\"Douglas\"").doesNotContain("\"lastName\":\"Ortega\"");
+	}
+
+	@Test
+	void testStreamOwners() {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		ResponseEntity<String> result = template
+			.exchange(RequestEntity.get("/owners/bulk").accept(MediaType.APPLICATION_NDJSON).build(), String.class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getBody().lines()).hasSize(10).first().asString().contains("\"lastName\":\"Franklin\"");
+	}
+
+	@Test
+	void testFindLastNames() {
+		RestTemplate template = builder.rootUri("http://localhost:" + port).build();
+		ResponseEntity<String[]> result = template.exchange(RequestEntity.get("/owners/lastNames?prefix=Da").build(),
+				String[].class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getBody()).containsExactly("Davis");
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(PetClinicApplication.class, args);
 	}
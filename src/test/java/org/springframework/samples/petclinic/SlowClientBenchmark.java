@@ -0,0 +1,302 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of how many concurrent slow clients the servlet stack and the reactive stack
+ * sustain per core, reading the list of all vets as JSON from {@code /vets} on the
+ * servlet container and from {@code /api/vets} on the reactive API server.
+ * <p>
+ * The application runs in its own JVM limited to one core
+ * ({@code -XX:ActiveProcessorCount=1}) against the embedded H2 database, with enough
+ * extra vets for the list to be a few megabytes. Slow clients send their request and then
+ * read 1 KB of the response every 100 ms, with a small receive buffer, so the server
+ * cannot hand the whole response to the operating system at once. While they are
+ * connected, a fast client sends a few requests to the same stack and times them.
+ * <p>
+ * A stack sustains a number of slow clients when all of them are being served and the
+ * fast client still gets its responses within a second. The servlet stack holds a request
+ * thread for each response it is writing, so it stops there at about its thread pool
+ * size; the reactive stack only holds a connection and a few buffers per client.
+ * <p>
+ * Run {@link #main(String[])} after {@code ./mvnw test-compile}, with the test classpath;
+ * it is not part of the test suite. The system properties {@code clients} and
+ * {@code vets} override the defaults.
+ */
+public class SlowClientBenchmark {
+
+	private static final int READ_BYTES = 1024;
+
+	private static final Duration READ_INTERVAL = Duration.ofMillis(100);
+
+	private static final Duration SETTLE = Duration.ofSeconds(3);
+
+	private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+
+	private static final int PROBES = 10;
+
+	private static final double SUSTAINED_LATENCY_MS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int[] clients = Arrays.stream(System.getProperty("clients", "100,200,400,800,1600,3200").split(","))
+			.mapToInt(Integer::parseInt)
+			.toArray();
+		int vets = Integer.getInteger("vets", 20000);
+		try (Server server = Server.start(vets)) {
+			System.out.printf("%-9s %7s %7s %9s %9s %8s%n", "stack", "clients", "served", "p50 ms", "max ms", "errors");
+			for (Stack stack : List.of(new Stack("servlet", server.port, "/vets"),
+					new Stack("reactive", server.apiPort, "/api/vets"))) {
+				int sustained = 0;
+				for (int count : clients) {
+					Result result = run(stack, count);
+					System.out.printf("%-9s %7d %7d %9.1f %9.1f %8d%n", stack.name, count, result.served,
+							result.percentile(0.5), result.percentile(1.0), result.errors);
+					if (result.served == count && result.errors == 0 && result.percentile(1.0) < SUSTAINED_LATENCY_MS) {
+						sustained = count;
+					}
+					// let the server notice the closed connections before the next round
+					TimeUnit.SECONDS.sleep(2);
+				}
+				System.out.printf("%-9s sustains %d slow clients per core%n", stack.name, sustained);
+			}
+		}
+	}
+
+	private static Result run(Stack stack, int count) throws Exception {
+		try (SlowClients slow = SlowClients.open(stack, count)) {
+			Thread reader = new Thread(slow::readSlowly, "slow-clients");
+			reader.start();
+			TimeUnit.NANOSECONDS.sleep(SETTLE.toNanos());
+			HttpClient client = HttpClient.newHttpClient();
+			HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + stack.port + stack.path))
+				.header("Accept", "application/json")
+				.timeout(PROBE_TIMEOUT)
+				.build();
+			List<Long> latencies = new ArrayList<>();
+			int errors = 0;
+			for (int i = 0; i < PROBES; i++) {
+				long start = System.nanoTime();
+				try {
+					if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						latencies.add(System.nanoTime() - start);
+					}
+					else {
+						errors++;
+					}
+				}
+				catch (IOException ex) {
+					errors++;
+				}
+			}
+			int served = slow.served();
+			reader.interrupt();
+			reader.join();
+			return new Result(latencies.stream().mapToLong(Long::longValue).sorted().toArray(), errors, served);
+		}
+	}
+
+	private record Stack(String name, int port, String path) {
+
+	}
+
+	private record Result(long[] latencies, int errors, int served) {
+
+		double percentile(double percentile) {
+			if (this.latencies.length == 0) {
+				return Double.NaN;
+			}
+			int index = (int) Math.ceil(percentile * this.latencies.length) - 1;
+			return this.latencies[Math.max(index, 0)] / 1e6;
+		}
+
+	}
+
+	/**
+	 * Clients that sent their request and read the response at a trickle, all driven by
+	 * one thread over non-blocking channels.
+	 */
+	private static final class SlowClients implements AutoCloseable {
+
+		private final SocketChannel[] channels;
+
+		private final long[] received;
+
+		private SlowClients(SocketChannel[] channels) {
+			this.channels = channels;
+			this.received = new long[channels.length];
+		}
+
+		static SlowClients open(Stack stack, int count) throws IOException {
+			byte[] request = ("GET " + stack.path + " HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\n\r\n")
+				.getBytes(StandardCharsets.US_ASCII);
+			SocketChannel[] channels = new SocketChannel[count];
+			for (int i = 0; i < count; i++) {
+				SocketChannel channel = SocketChannel.open();
+				// set before connecting, the window is negotiated with the connection
+				channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+				channel.connect(new InetSocketAddress("localhost", stack.port));
+				channel.write(ByteBuffer.wrap(request));
+				channel.configureBlocking(false);
+				channels[i] = channel;
+			}
+			return new SlowClients(channels);
+		}
+
+		void readSlowly() {
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					for (int i = 0; i < this.channels.length; i++) {
+						buffer.clear();
+						int read = this.channels[i].read(buffer);
+						if (read > 0) {
+							synchronized (this.received) {
+								this.received[i] += read;
+							}
+						}
+					}
+					TimeUnit.NANOSECONDS.sleep(READ_INTERVAL.toNanos());
+				}
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Return the number of clients that received part of their response.
+		 */
+		int served() {
+			synchronized (this.received) {
+				return (int) Arrays.stream(this.received).filter(bytes -> bytes > 0).count();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (SocketChannel channel : this.channels) {
+				channel.close();
+			}
+		}
+
+	}
+
+	/**
+	 * The application, running in a JVM of its own limited to one core.
+	 */
+	private static final class Server implements AutoCloseable {
+
+		private final Process process;
+
+		private final Path output;
+
+		private final Path data;
+
+		private final int port;
+
+		private final int apiPort;
+
+		private Server(Process process, Path output, Path data, int port, int apiPort) {
+			this.process = process;
+			this.output = output;
+			this.data = data;
+			this.port = port;
+			this.apiPort = apiPort;
+		}
+
+		static Server start(int vets) throws IOException, InterruptedException {
+			int port = freePort();
+			int apiPort = freePort();
+			Path output = Files.createTempFile("petclinic-slow-clients", ".log");
+			Path data = Files.createTempFile("petclinic-vets", ".sql");
+			Files.writeString(data, """
+					INSERT INTO vets SELECT x, 'First' || x, 'Last' || x FROM SYSTEM_RANGE(1000, %1$d);
+					INSERT INTO vet_specialties SELECT x, MOD(x, 3) + 1 FROM SYSTEM_RANGE(1000, %1$d);
+					""".formatted(1000 + vets - 1));
+			List<String> command = List.of(ProcessHandle.current().info().command().orElse("java"),
+					"-XX:ActiveProcessorCount=1", "-cp", System.getProperty("java.class.path"),
+					PetClinicApplication.class.getName(), "--server.port=" + port,
+					"--petclinic.reactive-api.port=" + apiPort,
+					"--spring.sql.init.data-locations=classpath*:db/h2/data.sql,file:" + data,
+					"--spring.docker.compose.enabled=false", "--logging.level.root=warn");
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(output.toFile())
+				.start();
+			Server server = new Server(process, output, data, port, apiPort);
+			server.awaitReady();
+			return server;
+		}
+
+		private static int freePort() throws IOException {
+			try (ServerSocket socket = new ServerSocket(0)) {
+				return socket.getLocalPort();
+			}
+		}
+
+		private void awaitReady() throws InterruptedException {
+			HttpClient client = HttpClient.newHttpClient();
+			HttpRequest vets = HttpRequest.newBuilder(URI.create("http://localhost:" + this.apiPort + "/api/vets"))
+				.build();
+			for (int attempt = 0; attempt < 600; attempt++) {
+				if (!this.process.isAlive()) {
+					throw new IllegalStateException("Application exited, see " + this.output);
+				}
+				try {
+					if (client.send(vets, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						return;
+					}
+				}
+				catch (IOException ex) {
+					// not listening yet
+				}
+				TimeUnit.MILLISECONDS.sleep(200);
+			}
+			throw new IllegalStateException("Application did not start, see " + this.output);
+		}
+
+		@Override
+		public void close() throws IOException, InterruptedException {
+			this.process.destroy();
+			this.process.waitFor(30, TimeUnit.SECONDS);
+			Files.deleteIfExists(this.output);
+			Files.deleteIfExists(this.data);
+		}
+
+	}
+
+}
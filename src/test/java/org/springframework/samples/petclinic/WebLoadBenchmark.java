@@ -0,0 +1,275 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Load benchmark of the owner, pet and visit pages with platform and with virtual request
+ * threads, reporting throughput and latency percentiles for 1,000 to 10,000 concurrent
+ * users.
+ * <p>
+ * The application runs in its own JVM against the embedded H2 database, once with the
+ * defaults and once with the {@code virtual-threads} profile and
+ * {@code -Djdk.tracePinnedThreads=short}, which prints the stack of every virtual thread
+ * that blocks while pinned to its carrier; the number of those stacks is reported too.
+ * Each user sends its next request as soon as the previous one completed, cycling through
+ * the owner details, new pet and new visit pages of the first five owners.
+ * <p>
+ * Virtual threads need Java 21, on older JVMs only platform threads are measured. Run
+ * {@link #main(String[])} after {@code ./mvnw test-compile}, with the test classpath; it
+ * is not part of the test suite. The system properties {@code users},
+ * {@code warmup.seconds} and {@code measure.seconds} override the defaults.
+ */
+public class WebLoadBenchmark {
+
+	private static final String[] PATHS = { "/owners/%d", "/owners/%d/pets/new", "/owners/%d/pets/%d/visits/new" };
+
+	// the first five owners of the sample data and one of their pets
+	private static final int[][] OWNER_PETS = { { 1, 1 }, { 2, 2 }, { 3, 3 }, { 4, 5 }, { 5, 6 } };
+
+	public static void main(String[] args) throws Exception {
+		int[] users = Arrays.stream(System.getProperty("users", "1000,2000,5000,10000").split(","))
+			.mapToInt(Integer::parseInt)
+			.toArray();
+		Duration warmup = Duration.ofSeconds(Long.getLong("warmup.seconds", 10));
+		Duration measure = Duration.ofSeconds(Long.getLong("measure.seconds", 20));
+		List<String> modes = new ArrayList<>(List.of("platform"));
+		if (Runtime.version().feature() >= 21) {
+			modes.add("virtual");
+		}
+		else {
+			System.out
+				.println("Java " + Runtime.version().feature() + " has no virtual threads, measuring platform only");
+		}
+		System.out.printf("%-9s %7s %10s %9s %9s %9s %8s %7s%n", "threads", "users", "req/s", "p50 ms", "p99 ms",
+				"max ms", "errors", "pinned");
+		for (String mode : modes) {
+			for (int count : users) {
+				try (Server server = Server.start(mode.equals("virtual"))) {
+					run(server, count, warmup);
+					Result result = run(server, count, measure);
+					System.out.printf("%-9s %7d %10.0f %9.1f %9.1f %9.1f %8d %7d%n", mode, count,
+							result.completed() / (double) measure.toSeconds(), result.percentile(0.50),
+							result.percentile(0.99), result.percentile(1.0), result.errors, server.pinned());
+				}
+			}
+		}
+	}
+
+	private static Result run(Server server, int users, Duration duration) throws InterruptedException {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+		long end = System.nanoTime() + duration.toNanos();
+		ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+		AtomicLong errors = new AtomicLong();
+		User[] all = new User[users];
+		for (int i = 0; i < users; i++) {
+			all[i] = new User(client, server.port, i, end, latencies, errors);
+			all[i].next();
+		}
+		for (User user : all) {
+			user.done.await();
+		}
+		long[] samples = latencies.stream().flatMapToLong(Arrays::stream).toArray();
+		Arrays.sort(samples);
+		return new Result(samples, errors.get());
+	}
+
+	/**
+	 * One simulated user, sending its requests one after the other without pause.
+	 */
+	private static final class User {
+
+		private final HttpClient client;
+
+		private final int port;
+
+		private final int id;
+
+		private final long end;
+
+		private final ConcurrentLinkedQueue<long[]> latencies;
+
+		private final AtomicLong errors;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private long[] samples = new long[64];
+
+		private int size;
+
+		private int sent;
+
+		User(HttpClient client, int port, int id, long end, ConcurrentLinkedQueue<long[]> latencies,
+				AtomicLong errors) {
+			this.client = client;
+			this.port = port;
+			this.id = id;
+			this.end = end;
+			this.latencies = latencies;
+			this.errors = errors;
+		}
+
+		void next() {
+			if (System.nanoTime() >= this.end) {
+				this.latencies.add(Arrays.copyOf(this.samples, this.size));
+				this.done.countDown();
+				return;
+			}
+			int[] ownerPet = OWNER_PETS[(this.id + this.sent) % OWNER_PETS.length];
+			String path = PATHS[this.sent++ % PATHS.length].formatted(ownerPet[0], ownerPet[1]);
+			HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + this.port + path))
+				.timeout(Duration.ofSeconds(60))
+				.build();
+			long start = System.nanoTime();
+			this.client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+				if (ex != null || response.statusCode() != 200) {
+					this.errors.incrementAndGet();
+				}
+				else {
+					if (this.size == this.samples.length) {
+						this.samples = Arrays.copyOf(this.samples, this.size * 2);
+					}
+					this.samples[this.size++] = System.nanoTime() - start;
+				}
+				next();
+			});
+		}
+
+	}
+
+	private record Result(long[] latencies, long errors) {
+
+		long completed() {
+			return this.latencies.length;
+		}
+
+		double percentile(double percentile) {
+			if (this.latencies.length == 0) {
+				return Double.NaN;
+			}
+			int index = (int) Math.ceil(percentile * this.latencies.length) - 1;
+			return this.latencies[Math.max(index, 0)] / 1e6;
+		}
+
+	}
+
+	/**
+	 * The application, running in a JVM of its own so that it does not share the heap,
+	 * threads and file descriptors of the simulated users.
+	 */
+	private static final class Server implements AutoCloseable {
+
+		private final Process process;
+
+		private final Path output;
+
+		private final int port;
+
+		private Server(Process process, Path output, int port) {
+			this.process = process;
+			this.output = output;
+			this.port = port;
+		}
+
+		static Server start(boolean virtual) throws IOException, InterruptedException {
+			int port;
+			try (ServerSocket socket = new ServerSocket(0)) {
+				port = socket.getLocalPort();
+			}
+			Path output = Files.createTempFile("petclinic-load", ".log");
+			List<String> command = new ArrayList<>();
+			command.add(ProcessHandle.current().info().command().orElse("java"));
+			if (virtual) {
+				command.add("-Djdk.tracePinnedThreads=short");
+			}
+			command.addAll(List.of("-cp", System.getProperty("java.class.path"), PetClinicApplication.class.getName(),
+					"--server.port=" + port, "--spring.docker.compose.enabled=false", "--logging.level.root=warn"));
+			if (virtual) {
+				command.add("--spring.profiles.active=virtual-threads");
+			}
+			else {
+				// same connection limits as the virtual-threads profile, only the threads
+				// differ
+				command.addAll(List.of("--server.tomcat.max-connections=20000", "--server.tomcat.accept-count=1000"));
+			}
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(output.toFile())
+				.start();
+			Server server = new Server(process, output, port);
+			server.awaitReady();
+			return server;
+		}
+
+		private void awaitReady() throws InterruptedException {
+			HttpClient client = HttpClient.newHttpClient();
+			HttpRequest health = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + this.port + "/actuator/health"))
+				.build();
+			for (int attempt = 0; attempt < 600; attempt++) {
+				if (!this.process.isAlive()) {
+					throw new IllegalStateException("Application exited, see " + this.output);
+				}
+				try {
+					if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						return;
+					}
+				}
+				catch (IOException ex) {
+					// not listening yet
+				}
+				TimeUnit.MILLISECONDS.sleep(200);
+			}
+			throw new IllegalStateException("Application did not start, see " + this.output);
+		}
+
+		/**
+		 * Return the number of stacks printed for virtual threads blocking while pinned.
+		 */
+		long pinned() throws IOException {
+			try (Stream<String> lines = Files.lines(this.output)) {
+				// each stack starts with the carrier thread, such as
+				// Thread[#29,ForkJoinPool-1-worker-1,...]
+				return lines.filter(line -> line.startsWith("Thread[#")).count();
+			}
+		}
+
+		@Override
+		public void close() throws IOException, InterruptedException {
+			this.process.destroy();
+			this.process.waitFor(30, TimeUnit.SECONDS);
+			Files.deleteIfExists(this.output);
+		}
+
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+
+/**
+ * Test class for {@link CoalescedReads}
+ */
+class CoalescedReadsTests {
+
+	private static final int CALLERS = 32;
+
+	private final OwnerRepository repository = mock(OwnerRepository.class);
+
+	private final OwnerRepository owners = CoalescedReads.coalesce(this.repository, OwnerRepository.class);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+	private final List<Thread> callers = new ArrayList<>();
+
+	private final Pageable pageable = PageRequest.of(0, 5);
+
+	private final Page<Owner> page = new PageImpl<>(List.of(new Owner()));
+
+	@AfterEach
+	void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Answer searches only once every caller is blocked, either in the search itself or
+	 * waiting for its result.
+	 */
+	private void answerOnceAllCallersWait() {
+		given(this.repository.findByLastName(any(), any())).willAnswer(invocation -> {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!allCallersWait() && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			return this.page;
+		});
+	}
+
+	private boolean allCallersWait() {
+		synchronized (this.callers) {
+			return this.callers.size() == CALLERS && this.callers.stream()
+				.allMatch(thread -> thread == Thread.currentThread() || thread.getState() == Thread.State.WAITING);
+		}
+	}
+
+	private List<Future<Page<Owner>>> searchConcurrently(String lastName) {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Page<Owner>>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(this.executor.submit(() -> {
+				start.await();
+				synchronized (this.callers) {
+					this.callers.add(Thread.currentThread());
+				}
+				return this.owners.findByLastName(lastName, this.pageable);
+			}));
+		}
+		start.countDown();
+		return results;
+	}
+
+	@Test
+	void shouldQueryOnceForConcurrentIdenticalSearches() throws Exception {
+		answerOnceAllCallersWait();
+
+		for (Future<Page<Owner>> result : searchConcurrently("Davis")) {
+			assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(this.page);
+		}
+
+		verify(this.repository, times(1)).findByLastName("Davis", this.pageable);
+	}
+
+	@Test
+	void shouldQueryAgainForLaterSearches() {
+		given(this.repository.findByLastName(any(), any())).willReturn(this.page);
+
+		this.owners.findByLastName("Davis", this.pageable);
+		this.owners.findByLastName("Davis", this.pageable);
+		this.owners.findByLastName("Franklin", this.pageable);
+
+		verify(this.repository, times(2)).findByLastName("Davis", this.pageable);
+		verify(this.repository).findByLastName("Franklin", this.pageable);
+	}
+
+	@Test
+	void shouldKeepCoalescingAcrossLastNameSuggestions() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.repository.findByLastName(any(), any())).willAnswer(invocation -> {
+			loading.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return this.page;
+		});
+		Future<Page<Owner>> first = this.executor.submit(() -> this.owners.findByLastName("Davis", this.pageable));
+		assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+		this.owners.findLastNamesStartingWith("Da", 10);
+		Future<Page<Owner>> second = this.executor.submit(() -> {
+			synchronized (this.callers) {
+				this.callers.add(Thread.currentThread());
+			}
+			return this.owners.findByLastName("Davis", this.pageable);
+		});
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!joinedFlight() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertThat(first.get(10, TimeUnit.SECONDS)).isSameAs(this.page);
+		assertThat(second.get(10, TimeUnit.SECONDS)).isSameAs(this.page);
+		verify(this.repository, times(1)).findByLastName("Davis", this.pageable);
+	}
+
+	private boolean joinedFlight() {
+		synchronized (this.callers) {
+			return !this.callers.isEmpty() && this.callers.get(0).getState() == Thread.State.WAITING;
+		}
+	}
+
+	@Test
+	void shouldNotCoalesceReadsThatMustGoToPrimary() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.repository.findByLastName(any(), any())).willAnswer(invocation -> {
+			if (loading.getCount() > 0) {
+				loading.countDown();
+				release.await(10, TimeUnit.SECONDS);
+			}
+			return this.page;
+		});
+		Future<Page<Owner>> replicaRead = this.executor
+			.submit(() -> this.owners.findByLastName("Davis", this.pageable));
+		assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+		Future<Page<Owner>> primaryRead = this.executor
+			.submit(() -> ReadYourWrites.onPrimary(() -> this.owners.findByLastName("Davis", this.pageable)));
+
+		// answered while the read in flight is still blocked
+		assertThat(primaryRead.get(10, TimeUnit.SECONDS)).isSameAs(this.page);
+		release.countDown();
+		assertThat(replicaRead.get(10, TimeUnit.SECONDS)).isSameAs(this.page);
+		verify(this.repository, times(2)).findByLastName("Davis", this.pageable);
+	}
+
+	@Test
+	void shouldNotShareOwnersLoadedById() {
+		given(this.repository.findById(1)).willAnswer(invocation -> new Owner());
+
+		assertThat(this.owners.findById(1)).isNotSameAs(this.owners.findById(1));
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link CountCache}
+ */
+class CountCacheTests {
+
+	private final CountCache<String> counts = new CountCache<>(100, 10, Duration.ofMinutes(5));
+
+	private final AtomicInteger queries = new AtomicInteger();
+
+	private long count(String key) {
+		this.queries.incrementAndGet();
+		return key.length() * 50L;
+	}
+
+	@Test
+	void shouldServeCachedCountUntilInvalidated() {
+		assertThat(this.counts.count("a", this::count)).isEqualTo(new CountCache.Count(50, true));
+		assertThat(this.counts.count("a", this::count)).isEqualTo(new CountCache.Count(50, true));
+		assertThat(this.queries).hasValue(1);
+	}
+
+	@Test
+	void shouldRecountSmallCountsAfterInvalidation() {
+		this.counts.count("a", this::count);
+		this.counts.invalidate();
+
+		assertThat(this.counts.count("a", this::count)).isEqualTo(new CountCache.Count(50, true));
+		assertThat(this.queries).hasValue(2);
+	}
+
+	@Test
+	void shouldServeLargeCountsAsApproximateAfterInvalidation() {
+		this.counts.count("abc", this::count);
+		this.counts.invalidate();
+
+		assertThat(this.counts.count("abc", this::count)).isEqualTo(new CountCache.Count(150, false));
+		assertThat(this.queries).hasValue(1);
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for {@link HedgedReads}
+ */
+class HedgedReadsTests {
+
+	private static final String READ = "OwnerRepository.findById";
+
+	private final HedgedReads hedgedReads = new HedgedReads(Duration.ofMillis(50), 1.0);
+
+	private final Connection connection = mock(Connection.class);
+
+	private final Statement statement = mock(Statement.class);
+
+	private final CountDownLatch cancelled = new CountDownLatch(1);
+
+	@BeforeEach
+	void setup() throws SQLException {
+		given(this.connection.createStatement()).willReturn(this.statement);
+		willAnswer(invocation -> {
+			this.cancelled.countDown();
+			return null;
+		}).given(this.statement).cancel();
+	}
+
+	@AfterEach
+	void close() {
+		this.hedgedReads.close();
+	}
+
+	private void warmUp(HedgedReads hedgedReads) {
+		for (int i = 0; i < 100; i++) {
+			hedgedReads.read(READ, () -> "fast");
+		}
+	}
+
+	/**
+	 * Run a statement on a connection of the current run and block until it is
+	 * cancelled, as a slow database would.
+	 */
+	private String blockUntilCancelled() {
+		try {
+			HedgedReads.cancellable(this.connection).createStatement();
+			if (!this.cancelled.await(10, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Not cancelled");
+			}
+			throw new IllegalStateException("Cancelled");
+		}
+		catch (SQLException | InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	@Test
+	void readsAreNotHedgedBeforeTheirLatenciesAreKnown() {
+		AtomicInteger runs = new AtomicInteger();
+
+		String result = this.hedgedReads.read(READ, () -> {
+			runs.incrementAndGet();
+			sleep(100);
+			return "slow";
+		});
+
+		assertThat(result).isEqualTo("slow");
+		assertThat(runs).hasValue(1);
+		assertThat(this.hedgedReads.getDelay(READ)).isNull();
+	}
+
+	@Test
+	void fastReadsAreNotHedged() {
+		warmUp(this.hedgedReads);
+
+		assertThat(this.hedgedReads.getDelay(READ)).isEqualTo(Duration.ofMillis(50));
+		assertThat(this.hedgedReads.getHedges(READ)).isZero();
+	}
+
+	@Test
+	void slowReadIsAnsweredByHedgeAndFirstRunIsCancelled() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		this.hedgedReads.bindTo(registry);
+		warmUp(this.hedgedReads);
+
+		String result = this.hedgedReads.read(READ,
+				() -> HedgedReads.isHedge() ? "hedge" : blockUntilCancelled());
+
+		assertThat(result).isEqualTo("hedge");
+		assertThat(this.cancelled.getCount()).isZero();
+		assertThat(registry.get("petclinic.hedged.reads.hedges").tag("method", READ).functionCounter().count())
+			.isEqualTo(1);
+		assertThat(registry.get("petclinic.hedged.reads.wins")
+			.tags("method", READ, "run", "hedge")
+			.functionCounter()
+			.count()).isEqualTo(1);
+		assertThat(registry.get("petclinic.hedged.reads.wins")
+			.tags("method", READ, "run", "first")
+			.functionCounter()
+			.count()).isZero();
+	}
+
+	@Test
+	void hedgeIsCancelledWhenFirstRunAnswers() {
+		warmUp(this.hedgedReads);
+
+		String result = this.hedgedReads.read(READ, () -> {
+			if (HedgedReads.isHedge()) {
+				return blockUntilCancelled();
+			}
+			// wait until the hedge is running, then answer
+			sleep(500);
+			return "first";
+		});
+
+		assertThat(result).isEqualTo("first");
+		assertThat(this.hedgedReads.getWins(READ, false)).isEqualTo(1);
+		assertThat(awaitCancelled()).isTrue();
+	}
+
+	@Test
+	void failedFirstRunIsAnsweredByHedge() {
+		warmUp(this.hedgedReads);
+
+		String result = this.hedgedReads.read(READ, () -> {
+			if (HedgedReads.isHedge()) {
+				sleep(300);
+				return "hedge";
+			}
+			sleep(100);
+			throw new IllegalStateException("Connection lost");
+		});
+
+		assertThat(result).isEqualTo("hedge");
+	}
+
+	@Test
+	void failureOfBothRunsIsThrown() {
+		warmUp(this.hedgedReads);
+
+		assertThatIllegalStateException().isThrownBy(() -> this.hedgedReads.read(READ, () -> {
+			sleep(HedgedReads.isHedge() ? 0 : 500);
+			throw new IllegalStateException("Database down");
+		})).withMessage("Database down");
+	}
+
+	@Test
+	void hedgesAreHeldToBudget() {
+		HedgedReads hedgedReads = new HedgedReads(Duration.ofMillis(1), 0.1);
+		try {
+			warmUp(hedgedReads);
+			long hedges = hedgedReads.getHedges(READ);
+			for (int i = 0; i < 40; i++) {
+				hedgedReads.read(READ, () -> {
+					sleep(HedgedReads.isHedge() ? 0 : 20);
+					return "slow";
+				});
+			}
+
+			// at most 10 hedges saved up while reads were fast, and one every 10 reads
+			assertThat(hedgedReads.getHedges(READ) - hedges).isBetween(1L, 14L);
+		}
+		finally {
+			hedgedReads.close();
+		}
+	}
+
+	private boolean awaitCancelled() {
+		try {
+			return this.cancelled.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class for {@link JsonStreamFormat} and {@link RowGroups}
+ */
+class JsonStreamFormatTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	private String written() {
+		return this.out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void shouldWriteArray() {
+		long count = JsonStreamFormat.ARRAY.write(Stream.of(Map.of("id", 1), Map.of("id", 2)), this.objectMapper,
+				this.out, null);
+
+		assertThat(count).isEqualTo(2);
+		assertThat(written()).isEqualTo("[{\"id\":1},{\"id\":2}]");
+	}
+
+	@Test
+	void shouldWriteWrappedArray() {
+		JsonStreamFormat.ARRAY.write(Stream.empty(), this.objectMapper, this.out, "vetList");
+
+		assertThat(written()).isEqualTo("{\"vetList\":[]}");
+	}
+
+	@Test
+	void shouldWriteLines() {
+		JsonStreamFormat.LINES.write(Stream.of(Map.of("id", 1), Map.of("id", 2)), this.objectMapper, this.out,
+				"ignored");
+
+		assertThat(written()).isEqualTo("{\"id\":1}\n{\"id\":2}\n");
+	}
+
+	@Test
+	void shouldGroupConsecutiveRows() {
+		Stream<String[]> rows = Stream.of(new String[] { "1", "a" }, new String[] { "1", "b" },
+				new String[] { "2", "c" }, new String[] { "3", "d" }, new String[] { "3", "e" });
+		boolean[] closed = new boolean[1];
+
+		try (Stream<List<String>> groups = RowGroups.group(rows.onClose(() -> closed[0] = true), row -> row[0],
+				row -> new ArrayList<>(), (group, row) -> group.add(row[1]))) {
+			assertThat(groups).containsExactly(List.of("a", "b"), List.of("c"), List.of("d", "e"));
+		}
+		assertThat(closed[0]).isTrue();
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ReferenceData}
+ */
+class ReferenceDataTests {
+
+	private final List<NamedEntity> entries = new ArrayList<>(List.of(entry(1, "cat"), entry(2, "dog")));
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final ReferenceData<NamedEntity> referenceData = new ReferenceData<>("entries", () -> {
+		this.loads.incrementAndGet();
+		return this.entries;
+	});
+
+	private static NamedEntity entry(int id, String name) {
+		NamedEntity entry = new NamedEntity();
+		entry.setId(id);
+		entry.setName(name);
+		return entry;
+	}
+
+	@Test
+	void shouldLoadOnFirstUse() {
+		assertThat(this.loads).hasValue(0);
+
+		assertThat(this.referenceData.findByName("dog").getId()).isEqualTo(2);
+		assertThat(this.referenceData.findById(1).getName()).isEqualTo("cat");
+		assertThat(this.referenceData.findAll()).extracting(NamedEntity::getName).containsExactly("cat", "dog");
+		assertThat(this.loads).hasValue(1);
+	}
+
+	@Test
+	void shouldReturnNullForUnknownEntries() {
+		assertThat(this.referenceData.findByName("fish")).isNull();
+		assertThat(this.referenceData.findById(3)).isNull();
+	}
+
+	@Test
+	void shouldKeepSnapshotUntilRefreshed() {
+		List<NamedEntity> all = this.referenceData.findAll();
+		this.entries.add(entry(3, "fish"));
+
+		assertThat(this.referenceData.findByName("fish")).isNull();
+		assertThat(all).hasSize(2);
+
+		this.referenceData.refresh();
+
+		assertThat(this.referenceData.findByName("fish").getId()).isEqualTo(3);
+		assertThat(this.referenceData.findAll()).hasSize(3);
+		assertThat(all).hasSize(2);
+	}
+
+}
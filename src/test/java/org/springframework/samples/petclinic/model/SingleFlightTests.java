@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link SingleFlight}
+ */
+class SingleFlightTests {
+
+	private static final int CALLERS = 64;
+
+	private final SingleFlight<String, Object> flights = new SingleFlight<>();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Return a loader that only completes once all other callers wait for it.
+	 */
+	private Supplier<Object> loaderWaitingForCallers(Supplier<Object> result) {
+		return () -> {
+			this.loads.incrementAndGet();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (this.flights.getCoalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+				Thread.onSpinWait();
+			}
+			return result.get();
+		};
+	}
+
+	private List<Future<Object>> callConcurrently(Supplier<Object> loader) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Object>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(this.executor.submit(() -> {
+				start.await();
+				return this.flights.load("owner", loader);
+			}));
+		}
+		start.countDown();
+		return results;
+	}
+
+	@Test
+	void shouldRunOneLoadForConcurrentCallers() throws Exception {
+		Object value = new Object();
+
+		List<Future<Object>> results = callConcurrently(loaderWaitingForCallers(() -> value));
+
+		for (Future<Object> result : results) {
+			assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(value);
+		}
+		assertThat(this.loads).hasValue(1);
+		assertThat(this.flights.getLoads()).isOne();
+		assertThat(this.flights.getCoalesced()).isEqualTo(CALLERS - 1);
+	}
+
+	@Test
+	void shouldShareFailureWithConcurrentCallers() throws Exception {
+		IllegalStateException failure = new IllegalStateException("database down");
+
+		List<Future<Object>> results = callConcurrently(loaderWaitingForCallers(() -> {
+			throw failure;
+		}));
+
+		for (Future<Object> result : results) {
+			assertThat(result).failsWithin(10, TimeUnit.SECONDS)
+				.withThrowableOfType(ExecutionException.class)
+				.havingCause()
+				.isSameAs(failure);
+		}
+		assertThat(this.loads).hasValue(1);
+	}
+
+	@Test
+	void shouldLoadAgainOnceLoadCompleted() {
+		assertThat(this.flights.load("owner", () -> "first")).isEqualTo("first");
+		assertThat(this.flights.load("owner", () -> "second")).isEqualTo("second");
+		assertThatIllegalStateException().isThrownBy(() -> this.flights.load("owner", () -> {
+			throw new IllegalStateException();
+		}));
+		assertThat(this.flights.load("owner", () -> "third")).isEqualTo("third");
+
+		assertThat(this.flights.getLoads()).isEqualTo(4);
+		assertThat(this.flights.getCoalesced()).isZero();
+	}
+
+	@Test
+	void shouldNotCoalesceDifferentKeys() {
+		Object owner = this.flights.load("owner", () -> this.flights.load("pets", () -> "pets") + " of owner");
+
+		assertThat(owner).isEqualTo("pets of owner");
+		assertThat(this.flights.getLoads()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldStartNewLoadAfterForget() {
+		Object value = this.flights.load("owner", () -> {
+			this.flights.forget("owner");
+			return this.flights.load("owner", () -> "reloaded");
+		});
+
+		assertThat(value).isEqualTo("reloaded");
+		assertThat(this.flights.getLoads()).isEqualTo(2);
+	}
+
+}
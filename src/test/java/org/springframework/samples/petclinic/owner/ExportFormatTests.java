@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ExportFormat}
+ */
+class ExportFormatTests {
+
+	private static final List<OwnerExporter.Column> COLUMNS = List.of(new OwnerExporter.Column("id", Integer.class),
+			new OwnerExporter.Column("description", String.class), new OwnerExporter.Column("date", LocalDate.class),
+			new OwnerExporter.Column("startTime", LocalTime.class));
+
+	@Test
+	void shouldWriteCsvWithHeader() throws IOException {
+		assertThat(write(ExportFormat.CSV)).isEqualTo("""
+				id,description,date,startTime
+				1,"rabies shot, again",2013-01-01,09:30
+				-2,,2013-01-02,
+				""");
+	}
+
+	@Test
+	void shouldWriteJsonLinesWithoutNulls() throws IOException {
+		assertThat(write(ExportFormat.NDJSON)).isEqualTo("""
+				{"id":1,"description":"rabies shot, again","date":"2013-01-01","startTime":"09:30"}
+				{"id":-2,"date":"2013-01-02"}
+				""");
+	}
+
+	@Test
+	void shouldWriteCompactBinary() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeRows(ExportFormat.BINARY, out);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+		assertThat(new String(in.readNBytes(4), StandardCharsets.US_ASCII)).isEqualTo("PCX1");
+		assertThat(readVarint(in)).isEqualTo(4);
+		assertThat(readString(in)).isEqualTo("id");
+		assertThat(in.read()).isEqualTo('I');
+		assertThat(readString(in)).isEqualTo("description");
+		assertThat(in.read()).isEqualTo('S');
+		assertThat(readString(in)).isEqualTo("date");
+		assertThat(in.read()).isEqualTo('D');
+		assertThat(readString(in)).isEqualTo("startTime");
+		assertThat(in.read()).isEqualTo('T');
+
+		assertThat(in.read()).isEqualTo(1);
+		assertThat(readVarint(in)).isZero();
+		assertThat(readVarint(in)).isEqualTo(2); // zig-zag 1
+		assertThat(readString(in)).isEqualTo("rabies shot, again");
+		assertThat(readVarint(in)).isEqualTo(LocalDate.of(2013, 1, 1).toEpochDay() * 2);
+		assertThat(readVarint(in)).isEqualTo(LocalTime.of(9, 30).toSecondOfDay());
+
+		assertThat(in.read()).isEqualTo(1);
+		assertThat(readVarint(in)).isEqualTo(0b1010);
+		assertThat(readVarint(in)).isEqualTo(3); // zig-zag -2
+		assertThat(readVarint(in)).isEqualTo(LocalDate.of(2013, 1, 2).toEpochDay() * 2);
+
+		assertThat(in.read()).isZero();
+		assertThat(in.read()).isEqualTo(-1);
+	}
+
+	@Test
+	void shouldFindFormatByNameOrExtension() {
+		assertThat(ExportFormat.of("ndjson")).isEqualTo(ExportFormat.NDJSON);
+		assertThat(ExportFormat.of("bin")).isEqualTo(ExportFormat.BINARY);
+		assertThat(ExportFormat.of("BINARY")).isEqualTo(ExportFormat.BINARY);
+		assertThat(ExportFormat.of("xml")).isNull();
+	}
+
+	private static String write(ExportFormat format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeRows(format, out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static void writeRows(ExportFormat format, ByteArrayOutputStream out) throws IOException {
+		ExportFormat.RowWriter writer = format.writer(out, COLUMNS);
+		Object[] values = { 1, "rabies shot, again", LocalDate.of(2013, 1, 1), LocalTime.of(9, 30) };
+		writer.write(values);
+		// rows reuse the same array
+		values[0] = -2;
+		values[1] = null;
+		values[2] = LocalDate.of(2013, 1, 2);
+		values[3] = null;
+		writer.write(values);
+		writer.finish();
+	}
+
+	private static long readVarint(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return new String(in.readNBytes((int) readVarint(in)), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link IdMap}
+ */
+class IdMapTests {
+
+	@Test
+	void shouldMapKeysToIds() {
+		IdMap ids = new IdMap();
+		ids.put(7, 100);
+		ids.put(-3, 101);
+
+		assertThat(ids.get(7)).isEqualTo(100);
+		assertThat(ids.get(-3)).isEqualTo(101);
+		assertThat(ids.get(8)).isZero();
+		assertThat(ids.size()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldKeepFirstIdWhenPutIfAbsent() {
+		IdMap ids = new IdMap();
+
+		assertThat(ids.putIfAbsent(5, -1)).isZero();
+		assertThat(ids.putIfAbsent(5, 200)).isEqualTo(-1);
+		ids.put(5, 200);
+		assertThat(ids.get(5)).isEqualTo(200);
+		assertThat(ids.size()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldGrowWithoutLosingEntries() {
+		IdMap ids = new IdMap();
+		for (int key = 0; key < 100_000; key++) {
+			ids.put(key * 31, key + 1);
+		}
+
+		assertThat(ids.size()).isEqualTo(100_000);
+		for (int key = 0; key < 100_000; key++) {
+			assertThat(ids.get(key * 31)).isEqualTo(key + 1);
+		}
+		assertThat(ids.get(1)).isZero();
+	}
+
+}
@@ -16,22 +16,32 @@
 
 package org.springframework.samples.petclinic.owner;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.assertj.core.util.Lists;
 import org.hamcrest.BaseMatcher;
@@ -45,9 +55,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 /**
  * Test class for {@link OwnerController}
@@ -147,6 +163,24 @@ class OwnerControllerTests {
 		mockMvc.perform(get("/owners?page=1")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
 	}
 
+	@Test
+	void testProcessFindFormAfterCursor() throws Exception {
+		Slice<Owner> tasks = new SliceImpl<Owner>(Lists.newArrayList(george()), PageRequest.of(0, 1), true);
+		PersonCursor cursor = new PersonCursor("Davis", 4);
+		Mockito.when(this.owners.findByLastNameAfter(eq(""), eq(cursor), anyInt())).thenReturn(tasks);
+		mockMvc.perform(get("/owners").param("cursor", cursor.encode()))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeDoesNotExist("totalItems"))
+			.andExpect(model().attributeExists("nextCursor"))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testProcessFindFormWithInvalidCursor() throws Exception {
+		mockMvc.perform(get("/owners").param("cursor", "not a cursor")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/owners").param("cursor", "Zm9v")).andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
 		Page<Owner> tasks = new PageImpl<Owner>(Lists.newArrayList(george()));
@@ -168,6 +202,69 @@ class OwnerControllerTests {
 
 	}
 
+	@Test
+	void testFindLastNames() throws Exception {
+		given(this.owners.findLastNamesStartingWith("Fr", 10)).willReturn(List.of("Franklin"));
+		mockMvc.perform(get("/owners/lastNames").param("prefix", "Fr"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0]").value("Franklin"));
+	}
+
+	@Test
+	void testStreamOwners() throws Exception {
+		given(this.owners.streamAll(any()))
+			.willAnswer(invocation -> invocation.<Function<Stream<Owner>, Object>>getArgument(0)
+				.apply(Stream.of(george(), george())));
+
+		MvcResult result = mockMvc.perform(get("/owners/bulk").accept(MediaType.APPLICATION_JSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("$.length()").value(2))
+			.andExpect(jsonPath("$[0].lastName").value("Franklin"))
+			.andExpect(jsonPath("$[0].pets[0].type.name").value("dog"));
+	}
+
+	@Test
+	void testStreamOwnersAsJsonLines() throws Exception {
+		given(this.owners.streamAll(any()))
+			.willAnswer(invocation -> invocation.<Function<Stream<Owner>, Object>>getArgument(0)
+				.apply(Stream.of(george(), george())));
+
+		MvcResult result = mockMvc.perform(get("/owners/bulk").accept(MediaType.APPLICATION_NDJSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String body = mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(body.split("\n")).hasSize(2).allSatisfy(line -> assertThat(line).startsWith("{\"id\":1,"));
+	}
+
+	@Test
+	void testSearchOwners() throws Exception {
+		given(this.owners.isSearchIndexBuilt()).willReturn(true);
+		given(this.owners.search("rabies", 20)).willReturn(List.of(george()));
+		mockMvc.perform(get("/owners/search").param("q", "rabies"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("query", "rabies"))
+			.andExpect(model().attribute("listOwners", hasSize(1)))
+			.andExpect(model().attribute("searchIndexBuilding", false))
+			.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testSearchOwnersBeforeIndexIsBuilt() throws Exception {
+		mockMvc.perform(get("/owners/search").param("q", "rabies"))
+			.andExpect(status().isOk())
+			.andExpect(model().attribute("searchIndexBuilding", true))
+			.andExpect(content().string(containsString("still being built")));
+	}
+
 	@Test
 	void testInitUpdateOwnerForm() throws Exception {
 		mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * JMH benchmark of exporting {@value #VISITS} generated visits, counting the bytes
+ * written. Runs in a heap of 128 MB, smaller than the exported rows, to show that the
+ * export does not hold them.
+ * <p>
+ * Runs against an H2 database in a temporary directory. Run with {@link #main(String[])}
+ * after {@code ./mvnw test-compile}; it is not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class OwnerExportBenchmark {
+
+	private static final int VISITS = 1_000_000;
+
+	@Param({ "csv", "ndjson", "bin" })
+	String format;
+
+	@Param({ "false", "true" })
+	boolean gzip;
+
+	private Path directory;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerExporter exporter;
+
+	private final CountingOutputStream out = new CountingOutputStream();
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.directory = Files.createTempDirectory("owner-export");
+		// an in-memory database would hold the generated rows in the heap of the
+		// benchmark
+		this.context = new SpringApplicationBuilder(PetClinicApplication.class).web(WebApplicationType.SERVLET)
+			.properties("spring.datasource.url=jdbc:h2:" + this.directory.resolve("db") + ";DB_CLOSE_ON_EXIT=FALSE",
+					"spring.sql.init.mode=always", "server.port=0", "spring.docker.compose.enabled=false",
+					"logging.level.root=warn")
+			.run();
+		this.context.getBean(JdbcTemplate.class)
+			.update("INSERT INTO visits (id, pet_id, visit_date, description, vet_id, start_time, end_time) "
+					+ "SELECT x, 1 + MOD(x, 13), DATEADD(DAY, MOD(x, 3650), DATE '2010-01-01'), "
+					+ "CONCAT('checkup number ', x), 1 + MOD(x, 6), TIME '09:00:00', TIME '09:30:00' "
+					+ "FROM SYSTEM_RANGE(1000, " + (1000 + VISITS - 1) + ")");
+		this.exporter = this.context.getBean(OwnerExporter.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.out.printf("%n%,d bytes per export%n", this.out.count);
+		this.context.close();
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	@Benchmark
+	public long exportVisits() throws IOException {
+		this.out.count = 0;
+		return this.exporter.export(OwnerExporter.Table.VISITS, ExportFormat.of(this.format), this.gzip, this.out)
+			.rows();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OwnerExportBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+
+	}
+
+}
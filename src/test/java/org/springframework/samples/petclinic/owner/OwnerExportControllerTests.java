@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.aot.DisabledInAotMode;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Test class for {@link OwnerExportController}
+ */
+@WebMvcTest(OwnerExportController.class)
+@DisabledInNativeImage
+@DisabledInAotMode
+class OwnerExportControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private OwnerExporter exporter;
+
+	@Test
+	void testExportAsCsvByDefault() throws Exception {
+		given(this.exporter.export(eq(OwnerExporter.Table.OWNERS), eq(ExportFormat.CSV), eq(false), any()))
+			.willAnswer(invocation -> {
+				invocation.<OutputStream>getArgument(3).write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+				return new OwnerExporter.Result(OwnerExporter.Table.OWNERS, 1, Duration.ofMillis(1));
+			});
+
+		MvcResult result = this.mockMvc.perform(get("/export/owners")).andExpect(request().asyncStarted()).andReturn();
+		this.mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType("text/csv;charset=UTF-8"))
+			.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"owners.csv\""))
+			.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+			.andExpect(content().string("id\n1\n"));
+	}
+
+	@Test
+	void testExportCompressedJsonLines() throws Exception {
+		given(this.exporter.export(eq(OwnerExporter.Table.VISITS), eq(ExportFormat.NDJSON), eq(true), any()))
+			.willReturn(new OwnerExporter.Result(OwnerExporter.Table.VISITS, 0, Duration.ofMillis(1)));
+
+		MvcResult result = this.mockMvc
+			.perform(get("/export/visits").accept(MediaType.APPLICATION_NDJSON)
+				.header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		this.mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+	}
+
+	@Test
+	void testExportWithoutGzipWhenRefused() throws Exception {
+		this.mockMvc
+			.perform(get("/export/pets").accept(MediaType.APPLICATION_OCTET_STREAM)
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+			.andExpect(request().asyncStarted())
+			.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	void testExportUnknownTable() throws Exception {
+		this.mockMvc.perform(get("/export/vets")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testExportUnacceptableFormat() throws Exception {
+		this.mockMvc.perform(get("/export/owners").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isNotAcceptable());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Integration test of {@link OwnerExporter} and {@link OwnerExportRunner} against the
+ * embedded database.
+ */
+@SpringBootTest
+class OwnerExporterTests {
+
+	@Autowired
+	private OwnerExporter exporter;
+
+	@Autowired
+	private OwnerExportRunner runner;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void shouldExportOwnersAsCsv() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OwnerExporter.Result result = this.exporter.export(OwnerExporter.Table.OWNERS, ExportFormat.CSV, false, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(result.rows()).isEqualTo(count("owners"));
+		assertThat(lines).hasSize((int) result.rows() + 1);
+		assertThat(lines[0]).isEqualTo("id,firstName,lastName,address,city,telephone");
+		assertThat(lines[1]).isEqualTo("1,George,Franklin,\"110 W. Liberty St.\",Madison,6085551023");
+		assertThat(result.rowsPerSecond()).isPositive();
+	}
+
+	@Test
+	void shouldExportPetsWithTypeNamesAsCompressedJsonLines() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OwnerExporter.Result result = this.exporter.export(OwnerExporter.Table.PETS, ExportFormat.NDJSON, true, out);
+
+		String[] lines = gunzip(new ByteArrayInputStream(out.toByteArray())).split("\n");
+		assertThat(lines).hasSize((int) result.rows()).hasSize(count("pets"));
+		assertThat(lines[0])
+			.isEqualTo("{\"id\":1,\"ownerId\":1,\"name\":\"Leo\",\"birthDate\":\"2010-09-07\",\"type\":\"cat\"}");
+	}
+
+	@Test
+	void shouldExportAllTablesToFiles(@TempDir Path directory) throws IOException {
+		this.runner.export(directory, ExportFormat.CSV, true);
+
+		assertThat(directory.resolve("owners.csv.gz")).exists();
+		assertThat(directory.resolve("pets.csv.gz")).exists();
+		try (InputStream in = Files.newInputStream(directory.resolve("visits.csv.gz"))) {
+			String[] lines = gunzip(in).split("\n");
+			assertThat(lines[0]).isEqualTo("id,petId,date,description,vetId,startTime,endTime");
+			assertThat(lines).hasSize(count("visits") + 1);
+		}
+	}
+
+	private int count(String table) {
+		return this.jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+	}
+
+	private static String gunzip(InputStream in) throws IOException {
+		return new String(new GZIPInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+}
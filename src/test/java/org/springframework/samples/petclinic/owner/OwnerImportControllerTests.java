@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.aot.DisabledInAotMode;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Test class for {@link OwnerImportController}
+ */
+@WebMvcTest(OwnerImportController.class)
+@DisabledInNativeImage
+@DisabledInAotMode
+class OwnerImportControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private OwnerImporter importer;
+
+	@Test
+	void testImportStreamsProgressAsJsonLines() throws Exception {
+		given(this.importer.importCsv(any(InputStreamSource.class), isNull(), isNull(), any()))
+			.willAnswer(invocation -> {
+				OwnerImporter.Listener listener = invocation.getArgument(3);
+				listener.rejected(new OwnerImporter.Rejection("owners", 2, "id: duplicate id 1"));
+				listener.progress(new OwnerImporter.Progress("owners", 2, 1, 1));
+				return new OwnerImporter.Result(1, 1);
+			});
+
+		MvcResult result = this.mockMvc
+			.perform(multipart("/owners/import").file(new MockMultipartFile("owners", "owners.csv", "text/csv",
+					"id,firstName\n1,George\n1,Betty\n".getBytes())))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String body = this.mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(body.split("\n")).containsExactly(
+				"{\"file\":\"owners\",\"row\":2,\"reason\":\"id: duplicate id 1\"}",
+				"{\"file\":\"owners\",\"rows\":2,\"imported\":1,\"rejected\":1}", "{\"imported\":1,\"rejected\":1}");
+	}
+
+	@Test
+	void testImportReportsError() throws Exception {
+		given(this.importer.importCsv(any(InputStreamSource.class), isNull(), isNull(), any()))
+			.willThrow(new IOException("Unexpected end-of-input"));
+
+		MvcResult result = this.mockMvc
+			.perform(multipart("/owners/import")
+				.file(new MockMultipartFile("owners", "owners.csv", "text/csv", "id,\"first".getBytes())))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String body = this.mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(body).isEqualTo("{\"error\":\"Unexpected end-of-input\"}\n");
+	}
+
+	@Test
+	void testImportWithoutFiles() throws Exception {
+		this.mockMvc.perform(multipart("/owners/import").param("owners", "")).andExpect(status().isBadRequest());
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Integration test of {@link OwnerImporter} against the embedded database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:owner-import")
+class OwnerImporterTests {
+
+	@Autowired
+	private OwnerImporter importer;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<OwnerImporter.Progress> progress = new ArrayList<>();
+
+	private final List<OwnerImporter.Rejection> rejections = new ArrayList<>();
+
+	private final OwnerImporter.Listener listener = new OwnerImporter.Listener() {
+
+		@Override
+		public void progress(OwnerImporter.Progress progress) {
+			OwnerImporterTests.this.progress.add(progress);
+		}
+
+		@Override
+		public void rejected(OwnerImporter.Rejection rejection) {
+			OwnerImporterTests.this.rejections.add(rejection);
+		}
+
+	};
+
+	@Test
+	void shouldImportOwnersWithPetsAndVisits() throws Exception {
+		OwnerImporter.Result result = this.importer.importCsv(csv("""
+				id,firstName,lastName,address,city,telephone
+				10,Ada,Quimby,1 Harbour St.,Madison,6085550101
+				11,Ben,Quimby,2 Harbour St.,Madison,6085550102
+				"""), csv("""
+				id,ownerId,name,birthDate,type
+				20,10,Pickles,2019-04-01,cat
+				21,11,Biscuit,2020-05-02,dog
+				"""), csv("""
+				petId,date,description
+				20,2023-01-10,wombat bite
+				20,2023-02-11,checkup
+				21,2023-03-12,vaccination
+				"""), this.listener);
+
+		assertThat(result).isEqualTo(new OwnerImporter.Result(7, 0));
+		assertThat(this.progress).extracting(OwnerImporter.Progress::file).containsExactly("owners", "pets", "visits");
+		assertThat(this.rejections).isEmpty();
+
+		Owner ada = this.owners.findByLastName("Quimby", PageRequest.of(0, 5)).getContent().get(0);
+		assertThat(ada.getFirstName()).isEqualTo("Ada");
+		assertThat(ada.getId()).isNotEqualTo(10);
+		Pet pickles = ada.getPet("Pickles");
+		assertThat(pickles.getType().getName()).isEqualTo("cat");
+		assertThat(pickles.getVisits()).hasSize(2);
+		assertThat(this.owners.search("wombat", 5)).extracting(Owner::getId).containsExactly(ada.getId());
+	}
+
+	@Test
+	void shouldRejectInvalidRowsAndImportTheOthers() throws Exception {
+		OwnerImporter.Result result = this.importer.importCsv(csv("""
+				id,firstName,lastName,address,city,telephone
+				30,Cal,Rendell,3 Dock Rd.,Madison,6085550103
+				30,Dee,Rendell,4 Dock Rd.,Madison,6085550104
+				31,Eve,Rendell,5 Dock Rd.,Madison,not a number
+				"""), csv("""
+				id,ownerId,name,birthDate,type
+				40,30,Nibbles,2021-06-03,hamster
+				41,30,Rex,2021-06-03,dinosaur
+				42,99,Spot,2021-06-03,dog
+				"""), csv("""
+				petId,date,description
+				40,2023-04-13,annual checkup
+				41,2023-04-14,hatching
+				40,yesterday,checkup
+				"""), this.listener);
+
+		assertThat(result).isEqualTo(new OwnerImporter.Result(3, 6));
+		assertThat(this.rejections).extracting(OwnerImporter.Rejection::file, OwnerImporter.Rejection::row)
+			.containsExactly(tuple("owners", 2L), tuple("owners", 3L), tuple("pets", 2L), tuple("pets", 3L),
+					tuple("visits", 2L), tuple("visits", 3L));
+		assertThat(this.rejections.get(0).reason()).isEqualTo("id: duplicate id 30");
+		assertThat(this.rejections.get(1).reason()).startsWith("telephone: ");
+		assertThat(this.rejections.get(2).reason()).isEqualTo("type: invalid value dinosaur");
+		assertThat(this.rejections.get(3).reason()).isEqualTo("ownerId: no imported owner with id 99");
+		assertThat(this.rejections.get(4).reason()).isEqualTo("petId: no imported pet with id 41");
+		assertThat(this.rejections.get(5).reason()).isEqualTo("date: invalid date");
+		assertThat(this.jdbcTemplate.queryForObject("SELECT count(*) FROM owners WHERE last_name = 'Rendell'",
+				Integer.class))
+			.isEqualTo(1);
+	}
+
+	private static ByteArrayResource csv(String content) {
+		return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerNameIndex}
+ */
+class OwnerNameIndexTests {
+
+	private final OwnerNameIndex index = OwnerNameIndex.of(new int[] { 1, 2, 3, 4, 5 },
+			new String[] { "Franklin", "Davis", "Rodriquez", "davis", "Black" });
+
+	@Test
+	void shouldFindIdsByPrefixMatchingCase() {
+		assertThat(this.index.ids("Da", 0, 10)).containsExactly(2);
+		assertThat(this.index.ids("da", 0, 10)).containsExactly(4);
+		assertThat(this.index.ids("", 0, 3)).containsExactly(5, 2, 1);
+		assertThat(this.index.ids("", 3, 10)).containsExactly(3, 4);
+		assertThat(this.index.ids("Dx", 0, 10)).isEmpty();
+		assertThat(this.index.count("D")).isEqualTo(1);
+		assertThat(this.index.count("")).isEqualTo(5);
+	}
+
+	@Test
+	void shouldSuggestDistinctNames() {
+		OwnerNameIndex changed = this.index.with(6, "Davis");
+
+		assertThat(changed.names("D", 10)).containsExactly("Davis");
+		assertThat(changed.names("d", 10)).containsExactly("davis");
+		assertThat(changed.names("", 2)).containsExactly("Black", "Davis");
+	}
+
+	@Test
+	void shouldApplyChangesToNewIndex() {
+		OwnerNameIndex changed = this.index.with(6, "Dawson").with(1, "Daly").with(3, null);
+
+		assertThat(changed.ids("Da", 0, 10)).containsExactly(1, 2, 6);
+		assertThat(changed.count("R")).isZero();
+		assertThat(changed.size()).isEqualTo(5);
+		assertThat(this.index.ids("Da", 0, 10)).containsExactly(2);
+	}
+
+	@Test
+	void shouldApplyChangesAcrossBlocks() {
+		Random random = new Random(42);
+		int[] ids = new int[5000];
+		String[] names = new String[ids.length];
+		for (int id = 0; id < ids.length; id++) {
+			ids[id] = id;
+			names[id] = "Name" + random.nextInt(200);
+		}
+		OwnerNameIndex changed = OwnerNameIndex.of(ids, names);
+		for (int i = 0; i < 3000; i++) {
+			int id = random.nextInt(ids.length);
+			names[id] = random.nextInt(10) == 0 ? null : "Name" + random.nextInt(20);
+			changed = changed.with(id, names[id]);
+		}
+
+		int[] remaining = Arrays.stream(ids).filter(id -> names[id] != null).toArray();
+		OwnerNameIndex rebuilt = OwnerNameIndex.of(remaining,
+				Arrays.stream(remaining).mapToObj(id -> names[id]).toArray(String[]::new));
+		assertThat(changed.size()).isEqualTo(rebuilt.size());
+		assertThat(changed.ids("", 0, ids.length)).isEqualTo(rebuilt.ids("", 0, ids.length));
+		assertThat(changed.ids("Name1", 100, 50)).isEqualTo(rebuilt.ids("Name1", 100, 50));
+		assertThat(changed.names("Name", 300)).isEqualTo(rebuilt.names("Name", 300));
+		assertThat(changed.nameOf(remaining[0])).isEqualTo(names[remaining[0]]);
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark for {@link OwnerSearchIndex}: indexing throughput and query throughput of
+ * one and two term queries, over up to 100 000 owners with 20 visits each.
+ * <p>
+ * Run with {@link #main(String[])} after {@code ./mvnw test-compile}; it is not part of
+ * the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerSearchIndexBenchmark {
+
+	private static final String[] CITIES = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee" };
+
+	private static final String[] LAST_NAMES = { "Franklin", "Davis", "Rodriquez", "McTavish", "Coleman", "Black",
+			"Escobito", "Schroeder", "Estaban" };
+
+	private static final String[] PET_NAMES = { "Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha", "Max",
+			"Lucky", "Mulligan", "Freddy", "Sly" };
+
+	private static final String[] VISIT_WORDS = { "rabies", "shot", "neutered", "spayed", "dental", "cleaning",
+			"checkup", "vaccination", "booster", "limping", "ear", "infection", "skin", "allergy", "fracture", "x-ray",
+			"weight", "control", "surgery", "follow-up" };
+
+	private static final int VISITS_PER_OWNER = 20;
+
+	@Param({ "10000", "100000" })
+	int owners;
+
+	private OwnerSearchIndex index;
+
+	private OwnerSearchIndex.Document[] documents;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		this.documents = new OwnerSearchIndex.Document[this.owners];
+		this.index = new OwnerSearchIndex();
+		for (int id = 0; id < this.owners; id++) {
+			this.documents[id] = document(random, id);
+			this.index.put(id, this.documents[id]);
+		}
+	}
+
+	@Benchmark
+	public Object index() {
+		// re-index existing owners, which removes and adds their postings
+		int id = this.next++ % this.owners;
+		return this.index.put(id, this.documents[(id + 1) % this.owners]);
+	}
+
+	@Benchmark
+	public Object searchCommonTerm() {
+		return this.index.search("rabies", 10);
+	}
+
+	@Benchmark
+	public Object searchTwoTerms() {
+		return this.index.search("monona dental", 10);
+	}
+
+	@Benchmark
+	public Object searchRareTerm() {
+		return this.index.search("6085551234", 10);
+	}
+
+	private static OwnerSearchIndex.Document document(Random random, int id) {
+		OwnerSearchIndex.Document.Builder document = OwnerSearchIndex.Document.builder()
+			.add("Owner" + id)
+			.add(pick(random, LAST_NAMES))
+			.add(random.nextInt(10000) + " Main St.")
+			.add(pick(random, CITIES))
+			.add(String.valueOf(6085550000L + id));
+		for (int i = 0; i < 2; i++) {
+			document.add(pick(random, PET_NAMES));
+		}
+		for (int i = 0; i < VISITS_PER_OWNER; i++) {
+			document.add(pick(random, VISIT_WORDS) + " " + pick(random, VISIT_WORDS));
+		}
+		return document.build();
+	}
+
+	private static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(OwnerSearchIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
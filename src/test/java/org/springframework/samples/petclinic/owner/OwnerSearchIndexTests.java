@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+class OwnerSearchIndexTests {
+
+	private final OwnerSearchIndex index = new OwnerSearchIndex();
+
+	@BeforeEach
+	void setup() {
+		this.index.put(1, document("George Franklin", "Madison", "6085551023", "Leo", "rabies shot"));
+		this.index.put(2, document("Betty Davis", "Sun Prairie", "6085551749", "Basil"));
+		this.index.put(3, document("Eduardo Rodriquez", "McFarland", "6085558763", "Rosy", "Jewel", "neutered"));
+		this.index.put(4, document("Harold Davis", "Windsor", "6085553198", "Iggy", "rabies shot", "rabies booster"));
+	}
+
+	@Test
+	void shouldTokenizeIntoLowerCaseWords() {
+		assertThat(OwnerSearchIndex.tokenize("Rabies-shot, (608) 555-1023")).containsExactly("rabies", "shot", "608",
+				"555", "1023");
+		assertThat(OwnerSearchIndex.tokenize(null)).isEmpty();
+	}
+
+	@Test
+	void shouldMatchAllTermsRankedByRelevance() {
+		assertThat(this.index.search("RABIES", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(4, 1);
+		assertThat(this.index.search("davis rabies", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(4);
+		assertThat(this.index.search("6085551749", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(2);
+		assertThat(this.index.search("davis unknown", 10)).isEmpty();
+		assertThat(this.index.search("  ", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldKeepBestHitsOnly() {
+		assertThat(this.index.search("davis", 1)).hasSize(1);
+	}
+
+	@Test
+	void shouldReplaceAndRemoveDocuments() {
+		OwnerSearchIndex.Document previous = this.index.put(1, document("George Franklin", "Madison", "Max"));
+
+		assertThat(this.index.search("leo", 10)).isEmpty();
+		assertThat(this.index.search("max madison", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(1);
+
+		this.index.put(1, previous);
+		this.index.put(4, null);
+
+		assertThat(this.index.search("leo", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(1);
+		assertThat(this.index.search("rabies", 10)).extracting(OwnerSearchIndex.Hit::ownerId).containsExactly(1);
+		assertThat(this.index.size()).isEqualTo(3);
+	}
+
+	private static OwnerSearchIndex.Document document(String... texts) {
+		OwnerSearchIndex.Document.Builder builder = OwnerSearchIndex.Document.builder();
+		for (String text : texts) {
+			builder.add(text);
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Integration test of {@link PetController} counting the JDBC statements its pages run
+ * against the embedded database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:pet-controller")
+@AutoConfigureMockMvc
+class PetControllerIntegrationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void shouldLoadOwnerOnceWhenEditingPet() throws Exception {
+		SessionFactory sessionFactory = this.entityManagerFactory.unwrap(SessionFactory.class);
+		Statistics statistics = sessionFactory.getStatistics();
+		// loads the pet types and anything else a first request needs
+		this.mockMvc.perform(get("/owners/10/pets/12/edit")).andExpect(status().isOk());
+
+		statistics.clear();
+		this.mockMvc.perform(get("/owners/6/pets/7/edit")).andExpect(status().isOk());
+		long pageStatements = statistics.getPrepareStatementCount();
+
+		evictOwnersPetsAndVisits(sessionFactory.getCache());
+		statistics.clear();
+		EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+		try {
+			assertThat(entityManager.find(Owner.class, 6).getPet(7)).isNotNull();
+		}
+		finally {
+			entityManager.close();
+		}
+		long loadStatements = statistics.getPrepareStatementCount();
+
+		// the owner is loaded once for both the owner and the pet model attributes
+		assertThat(pageStatements).isPositive().isEqualTo(loadStatements);
+
+		statistics.clear();
+		this.mockMvc.perform(get("/owners/6/pets/7/edit")).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	private static void evictOwnersPetsAndVisits(Cache cache) {
+		cache.evictEntityData(Owner.class);
+		cache.evictEntityData(Pet.class);
+		cache.evictEntityData(Visit.class);
+		cache.evictCollectionData(Owner.class.getName() + ".pets");
+		cache.evictCollectionData(Pet.class.getName() + ".visits");
+	}
+
+}
@@ -29,6 +29,10 @@ import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -41,7 +45,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @author Colin But
  */
 @WebMvcTest(value = PetController.class,
-		includeFilters = @ComponentScan.Filter(value = PetTypeFormatter.class, type = FilterType.ASSIGNABLE_TYPE))
+		includeFilters = @ComponentScan.Filter(value = { PetTypeFormatter.class, PetTypeReferenceData.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class PetControllerTests {
@@ -56,6 +61,9 @@ class PetControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@Autowired
+	private PetTypeReferenceData petTypes;
+
 	@BeforeEach
 	void setup() {
 		PetType cat = new PetType();
@@ -67,6 +75,9 @@ class PetControllerTests {
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(owner);
+		// as on startup, load the pet types before the first request
+		this.petTypes.refresh();
+		clearInvocations(this.owners);
 	}
 
 	@Test
@@ -85,6 +96,11 @@ class PetControllerTests {
 				.param("birthDate", "2015-02-12"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+
+		// owner for the model, pet types for the form and the type formatter are in
+		// memory
+		verify(this.owners, times(1)).findById(TEST_OWNER_ID);
+		verify(this.owners, never()).findPetTypes();
 	}
 
 	@Test
@@ -106,6 +122,20 @@ class PetControllerTests {
 			.andExpect(status().isOk())
 			.andExpect(model().attributeExists("pet"))
 			.andExpect(view().name("pets/createOrUpdatePetForm"));
+
+		// shared by the owner and pet model attributes
+		verify(this.owners, times(1)).findById(TEST_OWNER_ID);
+		verify(this.owners, never()).findPetTypes();
+	}
+
+	@Test
+	void testOwnerLoadedOncePerRequest() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID))
+			.andExpect(status().isOk());
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID))
+			.andExpect(status().isOk());
+
+		verify(this.owners, times(2)).findById(TEST_OWNER_ID);
 	}
 
 	@Test
@@ -116,6 +146,9 @@ class PetControllerTests {
 				.param("birthDate", "2015-02-12"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+
+		verify(this.owners, times(1)).findById(TEST_OWNER_ID);
+		verify(this.owners, never()).findPetTypes();
 	}
 
 	@Test
@@ -49,7 +49,7 @@ class PetTypeFormatterTests {
 
 	@BeforeEach
 	void setup() {
-		this.petTypeFormatter = new PetTypeFormatter(pets);
+		this.petTypeFormatter = new PetTypeFormatter(new PetTypeReferenceData(pets));
 	}
 
 	@Test
@@ -83,11 +83,13 @@ class PetTypeFormatterTests {
 		List<PetType> petTypes = new ArrayList<>();
 		petTypes.add(new PetType() {
 			{
+				setId(1);
 				setName("Dog");
 			}
 		});
 		petTypes.add(new PetType() {
 			{
+				setId(2);
 				setName("Bird");
 			}
 		});
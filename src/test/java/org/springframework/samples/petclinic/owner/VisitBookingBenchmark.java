@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * JMH benchmark comparing the cost of booking a visit against the number of visits the
+ * pet already had: loading, changing and saving the whole owner ({@link #saveOwner()},
+ * how visits used to be added) versus inserting the visit with {@link VisitService}
+ * ({@link #addVisit()}).
+ * <p>
+ * Runs against the embedded H2 database. Each booking is flushed and then rolled back, so
+ * the visit history keeps its size. Run with {@link #main(String[])} after
+ * {@code ./mvnw test-compile}, adding {@code -prof gc} to the JMH arguments to compare
+ * allocation as well; it is not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitBookingBenchmark {
+
+	private static final int OWNER_ID = 6;
+
+	private static final int PET_ID = 7;
+
+	@Param({ "10", "1000", "10000" })
+	int visits;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerRepository owners;
+
+	private VisitService visitService;
+
+	private EntityManager entityManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.context = new SpringApplicationBuilder(PetClinicApplication.class).web(WebApplicationType.SERVLET)
+			.properties("spring.datasource.url=jdbc:h2:mem:visit-booking-" + this.visits + ";DB_CLOSE_ON_EXIT=FALSE",
+					"server.port=0", "spring.docker.compose.enabled=false", "logging.level.root=warn")
+			.run();
+		List<Object[]> history = new ArrayList<>();
+		for (int i = 0; i < this.visits; i++) {
+			history.add(new Object[] { PET_ID, LocalDate.of(2000, 1, 1).plusDays(i), "checkup " + i });
+		}
+		this.context.getBean(JdbcTemplate.class)
+			.batchUpdate(
+					"INSERT INTO visits (id, pet_id, visit_date, description) VALUES (NEXT VALUE FOR visits_seq, ?, ?, ?)",
+					history);
+		this.owners = this.context.getBean(OwnerRepository.class);
+		this.visitService = this.context.getBean(VisitService.class);
+		this.entityManager = SharedEntityManagerCreator
+			.createSharedEntityManager(this.context.getBean(EntityManagerFactory.class));
+		this.transactionTemplate = new TransactionTemplate(this.context.getBean(PlatformTransactionManager.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public Object saveOwner() {
+		return this.transactionTemplate.execute(status -> {
+			Owner owner = this.owners.findById(OWNER_ID);
+			Visit visit = newVisit();
+			owner.addVisit(PET_ID, visit);
+			this.owners.save(owner);
+			this.entityManager.flush();
+			status.setRollbackOnly();
+			return visit;
+		});
+	}
+
+	@Benchmark
+	public Object addVisit() {
+		return this.transactionTemplate.execute(status -> {
+			boolean added = this.visitService.addVisit(OWNER_ID, PET_ID, newVisit());
+			status.setRollbackOnly();
+			return added;
+		});
+	}
+
+	private static Visit newVisit() {
+		Visit visit = new Visit();
+		visit.setDescription("rabies shot");
+		return visit;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VisitBookingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
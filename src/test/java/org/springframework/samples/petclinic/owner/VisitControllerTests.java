@@ -16,7 +16,12 @@
 
 package org.springframework.samples.petclinic.owner;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -52,6 +57,9 @@ class VisitControllerTests {
 	@MockBean
 	private OwnerRepository owners;
 
+	@MockBean
+	private VisitService visits;
+
 	@BeforeEach
 	void init() {
 		Owner owner = new Owner();
@@ -59,6 +67,7 @@ class VisitControllerTests {
 		owner.addPet(pet);
 		pet.setId(TEST_PET_ID);
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(owner);
+		given(this.visits.addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(Visit.class))).willReturn(true);
 	}
 
 	@Test
@@ -76,6 +85,23 @@ class VisitControllerTests {
 				.param("description", "Visit Description"))
 			.andExpect(status().is3xxRedirection())
 			.andExpect(view().name("redirect:/owners/{ownerId}"));
+
+		verify(this.visits).addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), any(Visit.class));
+		verify(this.owners, never()).findById(TEST_OWNER_ID);
+	}
+
+	@Test
+	void testProcessNewVisitFormIgnoresVetAndTimes() throws Exception {
+		mockMvc
+			.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", TEST_OWNER_ID, TEST_PET_ID)
+				.param("description", "Visit Description")
+				.param("vetId", "2")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00"))
+			.andExpect(status().is3xxRedirection());
+
+		verify(this.visits).addVisit(eq(TEST_OWNER_ID), eq(TEST_PET_ID), argThat(visit -> visit.getVetId() == null
+				&& visit.getStartTime() == null && visit.getEndTime() == null));
 	}
 
 	@Test
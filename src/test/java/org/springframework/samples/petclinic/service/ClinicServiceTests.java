@@ -17,27 +17,50 @@
 package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.samples.petclinic.owner.VisitService;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.SpecialtyReferenceData;
+import org.springframework.samples.petclinic.vet.Slot;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSchedule;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
 
 /**
  * Integration test of the Service and the Repository layer.
@@ -67,7 +90,8 @@ import org.springframework.transaction.annotation.Transactional;
  * @author Michael Isvy
  * @author Dave Syer
  */
-@DataJpaTest(includeFilters = @ComponentScan.Filter(Service.class))
+@DataJpaTest(includeFilters = { @ComponentScan.Filter(Service.class),
+		@ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = SpecialtyReferenceData.class) })
 // Ensure that if the mysql profile is active we connect to the real database:
 @AutoConfigureTestDatabase(replace = Replace.NONE)
 // @TestPropertySource("/application-postgres.properties")
@@ -79,6 +103,24 @@ class ClinicServiceTests {
 	@Autowired
 	protected VetRepository vets;
 
+	@Autowired
+	protected VisitService visitService;
+
+	@Autowired
+	protected VisitRepository visitRepository;
+
+	@Autowired
+	protected VetSchedule schedule;
+
+	@Autowired
+	protected SpecialtyReferenceData specialties;
+
+	@Autowired
+	protected PlatformTransactionManager transactionManager;
+
+	@Autowired
+	protected EntityManager entityManager;
+
 	Pageable pageable;
 
 	@Test
@@ -90,6 +132,80 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldFindOwnersByLastNameWithFixedNumberOfStatementsPerPage() {
+		Statistics statistics = this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getStatistics();
+		for (int page = 0; page < 2; page++) {
+			this.entityManager.clear();
+			statistics.clear();
+
+			Page<Owner> owners = this.owners.findByLastName("", PageRequest.of(page, 5));
+			assertThat(owners).hasSize(5);
+			assertThat(owners.getTotalElements()).isEqualTo(10);
+			assertThat(owners).allSatisfy(owner -> assertThat(owner.getPets()).doesNotHaveDuplicates());
+			assertThat(owners).flatMap(Owner::getPets).flatMap(Pet::getVisits).extracting(Visit::getDate).isNotNull();
+
+			// page of ids and count come from the last name index, pets are
+			// fetched with their visits, then owners with their pets
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void shouldFindOwnersByLastNameAfterCursor() {
+		List<String> lastNames = new ArrayList<>();
+		PersonCursor cursor = PersonCursor.FIRST;
+		Slice<Owner> owners;
+		do {
+			owners = this.owners.findByLastNameAfter("", cursor, 3);
+			owners.forEach(owner -> lastNames.add(owner.getLastName()));
+			Owner last = owners.getContent().get(owners.getNumberOfElements() - 1);
+			cursor = PersonCursor.decode(PersonCursor.after(last).encode());
+		}
+		while (owners.hasNext());
+
+		assertThat(lastNames).hasSize(10).isSorted();
+		assertThat(this.owners.findByLastNameAfter("Davis", PersonCursor.FIRST, 5)).hasSize(2);
+	}
+
+	@Test
+	void shouldSearchOwnersByCityPetAndVisit() {
+		assertThat(this.owners.search("monona", 10)).extracting(Owner::getLastName)
+			.containsExactlyInAnyOrder("Coleman", "Black");
+		assertThat(this.owners.search("George", 10)).extracting(Owner::getLastName)
+			.containsExactlyInAnyOrder("Franklin", "McTavish");
+		assertThat(this.owners.search("Neutered", 10)).singleElement()
+			.satisfies(owner -> assertThat(owner.getPets()).hasSize(2));
+		assertThat(this.owners.search("monona 6085555387", 10)).extracting(Owner::getLastName).containsExactly("Black");
+	}
+
+	@Test
+	@Transactional
+	void shouldSearchSavedVisits() {
+		assertThat(this.owners.search("dental", 10)).isEmpty();
+
+		Owner owner6 = this.owners.findById(6);
+		Visit visit = new Visit();
+		visit.setDescription("Dental cleaning");
+		owner6.addVisit(7, visit);
+		this.owners.save(owner6);
+
+		assertThat(this.owners.search("dental", 10)).extracting(Owner::getId).containsExactly(6);
+	}
+
+	@Test
+	void shouldStreamOwnersWithPetsAndVisits() {
+		List<Owner> owners = this.owners.streamAll(Stream::toList);
+
+		assertThat(owners).extracting(Owner::getId).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		for (Owner streamed : owners) {
+			Owner loaded = this.owners.findById(streamed.getId());
+			assertThat(streamed).usingRecursiveComparison().isEqualTo(loaded);
+		}
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Owner owner = this.owners.findById(1);
@@ -99,6 +215,81 @@ class ClinicServiceTests {
 		assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
 	}
 
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldFindCachedOwnerUntilSaved() {
+		Statistics statistics = this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getStatistics();
+		Owner owner = this.owners.findById(6);
+		statistics.clear();
+
+		Owner cached = this.owners.findById(6);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(cached).isNotSameAs(owner);
+		assertThat(cached.getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+		assertThat(cached.getPet(7).getVisits()).extracting(Visit::getDescription)
+			.containsExactly("rabies shot", "spayed");
+
+		// evicted by saving, even without changes
+		this.owners.save(cached);
+		statistics.clear();
+		this.owners.findById(6);
+		assertThat(statistics.getPrepareStatementCount()).isPositive();
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldLoadOwnersFromSecondLevelCacheAcrossTransactions() {
+		Statistics statistics = this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getStatistics();
+		this.entityManager.getEntityManagerFactory().getCache().evictAll();
+		TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+		transaction.executeWithoutResult(status -> this.entityManager.find(Owner.class, 6));
+		statistics.clear();
+
+		Owner owner = transaction.execute(status -> this.entityManager.find(Owner.class, 6));
+
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getDomainDataRegionStatistics("owners").getHitCount()).isEqualTo(1);
+		assertThat(statistics.getDomainDataRegionStatistics("pet-visits").getHitCount()).isEqualTo(2);
+		assertThat(owner.getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+		assertThat(owner.getPet(7).getType().getName()).isEqualTo("cat");
+		assertThat(owner.getPet(7).getVisits()).extracting(Visit::getDescription)
+			.containsExactly("rabies shot", "spayed");
+	}
+
+	@Test
+	@Transactional
+	void shouldNotLoadStaleVisitsFromSecondLevelCache() {
+		int found = this.entityManager.find(Owner.class, 6).getPet(7).getVisits().size();
+		this.entityManager.clear();
+		Visit visit = new Visit();
+		visit.setDescription("test");
+
+		this.visitService.addVisit(6, 7, visit);
+		this.entityManager.clear();
+
+		assertThat(this.entityManager.find(Owner.class, 6).getPet(7).getVisits()).hasSize(found + 1);
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldCachePetTypesQuery() {
+		Statistics statistics = this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getStatistics();
+		this.owners.findPetTypes();
+		statistics.clear();
+
+		Collection<PetType> petTypes = this.owners.findPetTypes();
+
+		assertThat(petTypes).extracting(PetType::getName).startsWith("bird", "cat");
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getQueryRegionStatistics("pet-type-queries").getHitCount()).isEqualTo(1);
+	}
+
 	@Test
 	@Transactional
 	void shouldInsertOwner() {
@@ -193,6 +384,75 @@ class ClinicServiceTests {
 		assertThat(vet.getSpecialties().get(1).getName()).isEqualTo("surgery");
 	}
 
+	@Test
+	void shouldStreamVetsWithSpecialties() {
+		List<Vet> vets = this.vets.streamAll(Stream::toList);
+
+		assertThat(vets).extracting(Vet::getId).containsExactly(1, 2, 3, 4, 5, 6);
+		Vet vet = vets.get(2);
+		assertThat(vet.getLastName()).isEqualTo("Douglas");
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+		assertThat(vet.getSpecialties().get(0)).isSameAs(this.specialties.findByName("dentistry"));
+	}
+
+	@Test
+	@Transactional
+	void shouldScheduleVisitWithVetOnlyOnce() {
+		LocalDate day = LocalDate.now().plusDays(1);
+
+		assertThat(this.schedule.book(6, 7, scheduledVisit(1, day, "10:00", "10:30"))).isTrue();
+		assertThat(this.schedule.book(6, 7, scheduledVisit(1, day, "10:15", "10:45"))).isFalse();
+		assertThat(this.schedule.book(6, 7, scheduledVisit(2, day, "10:15", "10:45"))).isTrue();
+
+		assertThat(this.visitRepository.findScheduledVisitsFrom(day)).extracting(Visit::getVetId, Visit::getStartTime)
+			.containsExactlyInAnyOrder(tuple(1, LocalTime.of(10, 0)), tuple(2, LocalTime.of(10, 15)));
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldReleaseSlotWhenBookingRollsBack() {
+		LocalDate day = LocalDate.now().plusDays(1);
+		TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+		for (int i = 0; i < 2; i++) {
+			Boolean booked = transaction.execute(status -> {
+				status.setRollbackOnly();
+				return this.schedule.book(6, 7, scheduledVisit(1, day, "11:00", "11:30"));
+			});
+			assertThat(booked).isTrue();
+		}
+		assertThat(this.visitRepository.findScheduledVisitsFrom(day)).isEmpty();
+	}
+
+	@Test
+	@Transactional
+	void shouldFindEarliestSlotOfVetWithSpecialties() {
+		LocalDate day = LocalDate.now().plusDays(1);
+		this.schedule.book(6, 7, scheduledVisit(3, day, "09:00", "09:30"));
+
+		assertThat(this.schedule.findEarliestSlot(List.of("surgery"), day.atStartOfDay(), 1, Duration.ofMinutes(30)))
+			.contains(new Slot(4, day, LocalTime.of(9, 0), LocalTime.of(9, 30)));
+		assertThat(this.schedule.findEarliestSlot(List.of("surgery", "dentistry"), day.atStartOfDay(), 1,
+				Duration.ofMinutes(30)))
+			.contains(new Slot(3, day, LocalTime.of(9, 30), LocalTime.of(10, 0)));
+	}
+
+	private static Visit scheduledVisit(int vetId, LocalDate date, String startTime, String endTime) {
+		Visit visit = new Visit();
+		visit.setVetId(vetId);
+		visit.setDate(date);
+		visit.setStartTime(LocalTime.parse(startTime));
+		visit.setEndTime(LocalTime.parse(endTime));
+		visit.setDescription("checkup");
+		return visit;
+	}
+
+	@Test
+	void shouldFindAllSpecialtiesOrderedByName() {
+		List<Specialty> specialties = this.vets.findSpecialties();
+
+		assertThat(specialties).extracting(Specialty::getName).containsExactly("dentistry", "radiology", "surgery");
+	}
+
 	@Test
 	@Transactional
 	void shouldAddNewVisitForPet() {
@@ -212,6 +472,60 @@ class ClinicServiceTests {
 			.allMatch(value -> value.getId() != null);
 	}
 
+	@Test
+	@Transactional
+	void shouldInsertNewVisitsInOneBatch() {
+		Statistics statistics = this.entityManager.getEntityManagerFactory()
+			.unwrap(SessionFactory.class)
+			.getStatistics();
+		Owner owner6 = this.owners.findById(6);
+		for (int i = 0; i < 20; i++) {
+			Visit visit = new Visit();
+			visit.setDescription("checkup " + i);
+			owner6.addVisit(7, visit);
+		}
+		statistics.clear();
+
+		this.owners.save(owner6);
+		this.entityManager.flush();
+
+		assertThat(statistics.getEntityInsertCount()).isEqualTo(20);
+		// one batch of inserts and one batch of updates setting the pet, and at most one
+		// call to the sequence for a new block of ids
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+		assertThat(owner6.getPet(7).getVisits()).allMatch(visit -> visit.getId() != null);
+	}
+
+	@Test
+	void shouldFindPetsOnlyOfTheirOwner() {
+		assertThat(this.visitService.hasPet(6, 7)).isTrue();
+		assertThat(this.visitService.hasPet(6, 12)).isFalse();
+		assertThat(this.visitService.hasPet(6, 99)).isFalse();
+	}
+
+	@Test
+	void shouldAddVisitWithoutLoadingOwner() {
+		Visit visit = new Visit();
+		visit.setDescription("dental cleaning");
+
+		assertThat(this.visitService.addVisit(6, 7, visit)).isTrue();
+		assertThat(visit.getId()).isNotNull();
+
+		Owner owner6 = this.owners.findById(6);
+		assertThat(owner6.getPet(7).getVisits()).extracting(Visit::getDescription).contains("dental cleaning");
+		assertThat(this.owners.search("dental", 10)).extracting(Owner::getId).containsExactly(6);
+	}
+
+	@Test
+	void shouldNotAddVisitForPetOfAnotherOwner() {
+		Visit visit = new Visit();
+		visit.setDescription("dental cleaning");
+
+		assertThat(this.visitService.addVisit(1, 7, visit)).isFalse();
+		assertThat(this.owners.findById(6).getPet(7).getVisits()).extracting(Visit::getDescription)
+			.doesNotContain("dental cleaning");
+	}
+
 	@Test
 	void shouldFindVisitsByPetId() throws Exception {
 		Owner owner6 = this.owners.findById(6);
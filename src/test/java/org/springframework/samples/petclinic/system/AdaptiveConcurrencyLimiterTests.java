@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.system.AdaptiveConcurrencyLimiter.Permit;
+import org.springframework.samples.petclinic.system.AdaptiveConcurrencyLimiter.Priority;
+
+/**
+ * Test class for {@link AdaptiveConcurrencyLimiter}
+ */
+class AdaptiveConcurrencyLimiterTests {
+
+	private final AtomicLong time = new AtomicLong();
+
+	private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test",
+			new ConcurrencyLimits(true, 10, 2, 100, 0.8), 0.8, this.time::get);
+
+	/**
+	 * Run as many concurrent requests as the limit allows, all taking the given time.
+	 */
+	private void saturate(Duration latency) {
+		List<Permit> permits = new ArrayList<>();
+		Permit permit;
+		while ((permit = this.limiter.tryAcquire(Priority.WRITE)) != null) {
+			permits.add(permit);
+		}
+		this.time.addAndGet(latency.toNanos());
+		permits.forEach(Permit::release);
+	}
+
+	@Test
+	void shouldKeepShareOfLimitForWrites() {
+		for (int i = 0; i < 8; i++) {
+			assertThat(this.limiter.tryAcquire(Priority.READ)).isNotNull();
+		}
+		assertThat(this.limiter.tryAcquire(Priority.READ)).isNull();
+		assertThat(this.limiter.tryAcquire(Priority.WRITE)).isNotNull();
+		assertThat(this.limiter.tryAcquire(Priority.WRITE)).isNotNull();
+		assertThat(this.limiter.tryAcquire(Priority.WRITE)).isNull();
+
+		assertThat(this.limiter.getInFlight()).isEqualTo(10);
+		assertThat(this.limiter.getRejections(Priority.READ)).isOne();
+		assertThat(this.limiter.getRejections(Priority.WRITE)).isOne();
+	}
+
+	@Test
+	void shouldReleasePermitOnce() {
+		Permit permit = this.limiter.tryAcquire(Priority.READ);
+
+		permit.release();
+		permit.release();
+		permit.releaseWithoutSample();
+
+		assertThat(this.limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	void shouldGrowWhileRequestsStayFast() {
+		for (int i = 0; i < 5; i++) {
+			saturate(Duration.ofMillis(10));
+		}
+
+		assertThat(this.limiter.getLimit()).isGreaterThan(10);
+	}
+
+	@Test
+	void shouldShrinkWhenRequestsGetSlower() {
+		for (int i = 0; i < 5; i++) {
+			saturate(Duration.ofMillis(10));
+		}
+		int limit = this.limiter.getLimit();
+
+		for (int i = 0; i < 20; i++) {
+			saturate(Duration.ofMillis(200));
+		}
+
+		assertThat(this.limiter.getLimit()).isLessThan(limit).isLessThan(10).isGreaterThanOrEqualTo(2);
+	}
+
+	@Test
+	void shouldNotAdaptWhileMostOfLimitIsUnused() {
+		for (int i = 0; i < 20; i++) {
+			Permit permit = this.limiter.tryAcquire(Priority.READ);
+			this.time.addAndGet(Duration.ofMillis((i < 10) ? 10 : 500).toNanos());
+			permit.release();
+		}
+
+		assertThat(this.limiter.getLimit()).isEqualTo(10);
+	}
+
+	@Test
+	void shouldIgnoreLatencyOfRequestsReleasedWithoutSample() {
+		for (int i = 0; i < 5; i++) {
+			saturate(Duration.ofMillis(10));
+		}
+		int limit = this.limiter.getLimit();
+
+		List<Permit> permits = new ArrayList<>();
+		for (int i = 0; i < limit; i++) {
+			permits.add(this.limiter.tryAcquire(Priority.WRITE));
+		}
+		this.time.addAndGet(Duration.ofMinutes(1).toNanos());
+		permits.forEach(Permit::releaseWithoutSample);
+
+		assertThat(this.limiter.getLimit()).isEqualTo(limit);
+		assertThat(this.limiter.getInFlight()).isZero();
+	}
+
+}
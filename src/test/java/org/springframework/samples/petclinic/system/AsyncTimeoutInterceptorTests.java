@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+
+/**
+ * Test class for {@link AsyncTimeoutInterceptor}
+ */
+class AsyncTimeoutInterceptorTests {
+
+	private final AsyncTimeoutInterceptor interceptor = new AsyncTimeoutInterceptor(new AsyncTimeouts(timeouts()));
+
+	private static Map<String, Duration> timeouts() {
+		Map<String, Duration> timeouts = new LinkedHashMap<>();
+		timeouts.put("/owners/import", Duration.ofHours(1));
+		timeouts.put("/export/*", Duration.ofMinutes(10));
+		return timeouts;
+	}
+
+	private long timeoutOf(String path) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setAsyncSupported(true);
+		StandardServletAsyncWebRequest asyncRequest = new StandardServletAsyncWebRequest(request,
+				new MockHttpServletResponse());
+		asyncRequest.setTimeout(30_000L);
+		this.interceptor.beforeConcurrentHandling(asyncRequest, () -> null);
+		asyncRequest.startAsync();
+		return request.getAsyncContext().getTimeout();
+	}
+
+	@Test
+	void shouldApplyTimeoutOfEndpoint() throws Exception {
+		assertThat(timeoutOf("/owners/import")).isEqualTo(Duration.ofHours(1).toMillis());
+		assertThat(timeoutOf("/export/pets")).isEqualTo(Duration.ofMinutes(10).toMillis());
+	}
+
+	@Test
+	void shouldKeepDefaultTimeoutOfOtherEndpoints() throws Exception {
+		assertThat(timeoutOf("/owners/bulk")).isEqualTo(30_000L);
+		assertThat(timeoutOf("/vets")).isEqualTo(30_000L);
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Test class for {@link CacheKeyGenerator}
+ */
+class CacheKeyGeneratorTests {
+
+	private final CacheKeyGenerator keys = new CacheKeyGenerator();
+
+	@Test
+	void shouldNormalizePageRequests() {
+		Object key = this.keys.generate(this, null, PageRequest.of(2, 5, Sort.by("lastName")));
+
+		assertThat(key).isEqualTo(new CacheKeyGenerator.PageKey(10, 5, "lastName: ASC"));
+		assertThat(this.keys.generate(this, null, PageRequest.ofSize(5).withPage(2).withSort(Sort.by("lastName"))))
+			.isEqualTo(key);
+		assertThat(this.keys.generate(this, null, PageRequest.of(3, 5, Sort.by("lastName")))).isNotEqualTo(key);
+	}
+
+	@Test
+	void shouldKeepOtherArguments() {
+		assertThat(this.keys.generate(this, null)).isEqualTo(SimpleKey.EMPTY);
+		assertThat(this.keys.generate(this, null, "Davis", Pageable.unpaged()))
+			.isEqualTo(new SimpleKey("Davis", new CacheKeyGenerator.PageKey(-1, -1, "UNSORTED")));
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for {@link ConcurrencyLimitInterceptor}
+ */
+class ConcurrencyLimitInterceptorTests {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	// reads may use one of the two database permits
+	private final ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(
+			new ConcurrencyLimits(true, 2, 1, 2, 0.5),
+			new StaticListableBeanFactory(Map.of("registry", this.registry)).getBeanProvider(MeterRegistry.class));
+
+	private final HandlerMethod handler = handler("showOwner");
+
+	private static HandlerMethod handler(String name) {
+		try {
+			return new HandlerMethod(new Handlers(), Handlers.class.getMethod(name));
+		}
+		catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	@Test
+	void shouldRejectReadsBeyondReadShare() {
+		MockHttpServletRequest first = new MockHttpServletRequest("GET", "/owners/1");
+		MockHttpServletRequest second = new MockHttpServletRequest("GET", "/owners/1");
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+
+		assertThat(this.interceptor.preHandle(first, new MockHttpServletResponse(), this.handler)).isTrue();
+		assertThat(this.interceptor.preHandle(second, rejected, this.handler)).isFalse();
+
+		assertThat(rejected.getStatus()).isEqualTo(503);
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(this.interceptor.getEndpointLimiter("Handlers.showOwner").getInFlight()).isOne();
+		assertThat(this.registry.get("petclinic.concurrency.rejections")
+			.tag("limiter", "database")
+			.tag("priority", "read")
+			.functionCounter()
+			.count()).isOne();
+	}
+
+	@Test
+	void shouldAdmitWritesWhileReadsAreRejected() {
+		this.interceptor.preHandle(new MockHttpServletRequest("GET", "/owners/1"), new MockHttpServletResponse(),
+				this.handler);
+
+		assertThat(this.interceptor.preHandle(new MockHttpServletRequest("POST", "/owners/1/pets/1/visits/new"),
+				new MockHttpServletResponse(), handler("processNewVisitForm")))
+			.isTrue();
+		assertThat(this.interceptor.getDatabaseLimiter().getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldReleasePermitsOnCompletion() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/owners/1");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		this.interceptor.preHandle(request, response, this.handler);
+		this.interceptor.afterCompletion(request, response, this.handler, null);
+
+		assertThat(this.interceptor.getDatabaseLimiter().getInFlight()).isZero();
+		assertThat(this.interceptor.getEndpointLimiter("Handlers.showOwner").getInFlight()).isZero();
+		assertThat(this.registry.get("petclinic.concurrency.in.flight").tag("limiter", "database").gauge().value())
+			.isZero();
+	}
+
+	@Test
+	void shouldNotLimitOtherHandlers() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(this.interceptor.preHandle(new MockHttpServletRequest("GET", "/resources/css/petclinic.css"),
+					new MockHttpServletResponse(), new ResourceHttpRequestHandler()))
+				.isTrue();
+		}
+		assertThat(this.interceptor.getDatabaseLimiter().getInFlight()).isZero();
+	}
+
+	static class Handlers {
+
+		public String showOwner() {
+			return "owners/ownerDetails";
+		}
+
+		public String processNewVisitForm() {
+			return "redirect:/owners/1";
+		}
+
+	}
+
+}
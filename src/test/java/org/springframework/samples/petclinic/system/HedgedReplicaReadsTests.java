@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Hedged;
+import org.springframework.samples.petclinic.model.HedgedReads;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tests of reads hedged across a slow replica and the primary, two embedded H2 databases
+ * whose owner George Franklin has a different first name, which tells which database
+ * answered. Latency is injected into the replica with a
+ * {@link LatencyInjectingDataSource}.
+ */
+class HedgedReplicaReadsTests {
+
+	private EmbeddedDatabase primary;
+
+	private EmbeddedDatabase replica;
+
+	private LatencyInjectingDataSource slowReplica;
+
+	private ReplicaRoutingDataSource routingDataSource;
+
+	private HedgedReads hedgedReads;
+
+	private FirstNames firstNames;
+
+	@BeforeEach
+	void setup() {
+		this.primary = database("hedging-primary");
+		this.replica = database("hedging-replica");
+		new JdbcTemplate(this.replica).update("UPDATE owners SET first_name = 'Replica' WHERE id = 1");
+		this.slowReplica = new LatencyInjectingDataSource(this.replica);
+		this.routingDataSource = new ReplicaRoutingDataSource(this.primary,
+				List.of(new ReplicaRoutingDataSource.Replica("replica-1", this.slowReplica)), Duration.ofSeconds(10),
+				null, false);
+		this.routingDataSource.checkReplicas();
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(this.routingDataSource);
+		TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		transaction.setReadOnly(true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		FirstNames firstNames = id -> transaction.execute(status -> jdbcTemplate
+			.queryForObject("SELECT first_name FROM owners WHERE id = ?", String.class, id));
+		this.hedgedReads = new HedgedReads(Duration.ofMillis(200), 1.0);
+		this.firstNames = this.hedgedReads.hedge(firstNames, FirstNames.class);
+	}
+
+	private static EmbeddedDatabase database(String name) {
+		return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+			.setName(name)
+			.addScripts("db/h2/schema.sql", "db/h2/data.sql")
+			.build();
+	}
+
+	@AfterEach
+	void shutdown() {
+		this.hedgedReads.close();
+		this.primary.shutdown();
+		this.replica.shutdown();
+	}
+
+	private void warmUp() {
+		for (int i = 0; i < 50; i++) {
+			assertThat(this.firstNames.findFirstName(1)).isEqualTo("Replica");
+		}
+	}
+
+	@Test
+	void fastReadsAreNotHedged() {
+		warmUp();
+
+		assertThat(this.hedgedReads.getDelay("FirstNames.findFirstName")).isEqualTo(Duration.ofMillis(200));
+		assertThat(this.hedgedReads.getHedges("FirstNames.findFirstName")).isZero();
+		assertThat(this.routingDataSource.getPrimaryReads()).isZero();
+	}
+
+	@Test
+	void slowReplicaReadIsAnsweredByPrimary() {
+		warmUp();
+		this.slowReplica.setLatency(Duration.ofSeconds(30));
+
+		long start = System.nanoTime();
+		String firstName = this.firstNames.findFirstName(1);
+		Duration latency = Duration.ofNanos(System.nanoTime() - start);
+
+		assertThat(firstName).isEqualTo("George");
+		assertThat(latency).isLessThan(Duration.ofSeconds(10));
+		assertThat(this.slowReplica.getCancellations()).isEqualTo(1);
+		assertThat(this.routingDataSource.getPrimaryReads()).isEqualTo(1);
+		assertThat(this.hedgedReads.getWins("FirstNames.findFirstName", true)).isEqualTo(1);
+	}
+
+	@Test
+	void readsWithinTransactionAreNotHedged() {
+		warmUp();
+		this.slowReplica.setLatency(Duration.ofMillis(500));
+		TransactionTemplate transaction = new TransactionTemplate(
+				new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(this.routingDataSource)));
+		transaction.setReadOnly(true);
+
+		String firstName = transaction.execute(status -> this.firstNames.findFirstName(1));
+
+		assertThat(firstName).isEqualTo("Replica");
+		assertThat(this.hedgedReads.getHedges("FirstNames.findFirstName")).isZero();
+	}
+
+	interface FirstNames {
+
+		@Hedged
+		String findFirstName(int ownerId);
+
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * {@link DataSource} delaying every statement it runs, standing in for a slow database.
+ * Cancelling a statement ends its delay with an exception, as a database cancelling the
+ * query would.
+ */
+class LatencyInjectingDataSource extends DelegatingDataSource {
+
+	private final AtomicInteger cancellations = new AtomicInteger();
+
+	private volatile Duration latency = Duration.ZERO;
+
+	LatencyInjectingDataSource(DataSource target) {
+		super(target);
+	}
+
+	void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	int getCancellations() {
+		return this.cancellations.get();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Connection connection = super.getConnection();
+		return (Connection) proxy(Connection.class, connection,
+				(method, result) -> (result instanceof Statement statement)
+						? proxy(method.getReturnType(), statement, new DelayedStatement()) : result);
+	}
+
+	private static Object proxy(Class<?> type, Object target, Handler handler) {
+		return Proxy.newProxyInstance(LatencyInjectingDataSource.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					handler.before(method);
+					try {
+						return handler.after(method, method.invoke(target, args));
+					}
+					catch (InvocationTargetException ex) {
+						throw ex.getTargetException();
+					}
+				});
+	}
+
+	private interface Handler {
+
+		default void before(Method method) throws Exception {
+		}
+
+		Object after(Method method, Object result) throws Exception;
+
+	}
+
+	private final class DelayedStatement implements Handler {
+
+		private final CountDownLatch cancelled = new CountDownLatch(1);
+
+		@Override
+		public void before(Method method) throws Exception {
+			if (method.getName().equals("cancel")) {
+				LatencyInjectingDataSource.this.cancellations.incrementAndGet();
+				this.cancelled.countDown();
+			}
+			else if (method.getName().startsWith("execute")
+					&& this.cancelled.await(LatencyInjectingDataSource.this.latency.toNanos(), TimeUnit.NANOSECONDS)) {
+				throw new SQLException("Statement was cancelled", "57014");
+			}
+		}
+
+		@Override
+		public Object after(Method method, Object result) {
+			return result;
+		}
+
+	}
+
+}
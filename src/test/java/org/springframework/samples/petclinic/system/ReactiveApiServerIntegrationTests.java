@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Integration tests of the reactive read API, served next to the MVC pages.
+ */
+@SpringBootTest(classes = PetClinicApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+class ReactiveApiServerIntegrationTests {
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	private ReactiveApiServer server;
+
+	private WebTestClient client;
+
+	@BeforeEach
+	void setup() {
+		this.client = WebTestClient.bindToServer().baseUrl("http://localhost:" + this.server.getPort()).build();
+	}
+
+	@Test
+	void listensOnItsOwnRandomPort() {
+		assertThat(this.server.getPort()).isPositive().isNotEqualTo(this.port);
+	}
+
+	@Test
+	void showOwnerWithPetsAndVisits() {
+		this.client.get()
+			.uri("/api/owners/6")
+			.exchange()
+			.expectStatus()
+			.isOk()
+			.expectHeader()
+			.contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.id")
+			.isEqualTo(6)
+			.jsonPath("$.lastName")
+			.isEqualTo("Coleman")
+			.jsonPath("$.pets[0].name")
+			.isEqualTo("Max")
+			.jsonPath("$.pets[0].type.name")
+			.isEqualTo("cat")
+			.jsonPath("$.pets[0].visits[*].description")
+			.value(contains("rabies shot", "neutered"));
+	}
+
+	@Test
+	void showUnknownOwner() {
+		this.client.get().uri("/api/owners/9999").exchange().expectStatus().isNotFound();
+		this.client.get().uri("/api/owners/george").exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	void listVetsWithSpecialties() {
+		this.client.get()
+			.uri("/api/vets")
+			.exchange()
+			.expectStatus()
+			.isOk()
+			.expectBody()
+			.jsonPath("$[0].lastName")
+			.isEqualTo("Carter")
+			.jsonPath("$[0].specialties")
+			.isEmpty()
+			.jsonPath("$[2].lastName")
+			.isEqualTo("Douglas")
+			.jsonPath("$[2].specialties[*].name")
+			.value(contains("dentistry", "surgery"));
+	}
+
+	@Test
+	void streamVetsAsNdjson() {
+		List<String> lines = this.client.get()
+			.uri("/api/vets")
+			.accept(MediaType.APPLICATION_NDJSON)
+			.exchange()
+			.expectStatus()
+			.isOk()
+			.expectHeader()
+			.contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+			.returnResult(String.class)
+			.getResponseBody()
+			.collectList()
+			.block();
+		assertThat(lines).hasSizeGreaterThanOrEqualTo(6).first().asString().contains("\"lastName\":\"Carter\"");
+	}
+
+	@Test
+	void pagesAreStillServedByMvc() {
+		WebTestClient.bindToServer()
+			.baseUrl("http://localhost:" + this.port)
+			.build()
+			.get()
+			.uri("/owners/6")
+			.exchange()
+			.expectStatus()
+			.isOk()
+			.expectHeader()
+			.contentTypeCompatibleWith(MediaType.TEXT_HTML);
+	}
+
+}
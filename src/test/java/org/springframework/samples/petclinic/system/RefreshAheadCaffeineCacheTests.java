@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link RefreshAheadCaffeineCache}
+ */
+class RefreshAheadCaffeineCacheTests {
+
+	private final AtomicLong time = new AtomicLong();
+
+	private final List<Runnable> refreshes = new ArrayList<>();
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final RefreshAheadCaffeineCache cache = new RefreshAheadCaffeineCache("test",
+			new CachePolicy(10, Duration.ofMinutes(10), null, Duration.ofMinutes(1)), this.time::get,
+			this.refreshes::add);
+
+	private String load() {
+		return "value" + this.loads.incrementAndGet();
+	}
+
+	private void advance(Duration duration) {
+		this.time.addAndGet(duration.toNanos());
+	}
+
+	@Test
+	void shouldNotRefreshBeforeInterval() {
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value1");
+		advance(Duration.ofSeconds(59));
+
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value1");
+		assertThat(this.refreshes).isEmpty();
+		assertThat(this.cache.get("key").get()).isEqualTo("value1");
+	}
+
+	@Test
+	void shouldServeCurrentValueWhileRefreshing() {
+		this.cache.get("key", this::load);
+		advance(Duration.ofMinutes(1));
+
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value1");
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value1");
+		assertThat(this.refreshes).hasSize(1);
+
+		this.refreshes.get(0).run();
+
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value2");
+		assertThat(this.loads).hasValue(2);
+		// the refresh replaced the entry without computing it
+		assertThat(this.cache.getNativeCache().stats().loadCount()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldKeepValueWrittenWhileRefreshing() {
+		this.cache.get("key", this::load);
+		advance(Duration.ofMinutes(1));
+		this.cache.get("key", () -> {
+			this.cache.put("key", "written");
+			return load();
+		});
+
+		this.refreshes.get(0).run();
+
+		assertThat(this.cache.get("key").get()).isEqualTo("written");
+	}
+
+	@Test
+	void shouldKeepValueWhenRefreshFails() {
+		this.cache.get("key", this::load);
+		advance(Duration.ofMinutes(1));
+
+		this.cache.get("key", () -> {
+			throw new IllegalStateException("database down");
+		});
+		this.refreshes.get(0).run();
+
+		assertThat(this.cache.get("key", this::load)).isEqualTo("value1");
+		assertThat(this.refreshes).hasSize(2);
+	}
+
+	@Test
+	void shouldNotRefreshEvictedValue() {
+		this.cache.get("key", this::load);
+		advance(Duration.ofMinutes(1));
+		this.cache.get("key", this::load);
+		this.cache.evict("key");
+
+		this.refreshes.get(0).run();
+
+		assertThat(this.cache.get("key")).isNull();
+		assertThat(this.loads).hasValue(1);
+	}
+
+	@Test
+	void shouldCacheNullValues() {
+		assertThat(this.cache.<String>get("key", () -> null)).isNull();
+
+		assertThat(this.cache.get("key")).isNotNull();
+		assertThat(this.cache.get("key").get()).isNull();
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Integration tests of read-only transactions routed to a replica, with two embedded H2
+ * databases standing in for the primary and the replica. Nothing is replicated: the
+ * replica gets the sample data once and then a different first name for George Franklin,
+ * which tells which database answered.
+ */
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:petclinic-primary;DB_CLOSE_DELAY=-1",
+		"petclinic.datasource.replicas[0].url=" + ReplicaRoutingIntegrationTests.REPLICA_URL,
+		"petclinic.datasource.lag-query=SELECT seconds FROM replication_lag",
+		"petclinic.datasource.max-lag=10s", "petclinic.datasource.health-check-interval=1h" })
+class ReplicaRoutingIntegrationTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:petclinic-replica;DB_CLOSE_DELAY=-1";
+
+	private static final String FIRST_NAME = "SELECT first_name FROM owners WHERE id = 1";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ReplicaRoutingDataSource routingDataSource;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL));
+
+	@BeforeEach
+	void setupReplica() {
+		new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql"),
+				new ClassPathResource("db/h2/data.sql"))
+			.execute(this.replica.getDataSource());
+		this.replica.execute("DROP TABLE replication_lag IF EXISTS");
+		this.replica.execute("CREATE TABLE replication_lag (seconds DOUBLE)");
+		this.replica.update("INSERT INTO replication_lag VALUES (0.5)");
+		this.replica.update("UPDATE owners SET first_name = 'Replica' WHERE id = 1");
+		this.routingDataSource.checkReplicas();
+	}
+
+	@AfterEach
+	void resetRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	private String readFirstName(boolean readOnly) {
+		TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+		transaction.setReadOnly(readOnly);
+		return transaction.execute(status -> this.jdbcTemplate.queryForObject(FIRST_NAME, String.class));
+	}
+
+	private void startRequest(MockHttpSession session) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(session);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	@Test
+	void readOnlyTransactionsReadFromReplica() {
+		assertThat(this.routingDataSource.getReplicas()).allMatch(ReplicaRoutingDataSource.Replica::isUp);
+
+		assertThat(readFirstName(true)).isEqualTo("Replica");
+	}
+
+	@Test
+	void otherTransactionsUsePrimary() {
+		assertThat(readFirstName(false)).isEqualTo("George");
+		assertThat(this.jdbcTemplate.queryForObject(FIRST_NAME, String.class)).isEqualTo("George");
+	}
+
+	@Test
+	void laggingReplicaFallsBackToPrimary() {
+		this.replica.update("UPDATE replication_lag SET seconds = 60");
+		this.routingDataSource.checkReplicas();
+		long primaryReads = this.routingDataSource.getPrimaryReads();
+
+		assertThat(readFirstName(true)).isEqualTo("George");
+		assertThat(this.routingDataSource.getPrimaryReads()).isEqualTo(primaryReads + 1);
+
+		this.replica.update("UPDATE replication_lag SET seconds = 1");
+		this.routingDataSource.checkReplicas();
+
+		assertThat(readFirstName(true)).isEqualTo("Replica");
+	}
+
+	@Test
+	void failingHealthCheckFallsBackToPrimary() {
+		this.replica.execute("DROP TABLE replication_lag");
+		this.routingDataSource.checkReplicas();
+
+		assertThat(this.routingDataSource.getReplicas()).noneMatch(ReplicaRoutingDataSource.Replica::isUp);
+		assertThat(readFirstName(true)).isEqualTo("George");
+	}
+
+	@Test
+	void replicaWithUnknownLagFallsBackToPrimary() {
+		this.replica.update("UPDATE replication_lag SET seconds = NULL");
+		this.routingDataSource.checkReplicas();
+
+		assertThat(this.routingDataSource.getReplicas()).allMatch(ReplicaRoutingDataSource.Replica::isUp)
+			.allMatch(replica -> replica.getLag() == null);
+		assertThat(readFirstName(true)).isEqualTo("George");
+
+		this.replica.update("DELETE FROM replication_lag");
+		this.routingDataSource.checkReplicas();
+
+		assertThat(readFirstName(true)).isEqualTo("George");
+	}
+
+	@Test
+	void unknownLagCanCountAsZero() {
+		this.replica.update("UPDATE replication_lag SET seconds = NULL");
+		ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(this.jdbcTemplate.getDataSource(),
+				List.of(new ReplicaRoutingDataSource.Replica("replica-1", this.replica.getDataSource())),
+				Duration.ofSeconds(10), "SELECT seconds FROM replication_lag", true);
+		routingDataSource.checkReplicas();
+
+		assertThat(routingDataSource.getReplicas()).allMatch(replica -> replica.isAvailable(Duration.ofSeconds(10)));
+	}
+
+	@Test
+	void readsOwnWritesAfterSave() {
+		MockHttpSession session = new MockHttpSession();
+		startRequest(session);
+		Owner owner = new Owner();
+		owner.setFirstName("Sam");
+		owner.setLastName("Schultz");
+		owner.setAddress("4, Evans Street");
+		owner.setCity("Wollongong");
+		owner.setTelephone("4444444444");
+		this.owners.save(owner);
+
+		// the redirect after the save, in the same session
+		startRequest(session);
+		assertThat(readFirstName(true)).isEqualTo("George");
+
+		// other users keep reading from the replica
+		startRequest(new MockHttpSession());
+		assertThat(readFirstName(true)).isEqualTo("Replica");
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.aot.DisabledInAotMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Test class for the {@link ScheduleController}
+ */
+@WebMvcTest(ScheduleController.class)
+@DisabledInNativeImage
+@DisabledInAotMode
+class ScheduleControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private VetSchedule schedule;
+
+	@BeforeEach
+	void setup() {
+		given(this.schedule.isOpen(any(), any())).willReturn(true);
+		given(this.schedule.isBookable(eq(2), any(), any())).willReturn(true);
+		given(this.schedule.hasPet(1, 1)).willReturn(true);
+	}
+
+	@Test
+	void testFindEarliestSlot() throws Exception {
+		given(this.schedule.findEarliestSlot(eq(List.of("surgery")), any(), eq(3), any()))
+			.willReturn(Optional.of(new Slot(3, LocalDate.of(2030, 1, 7), LocalTime.of(9, 30), LocalTime.of(10, 0))));
+
+		mockMvc.perform(get("/vets/slots").param("specialty", "surgery").param("days", "3"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetId").value(3))
+			.andExpect(jsonPath("$.date").value("2030-01-07"))
+			.andExpect(jsonPath("$.startTime").value("09:30:00"));
+	}
+
+	@Test
+	void testFindNoSlot() throws Exception {
+		given(this.schedule.findEarliestSlot(any(), any(), anyInt(), any())).willReturn(Optional.empty());
+
+		mockMvc.perform(get("/vets/slots")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/vets/slots").param("days", "0")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testBookVisit() throws Exception {
+		given(this.schedule.book(eq(1), eq(1), any())).willReturn(true);
+
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "1")
+				.param("petId", "1")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isCreated())
+			.andExpect(header().string("Location", "/owners/1"));
+		verify(this.schedule).book(eq(1), eq(1),
+				argThat(visit -> visit.getVetId() == 2 && visit.getStartTime().equals(LocalTime.of(9, 30))));
+	}
+
+	@Test
+	void testBookBusyVet() throws Exception {
+		given(this.schedule.book(eq(1), eq(1), any())).willReturn(false);
+
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "1")
+				.param("petId", "1")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isConflict());
+	}
+
+	@Test
+	void testBookInvalidVisit() throws Exception {
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "1")
+				.param("petId", "1")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("description", "Checkup"))
+			.andExpect(status().isBadRequest());
+		verify(this.schedule, never()).book(anyInt(), anyInt(), any());
+	}
+
+	@Test
+	void testBookUnknownVet() throws Exception {
+		mockMvc
+			.perform(post("/vets/99/appointments").param("ownerId", "1")
+				.param("petId", "1")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isBadRequest());
+		verify(this.schedule, never()).book(anyInt(), anyInt(), any());
+	}
+
+	@Test
+	void testBookUnknownPet() throws Exception {
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "1")
+				.param("petId", "99")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isNotFound());
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "2")
+				.param("petId", "1")
+				.param("date", "2030-01-07")
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isNotFound());
+		verify(this.schedule, never()).book(anyInt(), anyInt(), any());
+	}
+
+	@Test
+	void testBookVisitInPast() throws Exception {
+		LocalDate yesterday = LocalDate.now().minusDays(1);
+		given(this.schedule.isBookable(eq(2), eq(yesterday), any())).willReturn(false);
+
+		mockMvc
+			.perform(post("/vets/2/appointments").param("ownerId", "1")
+				.param("petId", "1")
+				.param("date", yesterday.toString())
+				.param("startTime", "09:30")
+				.param("endTime", "10:00")
+				.param("description", "Checkup"))
+			.andExpect(status().isBadRequest());
+		verify(this.schedule, never()).book(anyInt(), anyInt(), any());
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark for {@link VetCalendars}: finding the earliest free slot among all vets
+ * and among a tenth of them (one specialty), over up to 10 000 vets whose calendars are
+ * booked at 90% for the next week. Every vet is busy when the clinic opens, so that every
+ * vet has to be looked at.
+ * <p>
+ * Run with {@link #main(String[])} after {@code ./mvnw test-compile}; it is not part of
+ * the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VetCalendarsBenchmark {
+
+	private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+	private static final int DAYS = 7;
+
+	@Param({ "1000", "10000" })
+	int vets;
+
+	private VetCalendars calendars;
+
+	private int[] allVets;
+
+	private int[] someVets;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		this.calendars = new VetCalendars(LocalTime.of(9, 0), LocalTime.of(17, 0));
+		for (int vetId = 1; vetId <= this.vets; vetId++) {
+			for (int day = 0; day < DAYS; day++) {
+				// 16 half hours a day, leave one or two of them free
+				for (int slot = 0; slot < 16; slot++) {
+					if (slot == 0 || random.nextInt(10) != 0) {
+						LocalTime start = LocalTime.of(9, 0).plusMinutes(30L * slot);
+						this.calendars.book(vetId, MONDAY.plusDays(day), start, start.plusMinutes(30));
+					}
+				}
+			}
+		}
+		this.allVets = IntStream.rangeClosed(1, this.vets).toArray();
+		this.someVets = IntStream.rangeClosed(1, this.vets).filter(vetId -> vetId % 10 == 0).toArray();
+	}
+
+	@Benchmark
+	public Object earliestHalfHourOfAnyVet() {
+		return this.calendars.findEarliest(this.allVets, LocalDateTime.of(MONDAY, LocalTime.of(9, 0)),
+				MONDAY.plusDays(DAYS), 30);
+	}
+
+	@Benchmark
+	public Object earliestHourOfAnyVet() {
+		return this.calendars.findEarliest(this.allVets, LocalDateTime.of(MONDAY, LocalTime.of(9, 0)),
+				MONDAY.plusDays(DAYS), 60);
+	}
+
+	@Benchmark
+	public Object earliestHourOfSpecialist() {
+		return this.calendars.findEarliest(this.someVets, LocalDateTime.of(MONDAY, LocalTime.of(9, 0)),
+				MONDAY.plusDays(DAYS), 60);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VetCalendarsBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
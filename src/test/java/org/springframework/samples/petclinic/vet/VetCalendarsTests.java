@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link VetCalendars} and {@link VetCalendar}
+ */
+class VetCalendarsTests {
+
+	private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+	private final VetCalendars calendars = new VetCalendars(LocalTime.of(9, 0), LocalTime.of(17, 0));
+
+	@Test
+	void shouldRejectOverlappingBookings() {
+		assertThat(book(1, "10:00", "10:30")).isTrue();
+
+		assertThat(book(1, "10:00", "10:30")).isFalse();
+		assertThat(book(1, "09:45", "10:01")).isFalse();
+		assertThat(book(1, "10:29", "11:00")).isFalse();
+		assertThat(book(1, "10:10", "10:20")).isFalse();
+		assertThat(book(1, "09:00", "12:00")).isFalse();
+		assertThat(book(1, "09:30", "10:00")).isTrue();
+		assertThat(book(1, "10:30", "11:00")).isTrue();
+		assertThat(book(2, "10:00", "10:30")).isTrue();
+		assertThat(this.calendars.book(1, DAY.plusDays(1), LocalTime.of(10, 0), LocalTime.of(10, 30))).isTrue();
+		assertThat(this.calendars.size()).isEqualTo(5);
+	}
+
+	@Test
+	void shouldFreeReleasedBookings() {
+		book(1, "10:00", "10:30");
+		this.calendars.release(1, DAY, LocalTime.of(10, 0), LocalTime.of(10, 30));
+
+		assertThat(book(1, "10:15", "10:45")).isTrue();
+	}
+
+	@Test
+	void shouldRejectEmptyBookings() {
+		assertThatIllegalArgumentException().isThrownBy(() -> book(1, "10:00", "10:00"));
+	}
+
+	@Test
+	void shouldFindFirstGapLongEnough() {
+		book(1, "09:00", "09:30");
+		book(1, "09:45", "10:00");
+		book(1, "10:20", "11:00");
+
+		assertThat(earliest(new int[] { 1 }, "09:00", 15)).contains(slot(1, "09:30", "09:45"));
+		assertThat(earliest(new int[] { 1 }, "09:00", 20)).contains(slot(1, "10:00", "10:20"));
+		assertThat(earliest(new int[] { 1 }, "09:00", 30)).contains(slot(1, "11:00", "11:30"));
+		assertThat(earliest(new int[] { 1 }, "10:30", 30)).contains(slot(1, "11:00", "11:30"));
+	}
+
+	@Test
+	void shouldFindEarliestVet() {
+		book(1, "09:00", "10:00");
+		book(2, "09:00", "09:30");
+		book(3, "09:00", "09:30");
+
+		assertThat(earliest(new int[] { 1, 2, 3 }, "09:00", 30)).contains(slot(2, "09:30", "10:00"));
+		assertThat(earliest(new int[] { 1, 2, 3, 4 }, "09:00", 30)).contains(slot(4, "09:00", "09:30"));
+		assertThat(earliest(new int[] { 1 }, "08:00", 30)).contains(slot(1, "10:00", "10:30"));
+	}
+
+	@Test
+	void shouldSearchFollowingDaysWithinOpeningHours() {
+		book(1, "09:00", "16:40");
+
+		assertThat(earliest(new int[] { 1 }, "09:00", 20)).contains(slot(1, "16:40", "17:00"));
+		assertThat(earliest(new int[] { 1 }, "09:00", 30))
+			.contains(new Slot(1, DAY.plusDays(1), LocalTime.of(9, 0), LocalTime.of(9, 30)));
+		assertThat(this.calendars.findEarliest(new int[] { 1 }, DAY.atTime(9, 0), DAY.plusDays(1), 30)).isEmpty();
+		assertThat(earliest(new int[] { 1 }, "17:00", 30))
+			.contains(new Slot(1, DAY.plusDays(1), LocalTime.of(9, 0), LocalTime.of(9, 30)));
+		assertThat(earliest(new int[0], "09:00", 30)).isEmpty();
+	}
+
+	@Test
+	void shouldCheckOpeningHours() {
+		assertThat(this.calendars.isOpen(LocalTime.of(9, 0), LocalTime.of(17, 0))).isTrue();
+		assertThat(this.calendars.isOpen(LocalTime.of(8, 59), LocalTime.of(10, 0))).isFalse();
+		assertThat(this.calendars.isOpen(LocalTime.of(16, 30), LocalTime.of(17, 1))).isFalse();
+		assertThat(this.calendars.isOpen(LocalTime.of(11, 0), LocalTime.of(10, 0))).isFalse();
+	}
+
+	private boolean book(int vetId, String start, String end) {
+		return this.calendars.book(vetId, DAY, LocalTime.parse(start), LocalTime.parse(end));
+	}
+
+	private Optional<Slot> earliest(int[] vetIds, String from, int minutes) {
+		return this.calendars.findEarliest(vetIds, LocalDateTime.of(DAY, LocalTime.parse(from)), DAY.plusDays(2),
+				minutes);
+	}
+
+	private static Slot slot(int vetId, String start, String end) {
+		return new Slot(vetId, DAY, LocalTime.parse(start), LocalTime.parse(end));
+	}
+
+}
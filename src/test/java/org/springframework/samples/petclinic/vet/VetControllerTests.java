@@ -16,6 +16,12 @@
 
 package org.springframework.samples.petclinic.vet;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,16 +29,26 @@ import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.model.PersonCursor;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,7 +56,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Test class for the {@link VetController}
  */
 
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+		includeFilters = @ComponentScan.Filter(value = { VetsResponseCache.class, VetSpecialtySearch.class },
+				type = FilterType.ASSIGNABLE_TYPE))
 @DisabledInNativeImage
 @DisabledInAotMode
 class VetControllerTests {
@@ -89,6 +107,24 @@ class VetControllerTests {
 
 	}
 
+	@Test
+	void testShowVetListHtmlAfterCursor() throws Exception {
+		given(this.vets.findAllAfter(any(PersonCursor.class), anyInt()))
+			.willReturn(new SliceImpl<Vet>(Lists.newArrayList(helen()), PageRequest.of(0, 1), false));
+
+		mockMvc.perform(get("/vets.html").param("cursor", PersonCursor.after(james()).encode()))
+			.andExpect(status().isOk())
+			.andExpect(model().attributeExists("listVets"))
+			.andExpect(model().attributeDoesNotExist("totalItems"))
+			.andExpect(view().name("vets/vetList"));
+	}
+
+	@Test
+	void testShowVetListHtmlWithInvalidCursor() throws Exception {
+		mockMvc.perform(get("/vets.html").param("cursor", "not a cursor")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/vets.html").param("cursor", "Zm9v")).andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void testShowResourcesVetList() throws Exception {
 		ResultActions actions = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
@@ -97,4 +133,123 @@ class VetControllerTests {
 			.andExpect(jsonPath("$.vetList[0].id").value(1));
 	}
 
+	@Test
+	void testSearchVetsBySpecialty() throws Exception {
+		mockMvc.perform(get("/vets/search").param("specialty", "Radiology").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList.length()").value(1))
+			.andExpect(jsonPath("$.vetList[0].id").value(2));
+		mockMvc
+			.perform(get("/vets/search").param("specialty", "radiology", "surgery").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList").isEmpty());
+		mockMvc.perform(get("/vets/search").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(xpath("count(/vets/vetList)").number(2.0));
+	}
+
+	@Test
+	void testShowResourcesVetListXml() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML))
+			.andExpect(xpath("/vets/vetList[2]/specialties/name").string("radiology"));
+	}
+
+	@Test
+	void testShowResourcesVetListGzipped() throws Exception {
+		byte[] plain = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+
+		byte[] gzipped = mockMvc
+			.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+			.andReturn()
+			.getResponse()
+			.getContentAsByteArray();
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			assertThat(in.readAllBytes()).isEqualTo(plain);
+		}
+	}
+
+	@Test
+	void testShowResourcesVetListNotModified() throws Exception {
+		String eTag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+		assertThat(eTag).startsWith("\"").doesNotStartWith("W/");
+
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified());
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	void testShowResourcesVetListAfterVetsChanged() throws Exception {
+		String eTag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andReturn()
+			.getResponse()
+			.getHeader(HttpHeaders.ETAG);
+
+		given(this.vets.findAll()).willReturn(Lists.newArrayList(james()));
+
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.vetList.length()").value(1));
+	}
+
+	@Test
+	void testStreamResourcesVetList() throws Exception {
+		given(this.vets.streamAll(any()))
+			.willAnswer(invocation -> invocation.<Function<Stream<Vet>, Object>>getArgument(0)
+				.apply(Stream.of(james(), helen())));
+		String cached = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+
+		MvcResult result = mockMvc.perform(get("/vets").param("stream", "").accept(MediaType.APPLICATION_JSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+			.andExpect(content().string(cached));
+	}
+
+	@Test
+	void testStreamResourcesVetListAsJsonLines() throws Exception {
+		given(this.vets.streamAll(any()))
+			.willAnswer(invocation -> invocation.<Function<Stream<Vet>, Object>>getArgument(0)
+				.apply(Stream.of(james(), helen())));
+
+		MvcResult result = mockMvc.perform(get("/vets").param("stream", "").accept(MediaType.APPLICATION_NDJSON))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		String body = mockMvc.perform(asyncDispatch(result))
+			.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+			.andReturn()
+			.getResponse()
+			.getContentAsString();
+		assertThat(body).isEqualTo(
+				"{\"id\":1,\"firstName\":\"James\",\"lastName\":\"Carter\",\"specialties\":[],\"nrOfSpecialties\":0,\"new\":false}\n"
+						+ "{\"id\":2,\"firstName\":\"Helen\",\"lastName\":\"Leary\",\"specialties\":[{\"id\":1,\"name\":\"radiology\",\"new\":false}],\"nrOfSpecialties\":1,\"new\":false}\n");
+	}
+
+	@Test
+	void testAcceptsGzip() {
+		assertThat(VetController.acceptsGzip(null)).isFalse();
+		assertThat(VetController.acceptsGzip("gzip")).isTrue();
+		assertThat(VetController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+		assertThat(VetController.acceptsGzip("gzip;q=0")).isFalse();
+		assertThat(VetController.acceptsGzip("br")).isFalse();
+	}
+
 }
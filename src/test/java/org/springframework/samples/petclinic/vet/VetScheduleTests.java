@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Visit;
+import org.springframework.samples.petclinic.owner.VisitRepository;
+import org.springframework.samples.petclinic.owner.VisitService;
+
+/**
+ * Test class for {@link VetSchedule}
+ */
+class VetScheduleTests {
+
+	private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+	private final VisitRepository visitRepository = mock(VisitRepository.class);
+
+	private final VisitService visitService = mock(VisitService.class);
+
+	private final VetSpecialtySearch vets = mock(VetSpecialtySearch.class);
+
+	private final VetSchedule schedule = new VetSchedule(this.visitRepository, this.visitService, this.vets, "09:00",
+			"17:00");
+
+	@BeforeEach
+	void setup() {
+		given(this.vets.hasVet(anyInt())).willAnswer(invocation -> invocation.<Integer>getArgument(0) <= 3);
+	}
+
+	@Test
+	void shouldLoadScheduledVisits() {
+		given(this.visitRepository.findScheduledVisitsFrom(any())).willReturn(List.of(visit(1, 9 * 60, 10 * 60)));
+		given(this.visitService.addVisit(anyInt(), anyInt(), any())).willReturn(true);
+
+		assertThat(this.schedule.book(1, 1, visit(1, 9 * 60 + 30, 10 * 60 + 30))).isFalse();
+		assertThat(this.schedule.book(1, 1, visit(1, 10 * 60, 10 * 60 + 30))).isTrue();
+	}
+
+	@Test
+	void shouldReleaseSlotIfPetNotFound() {
+		given(this.visitService.addVisit(anyInt(), anyInt(), any())).willReturn(false, true);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> this.schedule.book(1, 1, visit(1, 9 * 60, 10 * 60)));
+		assertThat(this.schedule.book(1, 1, visit(1, 9 * 60, 10 * 60))).isTrue();
+	}
+
+	@Test
+	void shouldRejectVisitsOutsideOpeningHours() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.schedule.book(1, 1, visit(1, 8 * 60, 9 * 60)));
+	}
+
+	@Test
+	void shouldRejectVisitsWithUnknownVets() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.schedule.book(1, 1, visit(99, 9 * 60, 10 * 60)));
+		verify(this.visitService, never()).addVisit(anyInt(), anyInt(), any());
+	}
+
+	@Test
+	void shouldRejectVisitsInPast() {
+		Visit visit = visit(1, 9 * 60, 10 * 60);
+		visit.setDate(LocalDate.now().minusDays(1));
+
+		assertThatIllegalArgumentException().isThrownBy(() -> this.schedule.book(1, 1, visit));
+		verify(this.visitService, never()).addVisit(anyInt(), anyInt(), any());
+	}
+
+	@Test
+	void shouldNeverDoubleBookUnderContention() throws Exception {
+		given(this.visitService.addVisit(anyInt(), anyInt(), any())).willReturn(true);
+		int vets = 3;
+		int threads = 16;
+		int attempts = 2000;
+		List<Visit> booked = Collections.synchronizedList(new ArrayList<>());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				Random random = new Random(thread);
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < attempts; i++) {
+						// 5 to 60 minutes anywhere in the day, so most attempts overlap
+						int length = 5 + random.nextInt(56);
+						int from = 9 * 60 + random.nextInt(8 * 60 - length + 1);
+						Visit visit = visit(1 + random.nextInt(vets), from, from + length);
+						if (this.schedule.book(1, 1, visit)) {
+							booked.add(visit);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(booked).isNotEmpty();
+		for (int vetId = 1; vetId <= vets; vetId++) {
+			int id = vetId;
+			List<Visit> visits = booked.stream().filter(visit -> visit.getVetId() == id).toList();
+			for (int i = 0; i < visits.size(); i++) {
+				for (int j = i + 1; j < visits.size(); j++) {
+					Visit a = visits.get(i);
+					Visit b = visits.get(j);
+					assertThat(a.getStartTime().isBefore(b.getEndTime()) && b.getStartTime().isBefore(a.getEndTime()))
+						.as("%s-%s overlaps %s-%s with vet %d", a.getStartTime(), a.getEndTime(), b.getStartTime(),
+								b.getEndTime(), id)
+						.isFalse();
+				}
+			}
+		}
+		verify(this.visitService, times(booked.size())).addVisit(eq(1), eq(1), any());
+	}
+
+	private static Visit visit(int vetId, int startMinute, int endMinute) {
+		Visit visit = new Visit();
+		visit.setVetId(vetId);
+		visit.setDate(DAY);
+		visit.setStartTime(LocalTime.ofSecondOfDay(startMinute * 60L));
+		visit.setEndTime(LocalTime.ofSecondOfDay(endMinute * 60L));
+		visit.setDescription("checkup");
+		return visit;
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark for {@link VetSpecialtyIndex}: intersecting the vets of one, two and
+ * three specialties, over up to 100 000 vets with one to three of 20 specialties each.
+ * <p>
+ * Run with {@link #main(String[])} after {@code ./mvnw test-compile}; it is not part of
+ * the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VetSpecialtyIndexBenchmark {
+
+	private static final String[] SPECIALTIES = { "radiology", "surgery", "dentistry", "cardiology", "dermatology",
+			"oncology", "neurology", "ophthalmology", "anesthesiology", "nutrition", "behavior", "exotics", "equine",
+			"feline", "canine", "avian", "emergency", "internal", "orthopedics", "rehabilitation" };
+
+	@Param({ "1000", "100000" })
+	int vets;
+
+	private VetSpecialtyIndex index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		List<Vet> vets = new ArrayList<>(this.vets);
+		for (int id = 1; id <= this.vets; id++) {
+			Vet vet = new Vet();
+			vet.setId(id);
+			for (int i = random.nextInt(3); i >= 0; i--) {
+				Specialty specialty = new Specialty();
+				specialty.setName(SPECIALTIES[random.nextInt(SPECIALTIES.length)]);
+				vet.addSpecialty(specialty);
+			}
+			vets.add(vet);
+		}
+		this.index = VetSpecialtyIndex.of(vets);
+	}
+
+	@Benchmark
+	public Object oneSpecialty() {
+		return this.index.vetIdsWithAll(List.of("radiology"));
+	}
+
+	@Benchmark
+	public Object twoSpecialties() {
+		return this.index.vetIdsWithAll(List.of("radiology", "surgery"));
+	}
+
+	@Benchmark
+	public Object threeSpecialties() {
+		return this.index.vetIdsWithAll(List.of("radiology", "surgery", "dentistry"));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VetSpecialtyIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
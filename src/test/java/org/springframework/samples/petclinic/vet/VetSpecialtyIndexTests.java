@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link VetSpecialtyIndex}
+ */
+class VetSpecialtyIndexTests {
+
+	private final VetSpecialtyIndex index = VetSpecialtyIndex
+		.of(List.of(vet(1), vet(2, "radiology"), vet(3, "surgery", "dentistry"), vet(4, "radiology", "surgery"),
+				vet(5, "Radiology", "Surgery", "dentistry")));
+
+	@Test
+	void shouldFindVetsWithAllSpecialties() {
+		assertThat(this.index.vetIdsWithAll(List.of("radiology")).toArray()).containsExactly(2, 4, 5);
+		assertThat(this.index.vetIdsWithAll(List.of("radiology", "surgery")).toArray()).containsExactly(4, 5);
+		assertThat(this.index.vetIdsWithAll(List.of("dentistry", "surgery", "radiology")).toArray()).containsExactly(5);
+	}
+
+	@Test
+	void shouldIgnoreCase() {
+		assertThat(this.index.vetIdsWithAll(List.of("SURGERY")).toArray()).containsExactly(3, 4, 5);
+		assertThat(this.index.count("Radiology")).isEqualTo(3);
+	}
+
+	@Test
+	void shouldFindAllVetsWithoutSpecialties() {
+		assertThat(this.index.vetIdsWithAll(List.of()).toArray()).containsExactly(1, 2, 3, 4, 5);
+	}
+
+	@Test
+	void shouldFindNoVetsForUnknownSpecialty() {
+		assertThat(this.index.vetIdsWithAll(List.of("radiology", "oncology")).isEmpty()).isTrue();
+		assertThat(this.index.count("oncology")).isZero();
+	}
+
+	@Test
+	void shouldNotShareResultsWithIndex() {
+		this.index.vetIdsWithAll(List.of("radiology")).clear();
+		this.index.vetIdsWithAll(List.of()).clear();
+
+		assertThat(this.index.vetIdsWithAll(List.of("radiology")).getCardinality()).isEqualTo(3);
+		assertThat(this.index.vetIdsWithAll(List.of()).getCardinality()).isEqualTo(5);
+	}
+
+	private static Vet vet(int id, String... specialties) {
+		Vet vet = new Vet();
+		vet.setId(id);
+		for (String name : specialties) {
+			Specialty specialty = new Specialty();
+			specialty.setName(name);
+			vet.addSpecialty(specialty);
+		}
+		return vet;
+	}
+
+}
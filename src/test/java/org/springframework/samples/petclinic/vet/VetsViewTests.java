@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link VetsView}
+ */
+class VetsViewTests {
+
+	private final VetRepository vets = mock(VetRepository.class);
+
+	private final AtomicInteger derivations = new AtomicInteger();
+
+	private final VetsView<Integer> view = new VetsView<>(this.vets, vets -> {
+		this.derivations.incrementAndGet();
+		return vets.size();
+	});
+
+	@Test
+	void shouldDeriveOncePerList() {
+		Collection<Vet> list = List.of(new Vet(), new Vet());
+		given(this.vets.findAll()).willReturn(list);
+
+		assertThat(this.view.get()).isEqualTo(2);
+		assertThat(this.view.get()).isEqualTo(2);
+		assertThat(this.derivations).hasValue(1);
+	}
+
+	@Test
+	void shouldDeriveAgainForNewList() {
+		Collection<Vet> list = new ArrayList<>(List.of(new Vet()));
+		given(this.vets.findAll()).willReturn(list, new ArrayList<>(list));
+
+		assertThat(this.view.get()).isEqualTo(1);
+		assertThat(this.view.get()).isEqualTo(1);
+		assertThat(this.derivations).hasValue(2);
+	}
+
+}